@@ -0,0 +1,175 @@
+package org.doubao.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 基准结果历史：把 JMH 的 JSON 结果（-rf json）与历史目录中最近一次结果对比并打印变化，指定 --save 时归档本次结果。
+ * 超过阈值且超出误差范围的退化（吞吐下降、耗时或每次操作分配上升）使进程以 1 退出，可用于 CI。
+ * 结果与机器相关，历史目录不在源码树中，基准机器上应指定一个持久目录
+ *
+ * <pre>
+ * 用法: BenchmarkHistory &lt;result.json&gt; [历史目录，默认 target/jmh/history] [阈值百分比，默认 10] [--save]
+ * </pre>
+ */
+public final class BenchmarkHistory {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // 分配字节数变化小于该值时视为噪声
+    private static final double MIN_ALLOC_DELTA = 16;
+
+    private BenchmarkHistory() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        boolean save = false;
+        for (String arg : args) {
+            if ("--save".equals(arg)) {
+                save = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.isEmpty()) {
+            System.err.println("usage: BenchmarkHistory <result.json> [historyDir] [thresholdPct] [--save]");
+            System.exit(2);
+        }
+        Path resultFile = Paths.get(positional.get(0));
+        Path historyDir = Paths.get(positional.size() > 1 ? positional.get(1) : "target/jmh/history");
+        double threshold = positional.size() > 2 ? Double.parseDouble(positional.get(2)) / 100 : 0.10;
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Result> current = read(objectMapper, resultFile);
+        Path baselineFile = latest(historyDir);
+
+        int regressions = 0;
+        if (baselineFile == null) {
+            System.out.println("No history in " + historyDir + (save ? ", recording first baseline" : ", run with --save to record a baseline"));
+        } else {
+            System.out.println("Baseline: " + baselineFile.getFileName() + ", threshold: " + Math.round(threshold * 100) + "%");
+            regressions = compare(read(objectMapper, baselineFile), current, threshold);
+        }
+
+        if (save) {
+            Files.createDirectories(historyDir);
+            Path archived = historyDir.resolve(LocalDateTime.now().format(FILE_NAME) + ".json");
+            Files.copy(resultFile, archived, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Saved: " + archived);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) over threshold");
+            System.exit(1);
+        }
+    }
+
+    private static int compare(Map<String, Result> baseline, Map<String, Result> current, double threshold) {
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %8s %12s %12s %8s%n",
+                "Benchmark", "base", "current", "diff", "base B/op", "B/op", "diff");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.2f %8s  %s%n", entry.getKey(), "-", now.score, "new", now.unit);
+                continue;
+            }
+            double change = (now.score - before.score) / before.score;
+            // 吞吐越高越好，其余模式（平均耗时、采样、单次）越低越好
+            boolean worse = "thrpt".equals(now.mode) ? change < -threshold : change > threshold;
+            boolean outsideError = Math.abs(now.score - before.score) > now.error + before.error;
+            boolean scoreRegressed = worse && outsideError;
+
+            boolean allocRegressed = false;
+            String allocChange = "";
+            if (!Double.isNaN(now.allocNorm) && !Double.isNaN(before.allocNorm)) {
+                double allocDelta = now.allocNorm - before.allocNorm;
+                allocChange = before.allocNorm == 0 ? "" : percent(allocDelta / before.allocNorm);
+                allocRegressed = allocDelta > MIN_ALLOC_DELTA && allocDelta / Math.max(1, before.allocNorm) > threshold;
+            }
+            if (scoreRegressed || allocRegressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.2f %14.2f %8s %12s %12s %8s %s%s%n",
+                    entry.getKey(), before.score, now.score, percent(change),
+                    format(before.allocNorm), format(now.allocNorm), allocChange, now.unit,
+                    scoreRegressed || allocRegressed ? "  << REGRESSION" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-70s %14s%n", key, "removed");
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * 读取 JMH JSON 结果，键为基准名加参数
+     */
+    private static Map<String, Result> read(ObjectMapper objectMapper, Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode node : objectMapper.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(shortName(node.path("benchmark").asText()));
+            JsonNode params = node.path("params");
+            Map<String, String> sortedParams = new TreeMap<>();
+            params.fields().forEachRemaining(param -> sortedParams.put(param.getKey(), param.getValue().asText()));
+            sortedParams.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            JsonNode primary = node.path("primaryMetric");
+            JsonNode alloc = node.path("secondaryMetrics").path(ALLOC_NORM);
+            results.put(key.toString(), new Result(
+                    node.path("mode").asText(),
+                    primary.path("score").asDouble(),
+                    errorOf(primary.path("scoreError").asDouble(0)),
+                    primary.path("scoreUnit").asText(),
+                    alloc.isMissingNode() ? Double.NaN : alloc.path("score").asDouble()));
+        }
+        return results;
+    }
+
+    /**
+     * 单次迭代时误差为 NaN，按 0 处理
+     */
+    private static double errorOf(double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static Path latest(Path historyDir) throws IOException {
+        if (!Files.isDirectory(historyDir)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(historyDir)) {
+            // 文件名为时间戳，按名称排序即按时间排序
+            return files.filter(f -> f.getFileName().toString().endsWith(".json"))
+                    .max(Comparator.comparing(Path::getFileName))
+                    .orElse(null);
+        }
+    }
+
+    private static String shortName(String benchmark) {
+        int method = benchmark.lastIndexOf('.');
+        int type = method > 0 ? benchmark.lastIndexOf('.', method - 1) : -1;
+        return benchmark.substring(type + 1);
+    }
+
+    private static String percent(double ratio) {
+        return String.format("%+.1f%%", ratio * 100);
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.1f", value);
+    }
+
+    private record Result(String mode, double score, double error, String unit, double allocNorm) {
+    }
+}
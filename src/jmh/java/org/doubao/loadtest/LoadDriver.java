@@ -0,0 +1,376 @@
+package org.doubao.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.doubao.metrics.LatencyWindow;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 网关压测：默认启动内嵌模拟上游，固定数量的并发客户端持续发送流式 / 非流式聊天和生图请求，
+ * 结束后输出吞吐、首 token 耗时（TTFT）和 token 间隔（ITL）分位数，以及测量期间网关的线程数、堆内存和 GC
+ * （每秒采样 /admin/runtime）。网关需单独启动并将 doubao.base-url 指向模拟上游。
+ *
+ * <pre>
+ * LoadDriver apiKey=sk-... [gateway=http://127.0.0.1:8080] [streamClients=50] [blockingClients=10]
+ *            [imageClients=0] [duration=60] [warmup=10] [model=doubao-pro-chat] [mock=true] [mock.tokenRate=50 ...]
+ * </pre>
+ * 模拟上游参数以 mock. 为前缀，见 {@link MockUpstream.Options}
+ */
+public final class LoadDriver {
+
+    private static final String API_PREFIX = "/api/doubao/v1";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1.0};
+
+    private final Map<String, String> args;
+    private final String gateway;
+    private final String apiKey;
+    private final String model;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile boolean running = true;
+    private volatile boolean measuring;
+
+    private final Scenario streamChat = new Scenario("stream chat", true);
+    private final Scenario blockingChat = new Scenario("non-stream chat", false);
+    private final Scenario images = new Scenario("image", false);
+    private final GatewaySamples gatewaySamples = new GatewaySamples();
+
+    private LoadDriver(Map<String, String> args) {
+        this.args = args;
+        this.gateway = args.getOrDefault("gateway", "http://127.0.0.1:8080");
+        this.apiKey = args.get("apiKey");
+        this.model = args.getOrDefault("model", "doubao-pro-chat");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new LinkedHashMap<>();
+        for (String arg : argv) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                args.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        if (args.get("apiKey") == null) {
+            System.err.println("usage: LoadDriver apiKey=<key> [gateway=http://127.0.0.1:8080] [streamClients=50] "
+                    + "[blockingClients=10] [imageClients=0] [duration=60] [warmup=10] [mock=true] [mock.<option>=...]");
+            System.exit(2);
+        }
+        new LoadDriver(args).run(argv);
+    }
+
+    private void run(String[] argv) throws Exception {
+        int streamClients = intArg("streamClients", 50);
+        int blockingClients = intArg("blockingClients", 10);
+        int imageClients = intArg("imageClients", 0);
+        int warmup = intArg("warmup", 10);
+        int duration = intArg("duration", 60);
+
+        MockUpstream mock = null;
+        if (!"false".equals(args.get("mock"))) {
+            mock = new MockUpstream(MockUpstream.Options.parse(argv, "mock.")).start();
+            System.out.println("Mock upstream: " + mock.getBaseUrl() + " (" + mock.getOptions() + ")");
+        }
+        System.out.printf("Gateway: %s, clients: stream=%d non-stream=%d image=%d, warmup=%ds, duration=%ds%n",
+                gateway, streamClients, blockingClients, imageClients, warmup, duration);
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < streamClients; i++) {
+            clients.add(startClient("stream-" + i, streamChat, this::streamChat));
+        }
+        for (int i = 0; i < blockingClients; i++) {
+            clients.add(startClient("blocking-" + i, blockingChat, this::blockingChat));
+        }
+        for (int i = 0; i < imageClients; i++) {
+            clients.add(startClient("image-" + i, images, this::generateImage));
+        }
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::sampleGateway, 1, 1, TimeUnit.SECONDS);
+
+        TimeUnit.SECONDS.sleep(warmup);
+        measuring = true;
+        long measureStart = System.nanoTime();
+        TimeUnit.SECONDS.sleep(duration);
+        measuring = false;
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+
+        running = false;
+        sampler.shutdownNow();
+        for (Thread client : clients) {
+            client.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        System.out.printf("%n== Results (%.0fs measured after %ds warmup) ==%n", seconds, warmup);
+        for (Scenario scenario : List.of(streamChat, blockingChat, images)) {
+            scenario.print(seconds);
+        }
+        gatewaySamples.print();
+        if (mock != null) {
+            System.out.println("mock upstream: " + mock.summary());
+            mock.close();
+        }
+        System.exit(0);
+    }
+
+    private Thread startClient(String name, Scenario scenario, ClientCall call) {
+        Thread thread = new Thread(() -> {
+            long sequence = 0;
+            while (running) {
+                long start = System.nanoTime();
+                boolean counted = measuring;
+                try {
+                    call.execute(name, sequence++, scenario, counted);
+                    if (counted) {
+                        scenario.latency.record(System.nanoTime() - start);
+                        scenario.succeeded.increment();
+                    }
+                } catch (Exception e) {
+                    if (counted) {
+                        scenario.failed.increment();
+                        scenario.lastError = e.getMessage();
+                    }
+                    pause();
+                }
+            }
+        }, "load-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 流式聊天：记录首个内容分片耗时和相邻内容分片间隔，未收到 [DONE] 视为失败
+     */
+    private void streamChat(String client, long sequence, Scenario scenario, boolean counted) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<Stream<String>> response = httpClient.send(
+                post("/chat/completions", chatBody(client, true)), HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        long last = 0;
+        long tokens = 0;
+        boolean done = false;
+        try (Stream<String> lines = response.body()) {
+            for (Iterator<String> iterator = lines.iterator(); iterator.hasNext(); ) {
+                String line = iterator.next();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                if (line.contains("[DONE]")) {
+                    done = true;
+                    break;
+                }
+                if (line.contains("\"error\"")) {
+                    throw new IOException("stream error: " + line);
+                }
+                if (!line.contains("\"content\":\"") || line.contains("\"content\":\"\"")) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (counted) {
+                    if (tokens == 0) {
+                        scenario.ttft.record(now - start);
+                    } else {
+                        scenario.itl.record(now - last);
+                    }
+                }
+                last = now;
+                tokens++;
+            }
+        }
+        if (!done) {
+            throw new IOException("stream ended without [DONE]");
+        }
+        if (counted) {
+            scenario.tokens.add(tokens);
+        }
+    }
+
+    private void blockingChat(String client, long sequence, Scenario scenario, boolean counted) throws Exception {
+        HttpResponse<String> response = httpClient.send(
+                post("/chat/completions", chatBody(client, false)), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+    }
+
+    private void generateImage(String client, long sequence, Scenario scenario, boolean counted) throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("prompt", "load test image " + client + " #" + sequence);
+        body.put("stream", false);
+        body.put("no_cache", true);
+        body.put("user", "load-" + client);
+        HttpResponse<String> response = httpClient.send(
+                post("/generations", objectMapper.writeValueAsString(body)), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+    }
+
+    private String chatBody(String client, boolean stream) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("stream", stream);
+        // 每个客户端固定会话，与真实调用方一样复用会话-账号绑定
+        body.put("user", "load-" + client);
+        body.put("messages", List.of(Map.of("role", "user", "content", "用一段话描述春天的早晨")));
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(gateway + API_PREFIX + path))
+                .timeout(Duration.ofMinutes(5))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * 采样网关运行状态（线程、堆、GC、上游连接池、转发线程池队列），只保留测量期间的样本
+     */
+    private void sampleGateway() {
+        if (!measuring) {
+            return;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(gateway + API_PREFIX + "/admin/runtime"))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Authorization", "Bearer " + apiKey)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            JsonNode data = objectMapper.readTree(response.body()).path("data");
+            gatewaySamples.add(data);
+        } catch (Exception e) {
+            gatewaySamples.failures++;
+        }
+    }
+
+    private int intArg(String name, int defaultValue) {
+        String value = args.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ClientCall {
+        void execute(String client, long sequence, Scenario scenario, boolean counted) throws Exception;
+    }
+
+    private static final class Scenario {
+
+        final String name;
+        final boolean stream;
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder tokens = new LongAdder();
+        final LatencyWindow latency = new LatencyWindow(1 << 18);
+        final LatencyWindow ttft = new LatencyWindow(1 << 18);
+        final LatencyWindow itl = new LatencyWindow(1 << 22);
+        volatile String lastError;
+
+        Scenario(String name, boolean stream) {
+            this.name = name;
+            this.stream = stream;
+        }
+
+        void print(double seconds) {
+            long ok = succeeded.sum();
+            long errors = failed.sum();
+            if (ok + errors == 0) {
+                return;
+            }
+            System.out.printf("%s: %d ok, %d failed, %.1f req/s%n", name, ok, errors, ok / seconds);
+            if (stream) {
+                System.out.printf("  tokens: %d, %.0f tokens/s%n", tokens.sum(), tokens.sum() / seconds);
+                printPercentiles("  TTFT", ttft);
+                printPercentiles("  ITL", itl);
+            }
+            printPercentiles("  total", latency);
+            if (lastError != null) {
+                System.out.println("  last error: " + lastError);
+            }
+        }
+
+        private static void printPercentiles(String label, LatencyWindow window) {
+            double[] p = window.percentilesMillis(QUANTILES);
+            System.out.printf("%-8s p50 %8.1f ms  p90 %8.1f ms  p99 %8.1f ms  max %8.1f ms  (%d samples)%n",
+                    label, p[0], p[1], p[2], p[3], window.size());
+        }
+    }
+
+    private static final class GatewaySamples {
+
+        final List<JsonNode> samples = Collections.synchronizedList(new ArrayList<>());
+        int failures;
+
+        void add(JsonNode runtime) {
+            if (runtime.has("jvm")) {
+                samples.add(runtime);
+            }
+        }
+
+        void print() {
+            if (samples.isEmpty()) {
+                System.out.println("gateway: no /admin/runtime samples (" + failures + " failed)");
+                return;
+            }
+            JsonNode first = samples.get(0);
+            JsonNode last = samples.get(samples.size() - 1);
+            System.out.printf("gateway threads: avg %.0f, max %d (peak since start %d)%n",
+                    average("jvm", "threads"), max("jvm", "threads"), last.path("jvm").path("peakThreads").asInt());
+            System.out.printf("gateway heap used: avg %.1f MB, max %.1f MB (committed %.1f MB)%n",
+                    average("jvm", "heapUsed") / 1048576, max("jvm", "heapUsed") / 1048576d,
+                    last.path("jvm").path("heapCommitted").asLong() / 1048576d);
+            System.out.printf("gateway GC: %d collections, %d ms%n",
+                    last.path("jvm").path("gcCount").asLong() - first.path("jvm").path("gcCount").asLong(),
+                    last.path("jvm").path("gcTimeMs").asLong() - first.path("jvm").path("gcTimeMs").asLong());
+            System.out.printf("gateway upstream pool: leased max %d, pending max %d%n",
+                    max("httpPool", "leased"), max("httpPool", "pending"));
+            int relayQueueMax = 0;
+            for (JsonNode sample : samples) {
+                for (JsonNode executor : sample.path("executors")) {
+                    if ("relay".equals(executor.path("name").asText())) {
+                        relayQueueMax = Math.max(relayQueueMax, executor.path("queueSize").asInt());
+                    }
+                }
+            }
+            System.out.printf("gateway relay queue: max %d (%d samples)%n", relayQueueMax, samples.size());
+        }
+
+        private double average(String group, String field) {
+            return samples.stream().mapToLong(s -> s.path(group).path(field).asLong()).average().orElse(0);
+        }
+
+        private long max(String group, String field) {
+            return samples.stream().mapToLong(s -> s.path(group).path(field).asLong()).max().orElse(0);
+        }
+    }
+}
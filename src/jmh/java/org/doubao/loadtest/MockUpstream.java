@@ -0,0 +1,430 @@
+package org.doubao.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.doubao.recording.SseRecording;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地模拟上游：实现 /samantha/chat/completion，按真实事件格式输出 SSE
+ * （2002 会话信息，2001 内容 / 生图结果，2003 聊天结束 / 生图进度），可配置首字节耗时、输出速率、分片大小、
+ * 错误注入和生图结果数。事件由少量调度线程按时间表写出，不为每个流占用线程。
+ * <p>
+ * 可嵌入其他进程（{@code new MockUpstream(options).start()}），也可单独运行：
+ * <pre>
+ * MockUpstream [port=19090] [tokenRate=50] [ttfbMs=300] ...
+ * </pre>
+ */
+public class MockUpstream implements AutoCloseable {
+
+    private static final String COMPLETION_PATH = "/samantha/chat/completion";
+    private static final String IMAGE_PATH = "/mock-images/";
+    private static final String TEXT = "春天的早晨阳光明媚微风轻拂着刚刚抽出嫩芽的柳枝湖面上波光粼粼几只白鹭从芦苇丛中飞起"
+            + "远处的山峦笼罩在薄雾之中近处的花园里桃花和杏花竞相开放蜜蜂在花丛间忙碌地飞舞孩子们在草地上奔跑嬉戏"
+            + "老人们坐在长椅上晒着太阳聊着家常这是一个适合出门踏青的好日子";
+    private static final int WORD_POOL = 64;
+    // 1x1 透明 PNG，供生图结果 URL 下载（图片镜像）
+    private static final byte[] PNG = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==");
+
+    /**
+     * 模拟参数，命令行以 name=value 形式覆盖
+     */
+    public static class Options {
+        public int port = 19090; // 0 表示随机端口
+        public long ttfbMs = 300; // 首字节耗时（响应头与 2002 事件）
+        public double tokenRate = 50; // 每个流每秒输出的内容分片数
+        public int tokens = 200; // 每次回复的内容分片数
+        public int tokenChars = 2; // 每个分片的文字数
+        public double jitter = 0.2; // 分片间隔随机抖动比例
+        public double errorRate = 0; // 直接返回错误状态的请求比例
+        public int errorStatus = 500;
+        public double truncateRate = 0; // 中途断开（不发送结束事件）的流比例
+        public int images = 4; // 每次生图的图片数，结果事件逐张累加
+        public long imageMs = 8000; // 生图总耗时（进度事件与结果事件均匀分布）
+        public int progressEvents = 8; // 生图进度事件数
+        public int writerThreads = 2; // 写出事件的调度线程数
+
+        /**
+         * 按 prefix + 字段名解析 name=value 参数，其他参数忽略
+         */
+        public static Options parse(String[] args, String prefix) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0 || !arg.startsWith(prefix)) {
+                    continue;
+                }
+                String name = arg.substring(prefix.length(), eq);
+                String value = arg.substring(eq + 1);
+                try {
+                    Field field = Options.class.getField(name);
+                    if (field.getType() == int.class) {
+                        field.setInt(options, Integer.parseInt(value));
+                    } else if (field.getType() == long.class) {
+                        field.setLong(options, Long.parseLong(value));
+                    } else {
+                        field.setDouble(options, Double.parseDouble(value));
+                    }
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalArgumentException("未知的模拟参数: " + name);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ttfbMs=%d tokenRate=%.1f tokens=%d tokenChars=%d jitter=%.2f errorRate=%.3f "
+                            + "errorStatus=%d truncateRate=%.3f images=%d imageMs=%d progressEvents=%d",
+                    ttfbMs, tokenRate, tokens, tokenChars, jitter, errorRate, errorStatus, truncateRate,
+                    images, imageMs, progressEvents);
+        }
+    }
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService writers;
+    private final String conversationEvent;
+    private final String[] tokenEvents = new String[WORD_POOL];
+    private String[] imageEvents;
+    private HttpServer server;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+
+    public MockUpstream(Options options) {
+        this.options = options;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.writers = Executors.newScheduledThreadPool(Math.max(1, options.writerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "mock-upstream-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.conversationEvent = eventPrefix(Map.of(
+                    "conversation_id", "7431444529763028279",
+                    "local_message_id", "ca44eb86-0726-e25c-fd56-a926076b3e36",
+                    "message_id", "7431823037520127374",
+                    "section_id", "7431054364196807760")) + "0\",\"event_type\":2002}\n\n";
+            int chars = Math.max(1, options.tokenChars);
+            for (int i = 0; i < WORD_POOL; i++) {
+                StringBuilder word = new StringBuilder(chars);
+                for (int j = 0; j < chars; j++) {
+                    word.append(TEXT.charAt((i * chars + j) % TEXT.length()));
+                }
+                tokenEvents[i] = eventPrefix(messageData(2001, Map.of("text", word.toString()), true));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public MockUpstream start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port), 1024);
+        server.createContext(COMPLETION_PATH, this::handleCompletion);
+        server.createContext(IMAGE_PATH, this::handleImage);
+        server.setExecutor(writers);
+        server.start();
+        imageEvents = buildImageEvents();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public Options getOptions() {
+        return options;
+    }
+
+    /**
+     * 请求数 / 正常结束 / 注入错误 / 中途断开 / 客户端提前关闭
+     */
+    public String summary() {
+        return String.format("requests=%d completed=%d injectedErrors=%d truncated=%d aborted=%d",
+                requests.sum(), completed.sum(), injectedErrors.sum(), truncated.sum(), aborted.sum());
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        writers.shutdownNow();
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.errorRate) {
+            injectedErrors.increment();
+            writers.schedule(() -> sendError(exchange), options.ttfbMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        MockStream stream = SseRecording.IMAGE.equals(SseRecording.kindOf(body))
+                ? new ImageStream(exchange) : new ChatStream(exchange);
+        if (random.nextDouble() < options.truncateRate) {
+            stream.truncateAt = 1 + random.nextInt(Math.max(1, stream.length() - 1));
+        }
+        writers.schedule(stream::run, options.ttfbMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void handleImage(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.sendResponseHeaders(200, PNG.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(PNG);
+        }
+    }
+
+    private void sendError(HttpExchange exchange) {
+        byte[] body = ("{\"code\":" + options.errorStatus + ",\"msg\":\"mock upstream error\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(options.errorStatus, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            aborted.increment();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 一个 SSE 流：每次调度写出一个事件，并安排下一个事件的时间
+     */
+    private abstract class MockStream {
+
+        final HttpExchange exchange;
+        OutputStream out;
+        int step;
+        int eventId;
+        int truncateAt = -1;
+
+        MockStream(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * 事件总数（不含 2002 和 [DONE]）
+         */
+        abstract int length();
+
+        /**
+         * 写出第 step 个事件（从 1 开始），返回距下一个事件的微秒数
+         */
+        abstract long writeEvent(int step) throws IOException;
+
+        void run() {
+            try {
+                if (out == null) {
+                    exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+                    exchange.sendResponseHeaders(200, 0);
+                    out = exchange.getResponseBody();
+                    write(conversationEvent);
+                    out.flush();
+                    writers.schedule(this::run, firstDelayMicros(), TimeUnit.MICROSECONDS);
+                    return;
+                }
+                step++;
+                if (step == truncateAt) {
+                    truncated.increment();
+                    exchange.close();
+                    return;
+                }
+                if (step > length()) {
+                    write("data: [DONE]\n\n");
+                    out.flush();
+                    completed.increment();
+                    exchange.close();
+                    return;
+                }
+                long delay = writeEvent(step);
+                out.flush();
+                writers.schedule(this::run, delay, TimeUnit.MICROSECONDS);
+            } catch (IOException e) {
+                // 客户端（网关）提前关闭连接
+                aborted.increment();
+                exchange.close();
+            }
+        }
+
+        abstract long firstDelayMicros();
+
+        void write(String event) throws IOException {
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * 写出内容事件（2001）
+         */
+        void writeContent(String eventPrefix, int id) throws IOException {
+            write(eventPrefix + id + "\",\"event_type\":2001}\n\n");
+        }
+    }
+
+    private class ChatStream extends MockStream {
+
+        ChatStream(HttpExchange exchange) {
+            super(exchange);
+        }
+
+        @Override
+        int length() {
+            return options.tokens + 1;
+        }
+
+        @Override
+        long firstDelayMicros() {
+            return tokenDelayMicros();
+        }
+
+        @Override
+        long writeEvent(int step) throws IOException {
+            if (step <= options.tokens) {
+                writeContent(tokenEvents[(step - 1) % WORD_POOL], ++eventId);
+                return step < options.tokens ? tokenDelayMicros() : 0;
+            }
+            write("data: {\"event_data\":\"{\\\"finish_type\\\":1}\",\"event_id\":\"" + (++eventId)
+                    + "\",\"event_type\":2003}\n\n");
+            return 0;
+        }
+
+        private long tokenDelayMicros() {
+            double base = 1_000_000d / Math.max(0.001, options.tokenRate);
+            double jitter = options.jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+            return Math.max(0, (long) (base * (1 + jitter)));
+        }
+    }
+
+    private class ImageStream extends MockStream {
+
+        ImageStream(HttpExchange exchange) {
+            super(exchange);
+        }
+
+        @Override
+        int length() {
+            return options.progressEvents + imageEvents.length;
+        }
+
+        @Override
+        long firstDelayMicros() {
+            return intervalMicros();
+        }
+
+        @Override
+        long writeEvent(int step) throws IOException {
+            if (step <= options.progressEvents) {
+                int progress = step * 100 / (options.progressEvents + 1);
+                write("data: {\"event_data\":\"{\\\"progress\\\":" + progress + "}\",\"event_id\":\"" + (++eventId)
+                        + "\",\"event_type\":2003}\n\n");
+            } else {
+                writeContent(imageEvents[step - options.progressEvents - 1], ++eventId);
+            }
+            return step < length() ? intervalMicros() : 0;
+        }
+
+        private long intervalMicros() {
+            return TimeUnit.MILLISECONDS.toMicros(options.imageMs) / Math.max(1, length());
+        }
+    }
+
+    /**
+     * 生图结果事件：第 k 个事件包含前 k 张图片（与上游一致，结果逐张累加）
+     */
+    private String[] buildImageEvents() throws JsonProcessingException {
+        String[] events = new String[Math.max(0, options.images)];
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 0; i < events.length; i++) {
+            String key = UUID.nameUUIDFromBytes(("mock-image-" + i).getBytes(StandardCharsets.UTF_8))
+                    .toString().replace("-", "");
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("image_ori", image(key, "image-ori", 2048));
+            item.put("image_raw", image(key, "image-raw", 2048));
+            item.put("image_thumb", image(key, "web-thumb", 512));
+            item.put("key", key);
+            item.put("description", "模拟生图结果");
+            data.add(item);
+            events[i] = eventPrefix(messageData(2010, Map.of("data", new ArrayList<>(data)), false));
+        }
+        return events;
+    }
+
+    private Map<String, Object> image(String key, String variant, int size) {
+        Map<String, Object> image = new LinkedHashMap<>();
+        image.put("url", getBaseUrl() + IMAGE_PATH + key + "~tplv-" + variant + ".png?x-expires=1793000000&format=.png");
+        image.put("width", size);
+        image.put("height", size);
+        image.put("format", "png");
+        return image;
+    }
+
+    private Map<String, Object> messageData(int contentType, Object content, boolean delta) throws JsonProcessingException {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("content_type", contentType);
+        message.put("content", objectMapper.writeValueAsString(content));
+        message.put("id", "7431924672410201907");
+        message.put("ext", Map.of());
+        Map<String, Object> eventData = new LinkedHashMap<>();
+        eventData.put("message", message);
+        eventData.put("message_id", "7431924672410201907");
+        eventData.put("conversation_id", "7431444529763028279");
+        eventData.put("section_id", "7431054364196807760");
+        eventData.put("reply_id", "7431823037520127374");
+        eventData.put("is_delta", delta);
+        eventData.put("status", 1);
+        eventData.put("bot_id", "7338286299411103781");
+        return eventData;
+    }
+
+    /**
+     * 事件前缀：{@code data: {"event_data":"...","event_id":"}，写出时拼接事件序号和类型
+     */
+    private String eventPrefix(Map<String, Object> eventData) throws JsonProcessingException {
+        String json = objectMapper.writeValueAsString(Map.of("event_data", objectMapper.writeValueAsString(eventData)));
+        return "data: " + json.substring(0, json.length() - 1) + ",\"event_id\":\"";
+    }
+
+    public static void main(String[] args) throws Exception {
+        MockUpstream upstream = new MockUpstream(Options.parse(args, "")).start();
+        System.out.println("Mock upstream listening on " + upstream.getBaseUrl() + COMPLETION_PATH);
+        System.out.println("Options: " + upstream.getOptions());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(upstream.summary());
+            upstream.close();
+        }));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,125 @@
+package org.doubao.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.joran.spi.JoranException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志输出吞吐：每次操作重放一次流式请求的日志调用（4 条 INFO，其中 3 条 REQUEST、1 条 SESSION，另有 5 条 DEBUG），按请求计。
+ * 使用独立的 LoggerContext，appender 结构与 logback-spring.xml 相同（脱敏格式、异步队列、WARN 独立队列），
+ * 输出写入空流，因此只衡量业务线程上的格式化、入队和锁竞争，不含磁盘 IO。
+ * <ul>
+ *     <li>sync：同步输出（异步化之前的配置）</li>
+ *     <li>async：异步队列，队列将满时丢弃 INFO</li>
+ *     <li>sampled：异步队列，REQUEST / SESSION 分类按 0.1 采样</li>
+ * </ul>
+ * 线程数默认 4，可用 -t 覆盖
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %redactedMsg%n";
+
+    @Param({"sync", "async", "sampled"})
+    public String mode;
+
+    @Param("8192")
+    public int queueSize;
+
+    private LoggerContext context;
+    private Logger logger;
+
+    @Setup
+    public void setup() throws JoranException {
+        context = new LoggerContext();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(new ByteArrayInputStream(configuration().getBytes(StandardCharsets.UTF_8)));
+        logger = context.getLogger("org.doubao.service.impl.DoubaoServiceImpl");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void streamRequest() {
+        String sessionId = "sess-" + ThreadLocalRandom.current().nextInt(1024);
+        logger.info(LogCategory.REQUEST, "收到聊天请求[模型: {}, 流式: {}, 会话: {}]", "doubao-pro-chat", true, sessionId);
+        logger.info(LogCategory.SESSION, "会话[{}]绑定账号[{}]", sessionId, 3);
+        logger.debug("构建请求体，消息数: {}", 2);
+        logger.debug("签名参数: {}", "msToken=Qh3kX9vB2mLpZr8tYw1cN5sD7fG0jH4aE6uI&a_bogus=DFSzswVYmE");
+        logger.info(LogCategory.REQUEST, "发送上游请求[账号: {}]: {}", 3,
+                "https://www.doubao.com/samantha/chat/completion?aid=497858&device_id=7411&msToken=Qh3kX9vB2mLp");
+        logger.debug("收到首个事件，耗时: {}ms", 412);
+        logger.debug("会话ID更新: {}", "conv-7411");
+        logger.debug("上游流结束，分片数: {}", 180);
+        logger.info(LogCategory.REQUEST, "流式响应完成[会话: {}]，分片数: {}，耗时: {}ms", sessionId, 180, 5230);
+    }
+
+    private String configuration() {
+        StringBuilder xml = new StringBuilder("<configuration>")
+                .append("<conversionRule conversionWord=\"redactedMsg\" converterClass=\"")
+                .append(RedactingMessageConverter.class.getName()).append("\"/>");
+        if ("sampled".equals(mode)) {
+            xml.append("<turboFilter class=\"").append(SamplingTurboFilter.class.getName()).append("\">")
+                    .append("<sample>REQUEST=0.1</sample><sample>SESSION=0.1</sample>")
+                    .append("</turboFilter>");
+        }
+        xml.append("<appender name=\"OUT\" class=\"").append(NullOutputAppender.class.getName()).append("\">")
+                .append("<encoder class=\"ch.qos.logback.classic.encoder.PatternLayoutEncoder\">")
+                .append("<pattern>").append(PATTERN).append("</pattern><charset>UTF-8</charset>")
+                .append("</encoder></appender>");
+        String refs;
+        if ("sync".equals(mode)) {
+            refs = "<appender-ref ref=\"OUT\"/>";
+        } else {
+            xml.append("<appender name=\"ASYNC\" class=\"ch.qos.logback.classic.AsyncAppender\">")
+                    .append("<queueSize>").append(queueSize).append("</queueSize><neverBlock>true</neverBlock>")
+                    .append(denyLevel("ERROR")).append(denyLevel("WARN"))
+                    .append("<appender-ref ref=\"OUT\"/></appender>")
+                    .append("<appender name=\"ASYNC_WARN\" class=\"ch.qos.logback.classic.AsyncAppender\">")
+                    .append("<queueSize>1024</queueSize><discardingThreshold>0</discardingThreshold>")
+                    .append("<filter class=\"ch.qos.logback.classic.filter.ThresholdFilter\"><level>WARN</level></filter>")
+                    .append("<appender-ref ref=\"OUT\"/></appender>");
+            refs = "<appender-ref ref=\"ASYNC\"/><appender-ref ref=\"ASYNC_WARN\"/>";
+        }
+        return xml.append("<logger name=\"org.doubao\" level=\"INFO\" additivity=\"false\">").append(refs)
+                .append("</logger><root level=\"WARN\"/></configuration>")
+                .toString();
+    }
+
+    private static String denyLevel(String level) {
+        return "<filter class=\"ch.qos.logback.classic.filter.LevelFilter\"><level>" + level
+                + "</level><onMatch>DENY</onMatch><onMismatch>NEUTRAL</onMismatch></filter>";
+    }
+
+    /**
+     * 编码后写入空流的 appender，编码和同步加锁开销与文件 / 控制台输出相同
+     */
+    public static class NullOutputAppender extends OutputStreamAppender<ILoggingEvent> {
+
+        @Override
+        public void start() {
+            setOutputStream(OutputStream.nullOutputStream());
+            super.start();
+        }
+    }
+}
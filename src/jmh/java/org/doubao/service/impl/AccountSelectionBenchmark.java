@@ -0,0 +1,82 @@
+package org.doubao.service.impl;
+
+import org.doubao.config.DoubaoProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程竞争下的账号选择（getNextAccount）：每次操作选出账号后立即释放活跃连接，与一次请求的账号占用相同。
+ * 线程数默认 4，可用 -t 覆盖
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AccountSelectionBenchmark {
+
+    /**
+     * 每个线程复用的会话数
+     */
+    private static final int SESSIONS_PER_THREAD = 1024;
+
+    @Param({"10", "100", "1000"})
+    public int accounts;
+
+    private DoubaoServiceImpl chatService;
+
+    @Setup
+    public void setup() {
+        chatService = BenchmarkServices.chatService(BenchmarkServices.properties(accounts));
+    }
+
+    @TearDown
+    public void tearDown() {
+        chatService.shutdown();
+    }
+
+    /**
+     * 已绑定会话：命中会话-账号绑定，只检查账号健康状态
+     */
+    @Benchmark
+    public DoubaoProperties.AccountConfig boundSession(Sessions sessions) {
+        String sessionId = sessions.ids[ThreadLocalRandom.current().nextInt(SESSIONS_PER_THREAD)];
+        DoubaoProperties.AccountConfig account = chatService.getNextAccount(sessionId);
+        // 账号配置了 deviceId，即为账号标识
+        chatService.decrementActiveConnections(account.getDeviceId());
+        return account;
+    }
+
+    /**
+     * 新会话：在健康账号中选择活跃连接最少的账号并绑定，结束后解绑以保持绑定表大小不变
+     */
+    @Benchmark
+    public DoubaoProperties.AccountConfig newSession(Sessions sessions) {
+        String sessionId = sessions.prefix + sessions.counter++;
+        DoubaoProperties.AccountConfig account = chatService.getNextAccount(sessionId);
+        chatService.decrementActiveConnections(account.getDeviceId());
+        chatService.unbindSession(sessionId);
+        return account;
+    }
+
+    @State(Scope.Thread)
+    public static class Sessions {
+
+        String prefix;
+        String[] ids;
+        long counter;
+
+        @Setup
+        public void setup() {
+            prefix = "session-" + Thread.currentThread().getId() + "-";
+            ids = new String[SESSIONS_PER_THREAD];
+            for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+                ids[i] = prefix + "bound-" + i;
+            }
+        }
+    }
+}
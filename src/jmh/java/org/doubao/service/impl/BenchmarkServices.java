@@ -0,0 +1,68 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.http.UpstreamTrafficCounter;
+import org.doubao.metrics.DoubaoMetrics;
+import org.doubao.recording.SseRecorder;
+import org.doubao.tracing.DoubaoTracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 基准测试用的服务实例：不启动 Spring，直接构造服务，HTTP 客户端等请求构建用不到的依赖传 null，
+ * 指标写入内存注册表，追踪使用 noop 实现
+ */
+final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    /**
+     * 生成指定数量的账号配置，字段长度与真实 Cookie / 设备指纹相当；msToken 留空，与默认配置一致走签名服务缓存
+     */
+    static DoubaoProperties properties(int accountCount) {
+        DoubaoProperties properties = new DoubaoProperties();
+        properties.setApiKey("sk-benchmark");
+        List<DoubaoProperties.AccountConfig> accounts = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            DoubaoProperties.AccountConfig account = new DoubaoProperties.AccountConfig();
+            account.setDeviceId(String.valueOf(7400000000000000000L + i));
+            account.setTeaUuid(String.valueOf(7410000000000000000L + i));
+            account.setWebId(String.valueOf(7420000000000000000L + i));
+            account.setFp("verify_" + UUID.nameUUIDFromBytes(("fp" + i).getBytes()).toString().replace("-", ""));
+            account.setCookie("sessionid=" + UUID.nameUUIDFromBytes(("s" + i).getBytes()).toString().replace("-", "")
+                    + "; sessionid_ss=" + UUID.nameUUIDFromBytes(("ss" + i).getBytes()).toString().replace("-", "")
+                    + "; sid_guard=" + UUID.nameUUIDFromBytes(("g" + i).getBytes()).toString().replace("-", "")
+                    + "%7C1760000000%7C5184000%7CMon%2C+01-Dec-2025+00%3A00%3A00+GMT"
+                    + "; ttwid=1%7C" + UUID.nameUUIDFromBytes(("t" + i).getBytes()) + "%7C1760000000%7Cabcdef0123456789"
+                    + "; passport_csrf_token=" + UUID.nameUUIDFromBytes(("c" + i).getBytes()).toString().replace("-", ""));
+            accounts.add(account);
+        }
+        properties.setAccounts(accounts);
+        return properties;
+    }
+
+    static DoubaoServiceImpl chatService(DoubaoProperties properties) {
+        return new DoubaoServiceImpl(properties, null, new ObjectMapper(), new SignatureServiceImpl(properties),
+                null, new UpstreamTrafficCounter(), metrics(properties), tracing(), Runnable::run);
+    }
+
+    static DoubaoImageServiceImpl imageService(DoubaoProperties properties) {
+        return new DoubaoImageServiceImpl(properties, null, new ObjectMapper(), new SignatureServiceImpl(properties),
+                null, null, null, metrics(properties), tracing(), Runnable::run);
+    }
+
+    private static DoubaoMetrics metrics(DoubaoProperties properties) {
+        return new DoubaoMetrics(new SimpleMeterRegistry(), properties, new UpstreamTrafficCounter(),
+                new SseRecorder(properties));
+    }
+
+    private static DoubaoTracing tracing() {
+        return new DoubaoTracing(OpenTelemetry.noop());
+    }
+}
@@ -0,0 +1,56 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生图结果解析：整段响应体提取图片URL（parseImageResponse）和单个结果事件的解析（流式生图）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageParsingBenchmark {
+
+    /**
+     * 录制目录，为空时使用内置录制
+     */
+    @Param("")
+    public String recordings;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String body;
+    private String resultEventData;
+
+    @Setup
+    public void setup() throws IOException {
+        body = RecordedPayloads.imageStream(recordings);
+        // 最后一个结果事件（包含全部图片）
+        for (String line : body.split("\n")) {
+            if (RecordedPayloads.isContentEvent(line)) {
+                JsonNode event = objectMapper.readTree(line.substring(6).trim());
+                resultEventData = event.get("event_data").asText().trim();
+            }
+        }
+        if (resultEventData == null || parseResponse().isEmpty()) {
+            throw new IllegalStateException("生图录制中没有图片结果");
+        }
+    }
+
+    @Benchmark
+    public List<String> parseResponse() throws IOException {
+        return DoubaoImageServiceImpl.parseImageUrls(objectMapper, body);
+    }
+
+    @Benchmark
+    public List<String> extractResultEvent() throws IOException {
+        return DoubaoImageServiceImpl.extractImageUrls(objectMapper, resultEventData);
+    }
+}
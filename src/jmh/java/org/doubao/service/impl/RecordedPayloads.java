@@ -0,0 +1,122 @@
+package org.doubao.service.impl;
+
+import org.doubao.recording.SseRecording;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试用的上游响应：默认使用内置录制（src/jmh/resources/recordings），
+ * 也可通过 -p recordings=目录 使用 doubao.sse-record 录制的真实流
+ */
+final class RecordedPayloads {
+
+    /**
+     * 每次调用处理的内容事件数，流级别的基准按此换算为单个 token 的耗时和分配
+     */
+    static final int TOKENS = 256;
+
+    private static final Pattern CONTENT_EVENT = Pattern.compile("\"event_type\"\\s*:\\s*2001\\b");
+    private static final String[] BUILT_IN = {"recordings/chat.sse", "recordings/image.sse"};
+
+    private RecordedPayloads() {
+    }
+
+    static List<SseRecording> load(String dir, String kind) throws IOException {
+        List<SseRecording> all = new ArrayList<>();
+        if (dir == null || dir.isEmpty()) {
+            for (String resource : BUILT_IN) {
+                try (InputStream in = RecordedPayloads.class.getClassLoader().getResourceAsStream(resource)) {
+                    if (in == null) {
+                        throw new IOException("缺少内置录制: " + resource);
+                    }
+                    all.addAll(SseRecording.readAll(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))));
+                }
+            }
+        } else {
+            List<Path> files;
+            try (Stream<Path> list = Files.list(Paths.get(dir))) {
+                files = list.filter(f -> f.getFileName().toString().endsWith(".sse")).sorted().toList();
+            }
+            for (Path file : files) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    all.addAll(SseRecording.readAll(reader));
+                }
+            }
+        }
+        List<SseRecording> matched = all.stream().filter(r -> kind.equals(r.getKind())).toList();
+        if (matched.isEmpty()) {
+            throw new IOException("没有 " + kind + " 类型的录制");
+        }
+        return matched;
+    }
+
+    /**
+     * 拼出一个包含 TOKENS 个内容事件的聊天响应体：保留首个录制的开头和结尾事件，中间循环使用录制中的内容事件
+     */
+    static String chatStream(String dir) throws IOException {
+        List<SseRecording> recordings = load(dir, SseRecording.CHAT);
+        List<String> tokenEvents = new ArrayList<>();
+        for (SseRecording recording : recordings) {
+            for (SseRecording.Line line : recording.getLines()) {
+                if (isContentEvent(line.text())) {
+                    tokenEvents.add(line.text());
+                }
+            }
+        }
+        if (tokenEvents.isEmpty()) {
+            throw new IOException("聊天录制中没有内容事件");
+        }
+
+        List<SseRecording.Line> lines = recordings.get(0).getLines();
+        int firstContent = 0;
+        while (firstContent < lines.size() && !isContentEvent(lines.get(firstContent).text())) {
+            firstContent++;
+        }
+        int lastContent = lines.size() - 1;
+        while (lastContent >= 0 && !isContentEvent(lines.get(lastContent).text())) {
+            lastContent--;
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < firstContent; i++) {
+            body.append(lines.get(i).text()).append('\n');
+        }
+        for (int i = 0; i < TOKENS; i++) {
+            body.append(tokenEvents.get(i % tokenEvents.size())).append("\n\n");
+        }
+        int tail = lastContent + 1;
+        if (tail < lines.size() && lines.get(tail).text().isEmpty()) {
+            tail++;
+        }
+        for (int i = tail; i < lines.size(); i++) {
+            body.append(lines.get(i).text()).append('\n');
+        }
+        return body.toString();
+    }
+
+    /**
+     * 第一个生图录制的完整响应体
+     */
+    static String imageStream(String dir) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (SseRecording.Line line : load(dir, SseRecording.IMAGE).get(0).getLines()) {
+            body.append(line.text()).append('\n');
+        }
+        return body.toString();
+    }
+
+    static boolean isContentEvent(String line) {
+        return line.startsWith("data: ") && CONTENT_EVENT.matcher(line).find();
+    }
+}
@@ -0,0 +1,140 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.dto.ChatCompletionRequest;
+import org.doubao.domain.dto.ImageGenerationRequest;
+import org.doubao.domain.dto.SignatureRequest;
+import org.doubao.domain.vo.SignatureResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游请求的固定开销：签名URL、请求头、请求体构建，即字节发往上游之前每个请求都要付出的成本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBuildBenchmark {
+
+    private static final String CONVERSATION_ID = "7431234567890123456";
+    private static final String[] TURNS = {
+            "帮我写一个 Java 方法，把驼峰命名转换成下划线命名，并说明边界情况。",
+            "可以，下面是实现：public static String toSnakeCase(String name) { ... }，需要注意连续大写和数字。",
+    };
+
+    private DoubaoServiceImpl chatService;
+    private DoubaoImageServiceImpl imageService;
+    private SignatureServiceImpl signatureService;
+    private DoubaoProperties.AccountConfig account;
+    private ImageGenerationRequest imageRequest;
+    private SignatureRequest signatureRequest;
+    private String signedUrl;
+
+    @Setup
+    public void setup() {
+        DoubaoProperties properties = BenchmarkServices.properties(1);
+        chatService = BenchmarkServices.chatService(properties);
+        imageService = BenchmarkServices.imageService(properties);
+        signatureService = new SignatureServiceImpl(properties);
+        account = properties.getAccounts().get(0);
+
+        imageRequest = new ImageGenerationRequest();
+        imageRequest.setPrompt("一只在雨夜霓虹街头撑伞的橘猫，赛博朋克风格，电影感光影");
+        imageRequest.setRatio("16:9");
+
+        // 与 buildSignedUrl 传给签名服务的参数一致
+        signedUrl = chatService.buildSignedUrl(account);
+        signatureRequest = new SignatureRequest();
+        signatureRequest.setUrl(signedUrl.substring(0, signedUrl.indexOf('?')));
+        signatureRequest.setCookie(account.getCookie());
+        signatureRequest.setParams(signedUrl.substring(signedUrl.indexOf('?') + 1, signedUrl.indexOf("&a_bogus=")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        chatService.shutdown();
+        imageService.shutdown();
+    }
+
+    @Benchmark
+    public SignatureResponse generateSignature() {
+        return signatureService.generateSignature(signatureRequest);
+    }
+
+    /**
+     * 查询参数拼接 + 签名
+     */
+    @Benchmark
+    public String buildSignedUrl() {
+        return chatService.buildSignedUrl(account);
+    }
+
+    @Benchmark
+    public HttpPost buildHttpPost() {
+        return chatService.buildHttpPost(signedUrl, account.getCookie());
+    }
+
+    @Benchmark
+    public String buildRealPayload(Conversation conversation) throws JsonProcessingException {
+        return chatService.buildRealPayload(conversation.request, CONVERSATION_ID, account);
+    }
+
+    @Benchmark
+    public String buildImagePayload() throws JsonProcessingException {
+        return imageService.buildImagePayload(imageRequest, CONVERSATION_ID);
+    }
+
+    /**
+     * 聊天请求的完整固定开销（与 doChatCompletion 中的步骤相同，不含 Span 和指标）
+     */
+    @Benchmark
+    public HttpPost buildChatRequest(Conversation conversation) throws JsonProcessingException {
+        HttpPost httpPost = chatService.buildHttpPost(chatService.buildSignedUrl(account), account.getCookie());
+        httpPost.setEntity(new StringEntity(chatService.buildRealPayload(conversation.request, CONVERSATION_ID, account),
+                StandardCharsets.UTF_8));
+        return httpPost;
+    }
+
+    /**
+     * 聊天请求，只有构建请求体的基准按消息数展开
+     */
+    @State(Scope.Benchmark)
+    public static class Conversation {
+
+        /**
+         * 对话消息数（含系统提示）
+         */
+        @Param({"2", "20"})
+        public int messages;
+
+        ChatCompletionRequest request;
+
+        @Setup
+        public void setup() {
+            List<ChatCompletionRequest.Message> history = new ArrayList<>();
+            ChatCompletionRequest.Message system = new ChatCompletionRequest.Message();
+            system.setRole("system");
+            system.setContent("你是一个严谨的编程助手，回答使用中文。");
+            history.add(system);
+            for (int i = 1; i < messages; i++) {
+                ChatCompletionRequest.Message message = new ChatCompletionRequest.Message();
+                message.setRole(i % 2 == 1 ? "user" : "assistant");
+                message.setContent(TURNS[(i - 1) % TURNS.length]);
+                history.add(message);
+            }
+            request = new ChatCompletionRequest();
+            request.setModel("doubao-pro-chat");
+            request.setMessages(history);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.doubao.utils.CompressionUtils;
+import org.doubao.utils.SseUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * SSE 输出压缩：与 SseStreamSink 相同，每个事件写入后 SYNC_FLUSH。
+ * 每次调用压缩一条完整的流（含创建压缩器），结果按 token 计；结束时输出每个 token 的输出字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseCompressionBenchmark {
+
+    @Param({"identity", "gzip", "deflate"})
+    public String encoding;
+
+    @Param({"1", "6"})
+    public int level;
+
+    @Param("")
+    public String recordings;
+
+    private final List<byte[]> events = new ArrayList<>();
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream(1024);
+    private long outputBytes;
+    private long tokens;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String stream = RecordedPayloads.chatStream(recordings);
+        for (String line : stream.split("\n")) {
+            if (!RecordedPayloads.isContentEvent(line)) {
+                continue;
+            }
+            String eventData = objectMapper.readTree(line.substring(6).trim()).get("event_data").asText();
+            String delta = DoubaoServiceImpl.extractDeltaText(objectMapper, eventData);
+            String json = objectMapper.writeValueAsString(SseUtils.createChunk(
+                    "chatcmpl-3f6c1d2e-8b7a-4c5d-9e0f-1a2b3c4d5e6f", "doubao-pro-chat", 0, delta, null));
+            events.add(("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RecordedPayloads.TOKENS)
+    public long compressStream() throws IOException {
+        long written = 0;
+        if ("identity".equals(encoding)) {
+            for (byte[] event : events) {
+                compressed.write(event);
+                written += compressed.size();
+                compressed.reset();
+            }
+        } else {
+            try (DeflaterOutputStream compressor = CompressionUtils.wrap(compressed, encoding, level)) {
+                for (byte[] event : events) {
+                    compressor.write(event);
+                    compressor.flush();
+                    written += compressed.size();
+                    compressed.reset();
+                }
+                compressor.finish();
+                written += compressed.size();
+                compressed.reset();
+            }
+        }
+        outputBytes += written;
+        tokens += events.size();
+        return written;
+    }
+
+    @TearDown
+    public void report() {
+        if (tokens > 0) {
+            // 子进程输出不一定是 UTF-8，这里只输出 ASCII
+            System.out.printf("%n[%s level=%d] bytes/token: %.1f%n", encoding, level, (double) outputBytes / tokens);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.doubao.utils.SseUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天流式转发热路径：逐行读取上游响应、解析事件（三层 readTree）、生成并序列化输出分片。
+ * 每次调用处理一条含 {@link RecordedPayloads#TOKENS} 个内容事件的响应，结果按 token 计；
+ * 配合 -prof gc 时 gc.alloc.rate.norm 即每个 token 的分配字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseParsingBenchmark {
+
+    private static final String REQUEST_ID = "chatcmpl-3f6c1d2e-8b7a-4c5d-9e0f-1a2b3c4d5e6f";
+    private static final String MODEL = "doubao-pro-chat";
+
+    /**
+     * 录制目录，为空时使用内置录制
+     */
+    @Param("")
+    public String recordings;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] body;
+    private List<String> dataLines;
+    private List<String> deltas;
+    private String content;
+
+    @Setup
+    public void setup() throws IOException {
+        String stream = RecordedPayloads.chatStream(recordings);
+        body = stream.getBytes(StandardCharsets.UTF_8);
+        dataLines = new ArrayList<>();
+        deltas = new ArrayList<>();
+        for (String line : stream.split("\n")) {
+            if (line.startsWith("data: ")) {
+                String data = line.substring(6).trim();
+                if (!data.isEmpty() && !"[DONE]".equals(data)) {
+                    dataLines.add(data);
+                }
+            }
+        }
+        StringBuilder contentBuilder = new StringBuilder();
+        for (String data : dataLines) {
+            String delta = decode(data);
+            if (delta != null && !delta.isEmpty()) {
+                deltas.add(delta);
+                contentBuilder.append(delta);
+            }
+        }
+        content = contentBuilder.toString();
+        if (deltas.size() != RecordedPayloads.TOKENS) {
+            throw new IllegalStateException("内容事件数不符: " + deltas.size());
+        }
+    }
+
+    /**
+     * 上游响应逐行读取（BufferedReader + InputStreamReader，与 processStreamResponse 相同）
+     */
+    @Benchmark
+    @OperationsPerInvocation(RecordedPayloads.TOKENS)
+    public void readLines(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                bh.consume(line);
+            }
+        }
+    }
+
+    /**
+     * 事件解析：外层事件 + event_data + message.content 三次 readTree
+     */
+    @Benchmark
+    @OperationsPerInvocation(RecordedPayloads.TOKENS)
+    public void decodeEvents(Blackhole bh) throws IOException {
+        for (String data : dataLines) {
+            bh.consume(decode(data));
+        }
+    }
+
+    /**
+     * 输出分片：SseUtils.createChunk + writeValueAsString
+     */
+    @Benchmark
+    @OperationsPerInvocation(RecordedPayloads.TOKENS)
+    public void encodeChunks(Blackhole bh) throws IOException {
+        for (String delta : deltas) {
+            bh.consume(objectMapper.writeValueAsString(SseUtils.createChunk(REQUEST_ID, MODEL, 0, delta, null)));
+        }
+    }
+
+    /**
+     * 读取、解析、生成分片的完整转发过程（不含写出客户端）
+     */
+    @Benchmark
+    @OperationsPerInvocation(RecordedPayloads.TOKENS)
+    public void relay(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data: ")) {
+                    continue;
+                }
+                String data = line.substring(6).trim();
+                if (data.isEmpty() || "[DONE]".equals(data)) {
+                    continue;
+                }
+                String delta = decode(data);
+                if (delta != null && !delta.isEmpty()) {
+                    bh.consume(objectMapper.writeValueAsString(SseUtils.createChunk(REQUEST_ID, MODEL, 0, delta, null)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 非流式响应的 token 估算（整段回复计算一次，按 token 折算）
+     */
+    @Benchmark
+    @OperationsPerInvocation(RecordedPayloads.TOKENS)
+    public int estimateTokens() {
+        return DoubaoServiceImpl.estimateTokens(content);
+    }
+
+    private String decode(String data) throws IOException {
+        JsonNode jsonData = objectMapper.readTree(data);
+        JsonNode eventTypeNode = jsonData.get("event_type");
+        if (eventTypeNode == null || !"2001".equals(eventTypeNode.asText())) {
+            return null;
+        }
+        JsonNode eventDataNode = jsonData.get("event_data");
+        return eventDataNode == null ? null : DoubaoServiceImpl.extractDeltaText(objectMapper, eventDataNode.asText());
+    }
+}
@@ -28,6 +28,69 @@ public class DoubaoProperties {
     // 模型映射
     private String defaultModel = "doubao-pro-chat";
 
+    // 生图结果缓存
+    private ImageCacheConfig imageCache = new ImageCacheConfig();
+
+    // 生图本地镜像
+    private ImageMirrorConfig imageMirror = new ImageMirrorConfig();
+
+    // 异步生图任务
+    private ImageJobConfig imageJob = new ImageJobConfig();
+
+    // 生图并行（n>1）
+    private ImageFanOutConfig imageFanOut = new ImageFanOutConfig();
+
+    // 聊天多选项并行（n>1）
+    private ChatFanOutConfig chatFanOut = new ChatFanOutConfig();
+
+    // 离线批量聊天
+    private BatchConfig batch = new BatchConfig();
+
+    // SSE 断线续传
+    private StreamResumeConfig streamResume = new StreamResumeConfig();
+
+    // SSE 心跳与失联检测
+    private StreamHeartbeatConfig streamHeartbeat = new StreamHeartbeatConfig();
+
+    // SSE 非阻塞输出
+    private StreamOutputConfig streamOutput = new StreamOutputConfig();
+
+    // 响应压缩
+    private CompressionConfig compression = new CompressionConfig();
+
+    // 上游响应压缩
+    private UpstreamCompressionConfig upstreamCompression = new UpstreamCompressionConfig();
+
+    // 幂等请求（Idempotency-Key）
+    private IdempotencyConfig idempotency = new IdempotencyConfig();
+
+    // 监控指标
+    private MetricsConfig metrics = new MetricsConfig();
+
+    // 响应耗时分解（Server-Timing）
+    private ServerTimingConfig serverTiming = new ServerTimingConfig();
+
+    // 链路追踪
+    private TracingConfig tracing = new TracingConfig();
+
+    // JFR 录制
+    private JfrConfig jfr = new JfrConfig();
+
+    // 日志（由 logback-spring.xml 读取）
+    private LoggingConfig logging = new LoggingConfig();
+
+    // WebSocket 多路复用
+    private WebSocketMuxConfig websocket = new WebSocketMuxConfig();
+
+    // 流式转发线程池
+    private RelayConfig relay = new RelayConfig();
+
+    // 上游 SSE 录制
+    private SseRecordConfig sseRecord = new SseRecordConfig();
+
+    // 录制回放（作为模拟上游）
+    private SseReplayConfig sseReplay = new SseReplayConfig();
+
     @Data
     public static class AccountConfig {
         private String cookie;
@@ -37,4 +100,161 @@ public class DoubaoProperties {
         private String webId;
         private String msToken;
     }
-}
\ No newline at end of file
+
+    @Data
+    public static class ImageCacheConfig {
+        private Boolean enabled = true;
+        private Integer ttl = 3600; // 缓存有效期（秒）
+        private Integer maxSize = 1000; // 最大缓存条目数
+    }
+
+    @Data
+    public static class ImageMirrorConfig {
+        private Boolean enabled = false;
+        private String storageDir = System.getProperty("user.home") + "/doubao-images"; // 本地存储目录
+        private String publicBaseUrl = ""; // 对外访问前缀（为空时返回相对路径）
+        private Long maxSizeMb = 2048L; // 镜像目录容量上限（MB），超出按最久未访问淘汰
+        private Long maxFileSizeMb = 20L; // 单张图片大小上限（MB）
+        private Integer downloadThreads = 4; // 后台下载线程数
+    }
+
+    @Data
+    public static class ImageJobConfig {
+        private Integer workers = 4; // 工作线程数
+        private Integer queueCapacity = 1000; // 等待队列容量
+        private Integer maxAttempts = 3; // 最大执行次数（含首次）
+        private Integer retryDelay = 5; // 重新排队延迟（秒），按执行次数递增
+        private Integer resultTtl = 3600; // 结束任务保留时间（秒）
+    }
+
+    @Data
+    public static class ImageFanOutConfig {
+        private Integer maxN = 8; // 单次请求最大批次数
+        private Integer maxParallel = 4; // 单次请求最大并发数
+    }
+
+    @Data
+    public static class ChatFanOutConfig {
+        private Integer maxN = 4; // 单次请求最大选项数
+        private Integer maxParallel = 4; // 单次请求最大并发数（同时不超过健康账号数）
+    }
+
+    @Data
+    public static class RelayConfig {
+        private Integer poolSize = 200; // 线程数上限
+        private Integer queueCapacity = 1000; // 等待队列容量
+    }
+
+    @Data
+    public static class BatchConfig {
+        private String storageDir = System.getProperty("user.home") + "/doubao-batches"; // 批量任务存储目录
+        private Integer perAccountConcurrency = 2; // 每个账号的并发请求数
+    }
+
+    @Data
+    public static class StreamResumeConfig {
+        private Boolean enabled = true; // 是否开启断线续传
+        private Integer bufferSize = 512; // 单个流的回放缓冲事件数
+        private Integer gracePeriod = 30; // 断开或结束后的保留时间（秒），超时未重连则中断上游生成
+        private Integer maxTotalMb = 64; // 全部流回放缓冲的内存上限（MB）
+    }
+
+    @Data
+    public static class StreamHeartbeatConfig {
+        private Integer interval = 15; // 心跳间隔（秒），空闲超过该时间发送注释行，0 表示关闭
+        private Integer stallTimeout = 30; // 输出持续不可写超过该时间（秒）视为客户端失联
+    }
+
+    @Data
+    public static class StreamOutputConfig {
+        private Integer sendBufferSizeKb = 256; // 单个客户端待发送缓冲上限（KB），合并分片后仍超出时断开该客户端
+    }
+
+    @Data
+    public static class CompressionConfig {
+        private Boolean enabled = true; // 是否按 Accept-Encoding 压缩响应（gzip/deflate）
+        private Integer level = 6; // 压缩级别 1-9，越高压缩率越好、CPU 开销越大
+        private Integer minSize = 1024; // JSON 响应小于该字节数时不压缩
+        private String mimeTypes = "application/json,application/x-ndjson"; // 压缩的响应类型（逗号分隔）
+        private Boolean sse = true; // 是否压缩 SSE 流（每批写出后同步刷新）
+    }
+
+    @Data
+    public static class UpstreamCompressionConfig {
+        private Boolean enabled = true; // 是否向上游协商压缩传输
+        private String acceptEncoding = "gzip, deflate"; // 发送给上游的 Accept-Encoding（br 解码会延迟 SSE 帧）
+    }
+
+    @Data
+    public static class IdempotencyConfig {
+        private Boolean enabled = true; // 是否支持 Idempotency-Key 请求头（流式请求还需开启 stream-resume）
+        private Integer ttl = 600; // 结果保留时间（秒），期间相同键的重试直接返回结果
+        private Integer maxTotalMb = 32; // 保留结果的内存上限（MB），超出按完成顺序淘汰
+        private Integer waitTimeout = 180; // 重试等待进行中执行的超时（秒）
+    }
+
+    @Data
+    public static class MetricsConfig {
+        private Integer maxModelTags = 20; // 模型标签数量上限，超出的模型统一记为 other
+    }
+
+    @Data
+    public static class ServerTimingConfig {
+        private Boolean enabled = true; // 非流式响应带 Server-Timing 头，流式在 [DONE] 前推送同样的耗时分解
+    }
+
+    @Data
+    public static class TracingConfig {
+        private Integer memoryBufferSize = 2000; // 内存中保留的最近 Span 数量（/traces 查询），0 表示不保留
+        private Boolean loggingExporter = false; // 是否将 Span 输出到日志
+    }
+
+    @Data
+    public static class JfrConfig {
+        private String dumpDir = System.getProperty("java.io.tmpdir") + "/doubao-jfr"; // 录制导出目录
+        private Integer maxAge = 600; // 录制保留时长（秒），超出的旧数据丢弃
+        private Integer maxSizeMb = 256; // 录制数据上限（MB）
+        private Integer maxDumps = 5; // 导出目录保留的文件数，超出时删除最旧的
+    }
+
+    @Data
+    public static class LoggingConfig {
+        private Integer asyncQueueSize = 8192; // 异步日志队列长度
+        private SampleRate sampleRate = new SampleRate();
+
+        @Data
+        public static class SampleRate {
+            private Double request = 1.0; // 请求生命周期日志的保留比例（0~1）
+            private Double session = 1.0; // 会话绑定日志的保留比例（0~1）
+        }
+    }
+
+    @Data
+    public static class WebSocketMuxConfig {
+        private Boolean enabled = true; // 是否开启 WebSocket 端点
+        private String path = "/api/doubao/v1/ws"; // 端点路径
+        private String allowedOrigins = ""; // 允许的跨域来源（逗号分隔），为空时只允许同源和不带 Origin 的非浏览器客户端
+        private Integer maxInFlight = 32; // 单个连接同时进行的请求数上限
+        private Integer sendTimeLimit = 10; // 单次发送超时（秒），超时关闭连接
+        private Integer sendBufferSizeKb = 1024; // 待发送缓冲上限（KB），客户端读取过慢超出时中断正在写入的请求
+        private Integer maxMessageSizeKb = 1024; // 客户端单帧大小上限（KB）
+    }
+
+    @Data
+    public static class SseRecordConfig {
+        private Boolean enabled = false; // 是否录制上游 SSE 响应（修改后需重启）
+        private Double sampleRate = 0.01; // 录制比例（0~1）
+        private String dir = System.getProperty("java.io.tmpdir") + "/doubao-sse"; // 录制目录
+        private Integer maxFileSizeMb = 64; // 单个文件上限（MB），超出后切换新文件
+        private Integer maxFiles = 10; // 保留的文件数，超出时删除最旧的
+        private Integer maxStreamKb = 2048; // 单条流上限（KB），超出的流不录制
+        private Integer writeQueueSize = 256; // 待写入的录制条数上限，写文件跟不上时丢弃新的录制
+    }
+
+    @Data
+    public static class SseReplayConfig {
+        private Boolean enabled = false; // 是否开启回放端点（POST /samantha/chat/completion）
+        private String dir = System.getProperty("java.io.tmpdir") + "/doubao-sse"; // 录制目录，启动时加载
+        private Double speed = 1.0; // 回放速度倍数，1 为原始速度，0 表示不等待
+    }
+}
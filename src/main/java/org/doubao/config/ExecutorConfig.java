@@ -0,0 +1,46 @@
+package org.doubao.config;
+
+import io.opentelemetry.context.Context;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 流式转发/并行上游请求线程池（替代按请求创建的单线程池）
+     */
+    @Bean
+    public ThreadPoolTaskExecutor relayExecutor(DoubaoProperties doubaoProperties) {
+        DoubaoProperties.RelayConfig relay = doubaoProperties.getRelay();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // 转发任务会长时间阻塞在上游读取上，核心线程数与上限一致，空闲时回收
+        executor.setCorePoolSize(relay.getPoolSize());
+        executor.setMaxPoolSize(relay.getPoolSize());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.setQueueCapacity(relay.getQueueCapacity());
+        executor.setThreadNamePrefix("doubao-relay-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        // 传递链路追踪上下文，转发线程中的 Span 挂在提交请求的 Span 下
+        executor.setTaskDecorator(task -> Context.current().wrap(task));
+        return executor;
+    }
+
+    /**
+     * 流相关的共享调度器：SSE 心跳、失联检测、续传缓冲清理等周期任务共用，任务本身只做检测不做阻塞写入
+     */
+    @Bean
+    public ThreadPoolTaskScheduler streamScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("doubao-stream-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
@@ -1,9 +1,16 @@
 package org.doubao.config;
 
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.doubao.http.UpstreamCompressionExec;
+import org.doubao.http.UpstreamRecordingExec;
+import org.doubao.http.UpstreamTracingExec;
+import org.doubao.http.UpstreamTrafficCounter;
+import org.doubao.recording.SseRecorder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,21 +19,45 @@ import java.util.concurrent.TimeUnit;
 @Configuration
 public class HttpClientConfig {
 
+    /**
+     * 上游连接池，单独声明以便管理接口读取连接池状态
+     */
     @Bean
-    public CloseableHttpClient httpClient() {
+    public PoolingHttpClientConnectionManager connectionManager() {
         PoolingHttpClientConnectionManager connectionManager =
             new PoolingHttpClientConnectionManager();
         connectionManager.setMaxTotal(200);
         connectionManager.setDefaultMaxPerRoute(50);
+        return connectionManager;
+    }
 
+    @Bean
+    public CloseableHttpClient httpClient(DoubaoProperties doubaoProperties,
+                                          UpstreamTrafficCounter upstreamTrafficCounter,
+                                          SseRecorder sseRecorder,
+                                          PoolingHttpClientConnectionManager connectionManager) {
         RequestConfig requestConfig = RequestConfig.custom()
             .setConnectionRequestTimeout(180, TimeUnit.SECONDS)
             .setResponseTimeout(180, TimeUnit.SECONDS)
             .build();
 
-        return HttpClients.custom()
+        DoubaoProperties.UpstreamCompressionConfig compression = doubaoProperties.getUpstreamCompression();
+        String acceptEncoding = Boolean.TRUE.equals(compression.getEnabled()) ? compression.getAcceptEncoding() : null;
+
+        // 使用自定义的压缩处理替代内置实现，以便统计解压前后的字节数
+        HttpClientBuilder builder = HttpClients.custom()
             .setConnectionManager(connectionManager)
             .setDefaultRequestConfig(requestConfig)
-            .build();
+            .disableContentCompression()
+            .addExecInterceptorFirst("upstream-compression",
+                new UpstreamCompressionExec(acceptEncoding, upstreamTrafficCounter))
+            // 链路追踪：记录连接就绪时刻（连接池等待 + 建连）
+            .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(), "upstream-tracing",
+                new UpstreamTracingExec(connectionManager));
+        if (sseRecorder.isEnabled()) {
+            // 录制在压缩处理之外，记录解压后的内容
+            builder.addExecInterceptorFirst("upstream-recording", new UpstreamRecordingExec(sseRecorder));
+        }
+        return builder.build();
     }
 }
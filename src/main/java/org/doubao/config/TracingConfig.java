@@ -0,0 +1,30 @@
+package org.doubao.config;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.doubao.tracing.InMemorySpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 链路追踪导出：每个 SpanExporter Bean 都会注册到 OpenTelemetry SDK，
+ * 内存导出始终可用；OTLP 导出配置 management.otlp.tracing.endpoint 后由 Spring Boot 自动启用
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public InMemorySpanExporter inMemorySpanExporter(DoubaoProperties doubaoProperties) {
+        return new InMemorySpanExporter(doubaoProperties.getTracing().getMemoryBufferSize());
+    }
+
+    /**
+     * 输出到日志（doubao.tracing.logging-exporter=true）
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "doubao.tracing", name = "logging-exporter", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
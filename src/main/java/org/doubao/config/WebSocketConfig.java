@@ -0,0 +1,92 @@
+package org.doubao.config;
+
+import org.doubao.controller.DoubaoWebSocketHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * WebSocket 多路复用端点：握手时校验 API Key，通过后由 DoubaoWebSocketHandler 处理请求帧
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(prefix = "doubao.websocket", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final DoubaoProperties doubaoProperties;
+    private final DoubaoWebSocketHandler webSocketHandler;
+
+    public WebSocketConfig(DoubaoProperties doubaoProperties, DoubaoWebSocketHandler webSocketHandler) {
+        this.doubaoProperties = doubaoProperties;
+        this.webSocketHandler = webSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        DoubaoProperties.WebSocketMuxConfig config = doubaoProperties.getWebsocket();
+        // 未配置跨域来源时只允许同源：API Key 可通过查询参数传递，不对任意站点的页面开放
+        String[] allowedOrigins = Arrays.stream(config.getAllowedOrigins().split(","))
+                .map(String::trim)
+                .filter(origin -> !origin.isEmpty())
+                .toArray(String[]::new);
+        registry.addHandler(webSocketHandler, config.getPath())
+                .addInterceptors(new ApiKeyHandshakeInterceptor())
+                .setAllowedOrigins(allowedOrigins);
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        int maxMessageSize = doubaoProperties.getWebsocket().getMaxMessageSizeKb() * 1024;
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxMessageSize);
+        return container;
+    }
+
+    /**
+     * 握手鉴权：支持 Authorization: Bearer、X-API-Key 请求头和 api_key 查询参数（浏览器无法自定义握手请求头）
+     */
+    private class ApiKeyHandshakeInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            String apiKey = extractApiKey(request);
+            if (!doubaoProperties.getApiKey().equals(apiKey)) {
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            attributes.put(DoubaoWebSocketHandler.API_KEY_ATTRIBUTE, apiKey);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+
+        private String extractApiKey(ServerHttpRequest request) {
+            String authHeader = request.getHeaders().getFirst("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                return authHeader.substring(7);
+            }
+            String apiKeyFromHeader = request.getHeaders().getFirst("X-API-Key");
+            if (apiKeyFromHeader != null && !apiKeyFromHeader.trim().isEmpty()) {
+                return apiKeyFromHeader.trim();
+            }
+            return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("api_key");
+        }
+    }
+}
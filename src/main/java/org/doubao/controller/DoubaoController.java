@@ -1,15 +1,51 @@
 package org.doubao.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import io.opentelemetry.context.Scope;
 import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
 import org.doubao.domain.dto.ImageGenerationRequest;
+import org.doubao.domain.dto.ImageJobRequest;
 import org.doubao.domain.model.R;
 import org.doubao.domain.dto.ChatCompletionRequest;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.domain.vo.AccountState;
+import org.doubao.domain.vo.ChatBatch;
+import org.doubao.domain.vo.ImageJob;
+import org.doubao.domain.vo.ImageJobStats;
+import org.doubao.domain.vo.JfrRecordingStatus;
+import org.doubao.domain.vo.RuntimeStats;
+import org.doubao.domain.vo.TraceSpan;
+import org.doubao.domain.vo.UpstreamTrafficStats;
+import org.doubao.logging.LogCategory;
+import org.doubao.metrics.ServerTiming;
+import org.doubao.service.IAdminService;
+import org.doubao.service.IChatBatchService;
 import org.doubao.service.IDoubaoImageService;
 import org.doubao.service.IDoubaoService;
+import org.doubao.service.IIdempotencyService;
+import org.doubao.service.IImageJobService;
+import org.doubao.service.IJfrService;
+import org.doubao.service.IStreamResumeService;
+import org.doubao.service.ITraceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 @Slf4j
 @RestController
@@ -22,18 +58,61 @@ public class DoubaoController {
     @Autowired
     private IDoubaoImageService doubaoImageService;
 
+    @Autowired
+    private IImageJobService imageJobService;
+
+    @Autowired
+    private IChatBatchService chatBatchService;
+
+    @Autowired
+    private IStreamResumeService streamResumeService;
+
+    @Autowired
+    private IIdempotencyService idempotencyService;
+
+    @Autowired
+    private ITraceService traceService;
+
+    @Autowired
+    private IJfrService jfrService;
+
+    @Autowired
+    private IAdminService adminService;
+
+    @Autowired
+    private DoubaoProperties doubaoProperties;
+
+    @Autowired
+    @Qualifier("relayExecutor")
+    private Executor relayExecutor;
+
     @PostMapping("/chat/completions")
     public Object chatCompletions(@Validated @RequestBody ChatCompletionRequest request,
-                                  HttpServletRequest httpRequest) {
+                                  HttpServletRequest httpRequest,
+                                  HttpServletResponse httpResponse) {
         String apiKey = extractApiKey(httpRequest);
-        log.info("收到聊天请求，API Key: {}, 流式: {}",
+        log.info(LogCategory.REQUEST, "收到聊天请求，API Key: {}, 流式: {}",
             apiKey != null ? "***" + apiKey.substring(Math.max(0, apiKey.length() - 4)) : "null",
             request.getStream());
 
         if (Boolean.TRUE.equals(request.getStream())) {
-            return doubaoService.chatCompletionsStream(request, apiKey);
+            // 断线重连（Last-Event-ID）或相同 Idempotency-Key 的重试：仍在保留期内的流直接续传，无需重新生成
+            // 流式响应由服务异步写出，不再返回响应体
+            if (!streamResumeService.resume(httpRequest.getHeader("Last-Event-ID"), apiKey, request,
+                    httpRequest, httpResponse, 180000L)) {
+                try {
+                    doubaoService.chatCompletionsStream(request, apiKey, httpRequest, httpResponse);
+                } finally {
+                    streamResumeService.release(httpRequest);
+                }
+            }
+            return null;
         } else {
-            return R.ok(doubaoService.chatCompletions(request, apiKey));
+            // 在转发线程池中等待上游，释放 Tomcat 请求线程；
+            // 相同 Idempotency-Key 的重试加入进行中的执行或直接返回已保存的结果
+            String idempotencyKey = httpRequest.getHeader("Idempotency-Key");
+            return idempotencyService.execute("chat", idempotencyKey, apiKey, request,
+                    () -> supplyTimed(httpResponse, () -> doubaoService.chatCompletions(request, apiKey)));
         }
     }
 
@@ -44,20 +123,128 @@ public class DoubaoController {
      */
     @PostMapping("/generations")
     public Object generateImages(@Validated @RequestBody ImageGenerationRequest request,
-                                 HttpServletRequest httpRequest) {
+                                 HttpServletRequest httpRequest,
+                                 HttpServletResponse httpResponse) {
         String apiKey = extractApiKey(httpRequest);
-        log.info("收到生图请求，API Key: {}, 模型: {}, 流式: {}",
+        log.info(LogCategory.REQUEST, "收到生图请求，API Key: {}, 模型: {}, 流式: {}",
                 apiKey != null ? "***" + apiKey.substring(Math.max(0, apiKey.length() - 4)) : "null",
                 request.getModel(), request.getStream());
 
         // 流式生图（返回SSE流）
         if (Boolean.TRUE.equals(request.getStream())) {
-            return doubaoImageService.generateImageStream(request, apiKey);
+            if (!streamResumeService.resume(httpRequest.getHeader("Last-Event-ID"), apiKey, request,
+                    httpRequest, httpResponse, 300000L)) {
+                try {
+                    doubaoImageService.generateImageStream(request, apiKey, httpRequest, httpResponse);
+                } finally {
+                    streamResumeService.release(httpRequest);
+                }
+            }
+            return null;
         }
-        // 非流式生图（返回JSON结果）
+        // 非流式生图（返回JSON结果，在转发线程池中等待上游）
         else {
-            return R.ok(doubaoImageService.generateImage(request, apiKey));
+            String idempotencyKey = httpRequest.getHeader("Idempotency-Key");
+            return idempotencyService.execute("image", idempotencyKey, apiKey, request,
+                    () -> supplyTimed(httpResponse, () -> doubaoImageService.generateImage(request, apiKey)));
+        }
+    }
+
+    /**
+     * 提交异步生图任务：立即返回任务ID，通过轮询或 webhook_url 回调获取结果
+     */
+    @PostMapping("/generations/jobs")
+    public R<ImageJob> submitImageJob(@Validated @RequestBody ImageJobRequest request,
+                                      HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        log.info("收到异步生图任务，API Key: {}, 模型: {}, 优先级: {}",
+                apiKey != null ? "***" + apiKey.substring(Math.max(0, apiKey.length() - 4)) : "null",
+                request.getModel(), request.getPriority());
+        return R.ok(imageJobService.submit(request, apiKey));
+    }
+
+    /**
+     * 查询异步生图任务队列状态
+     */
+    @GetMapping("/generations/jobs/stats")
+    public R<ImageJobStats> imageJobStats(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(imageJobService.getStats(apiKey));
+    }
+
+    /**
+     * 查询异步生图任务
+     */
+    @GetMapping("/generations/jobs/{jobId}")
+    public R<ImageJob> getImageJob(@PathVariable String jobId, HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        ImageJob job = imageJobService.getJob(jobId, apiKey);
+        if (job == null) {
+            return R.fail(HttpStatus.NOT_FOUND, "生图任务不存在或已过期: " + jobId);
+        }
+        return R.ok(job);
+    }
+
+    /**
+     * 创建离线批量聊天任务（multipart 上传 JSONL 文件）
+     */
+    @PostMapping(value = "/batches", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public R<ChatBatch> createBatchFromFile(@RequestParam("file") MultipartFile file,
+                                           HttpServletRequest httpRequest) throws IOException {
+        String apiKey = extractApiKey(httpRequest);
+        log.info("收到批量聊天任务，文件: {}, 大小: {}", file.getOriginalFilename(), file.getSize());
+        return R.ok(chatBatchService.create(file.getInputStream(), apiKey));
+    }
+
+    /**
+     * 创建离线批量聊天任务（请求体直接为 JSONL）
+     */
+    @PostMapping("/batches")
+    public R<ChatBatch> createBatch(HttpServletRequest httpRequest) throws IOException {
+        String apiKey = extractApiKey(httpRequest);
+        log.info("收到批量聊天任务，Content-Length: {}", httpRequest.getContentLengthLong());
+        return R.ok(chatBatchService.create(httpRequest.getInputStream(), apiKey));
+    }
+
+    /**
+     * 查询批量任务进度
+     */
+    @GetMapping("/batches/{batchId}")
+    public R<ChatBatch> getBatch(@PathVariable String batchId, HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        ChatBatch batch = chatBatchService.get(batchId, apiKey);
+        if (batch == null) {
+            return R.fail(HttpStatus.NOT_FOUND, "批量任务不存在: " + batchId);
         }
+        return R.ok(batch);
+    }
+
+    /**
+     * 取消批量任务
+     */
+    @PostMapping("/batches/{batchId}/cancel")
+    public R<ChatBatch> cancelBatch(@PathVariable String batchId, HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        ChatBatch batch = chatBatchService.cancel(batchId, apiKey);
+        if (batch == null) {
+            return R.fail(HttpStatus.NOT_FOUND, "批量任务不存在: " + batchId);
+        }
+        return R.ok(batch);
+    }
+
+    /**
+     * 下载批量任务结果（JSONL，执行中也可下载已完成部分）
+     */
+    @GetMapping("/batches/{batchId}/output")
+    public ResponseEntity<Resource> getBatchOutput(@PathVariable String batchId, HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        Path outputFile = chatBatchService.getOutputFile(batchId, apiKey);
+        if (outputFile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(new FileSystemResource(outputFile));
     }
 
     @GetMapping("/models")
@@ -68,9 +255,115 @@ public class DoubaoController {
         return R.ok(doubaoService.getModels(apiKey));
     }
 
+    /**
+     * 上游流量统计：解压前后的字节数及压缩比
+     */
+    @GetMapping("/upstream/stats")
+    public R<UpstreamTrafficStats> upstreamStats(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(doubaoService.getUpstreamStats(apiKey));
+    }
+
+    /**
+     * 最近的链路追踪 Span（内存导出），可按 traceId 过滤
+     */
+    @GetMapping("/traces")
+    public R<List<TraceSpan>> traces(@RequestParam(value = "traceId", required = false) String traceId,
+                                     @RequestParam(value = "limit", defaultValue = "200") int limit,
+                                     HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(traceService.getRecentSpans(traceId, limit, apiKey));
+    }
+
+    /**
+     * 开始 JFR 录制（settings: default / profile）
+     */
+    @PostMapping("/admin/jfr/start")
+    public R<JfrRecordingStatus> startJfr(@RequestParam(value = "settings", defaultValue = "default") String settings,
+                                          HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(jfrService.start(settings, apiKey));
+    }
+
+    @GetMapping("/admin/jfr")
+    public R<JfrRecordingStatus> jfrStatus(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(jfrService.getStatus(apiKey));
+    }
+
+    /**
+     * 导出并下载当前录制（录制继续进行），可用 jfr print 或 JDK Mission Control 查看
+     */
+    @GetMapping("/admin/jfr/dump")
+    public ResponseEntity<Resource> dumpJfr(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        Path dumpFile = jfrService.dump(apiKey);
+        if (dumpFile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + dumpFile.getFileName() + "\"")
+                .body(new FileSystemResource(dumpFile));
+    }
+
+    @PostMapping("/admin/jfr/stop")
+    public R<JfrRecordingStatus> stopJfr(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(jfrService.stop(apiKey));
+    }
+
+    /**
+     * 各账号实时状态：健康、进行中请求、绑定会话、最近耗时分位数
+     */
+    @GetMapping("/admin/accounts")
+    public R<List<AccountState>> accounts(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(adminService.getAccounts(apiKey));
+    }
+
+    /**
+     * 连接池、线程池队列、缓存命中率和会话数
+     */
+    @GetMapping("/admin/runtime")
+    public R<RuntimeStats> runtime(HttpServletRequest httpRequest) {
+        String apiKey = extractApiKey(httpRequest);
+        return R.ok(adminService.getRuntime(apiKey));
+    }
+
     @GetMapping("/health")
     public R<String> health() {
-        return R.ok("豆包AI服务运行正常");
+        return R.ok(doubaoService.healthCheck());
+    }
+
+    /**
+     * 在转发线程池中执行，并在响应上附带 Server-Timing 头（失败时同样附带）
+     */
+    private <T> CompletableFuture<R<T>> supplyTimed(HttpServletResponse httpResponse, Supplier<T> action) {
+        if (!Boolean.TRUE.equals(doubaoProperties.getServerTiming().getEnabled())) {
+            return CompletableFuture.supplyAsync(() -> R.ok(action.get()), relayExecutor);
+        }
+        ServerTiming timing = new ServerTiming(System.nanoTime());
+        return CompletableFuture.supplyAsync(() -> {
+            try (Scope ignored = ServerTiming.begin(timing)) {
+                return R.ok(action.get());
+            } finally {
+                setServerTiming(httpResponse, timing);
+            }
+        }, relayExecutor);
+    }
+
+    /**
+     * 在异步结果写出前设置；请求已超时或客户端已断开时响应可能已提交或回收，忽略即可
+     */
+    private void setServerTiming(HttpServletResponse httpResponse, ServerTiming timing) {
+        try {
+            if (!httpResponse.isCommitted()) {
+                httpResponse.setHeader(ServerTiming.HEADER, timing.toHeader());
+            }
+        } catch (IllegalStateException e) {
+            log.debug("响应已结束，跳过 Server-Timing");
+        }
     }
 
     private String extractApiKey(HttpServletRequest request) {
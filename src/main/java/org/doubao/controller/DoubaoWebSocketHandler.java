@@ -0,0 +1,186 @@
+package org.doubao.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.dto.ChatCompletionRequest;
+import org.doubao.domain.dto.ImageGenerationRequest;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.service.IDoubaoImageService;
+import org.doubao.service.IDoubaoService;
+import org.doubao.stream.WebSocketStreamSink;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket 多路复用：一个连接上并发执行多个聊天/生图流式请求，复用 SSE 接口的转发逻辑
+ * <p>
+ * 请求帧：{"id": 客户端请求ID, "type": "chat" | "image" | "cancel", "payload": 与 HTTP 接口相同的请求体}
+ * <p>
+ * 响应帧：{"id": 请求ID, "type": "data" | "error" | "done" | "cancelled", "data": 与 SSE 相同的事件内容}
+ * <p>
+ * 流控：单连接同时进行的请求数受 max-in-flight 限制；客户端读取过慢使发送缓冲超出上限时只中断正在写入数据的请求，
+ * 单次发送超时（客户端完全停止读取）时关闭连接并中断全部上游请求
+ */
+@Slf4j
+@Component
+public class DoubaoWebSocketHandler extends TextWebSocketHandler {
+
+    public static final String API_KEY_ATTRIBUTE = "doubao.apiKey";
+
+    @Autowired
+    private IDoubaoService doubaoService;
+
+    @Autowired
+    private IDoubaoImageService doubaoImageService;
+
+    @Autowired
+    private DoubaoProperties doubaoProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // WebSocket 会话ID -> 连接上下文
+    private final Map<String, MuxConnection> connections = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        DoubaoProperties.WebSocketMuxConfig config = doubaoProperties.getWebsocket();
+        // 多个请求并发写同一连接，需要线程安全的装饰器；数据帧按 send-buffer-size 逐请求限流，
+        // 装饰器上限放宽一倍给错误、结束等控制帧留出余量，超出时才终止整个连接
+        long sendBufferBytes = config.getSendBufferSizeKb() * 1024L;
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(session,
+                config.getSendTimeLimit() * 1000, (int) Math.min(Integer.MAX_VALUE, sendBufferBytes * 2));
+        connections.put(session.getId(), new MuxConnection(concurrentSession,
+                (String) session.getAttributes().get(API_KEY_ATTRIBUTE), sendBufferBytes));
+        log.info("WebSocket连接建立[会话: {}]，当前连接数: {}", session.getId(), connections.size());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        MuxConnection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+
+        JsonNode frame;
+        try {
+            frame = objectMapper.readTree(message.getPayload());
+        } catch (JsonProcessingException e) {
+            sendError(connection, null, HttpStatus.BAD_REQUEST, "无效的请求帧: " + e.getOriginalMessage());
+            return;
+        }
+        String id = frame.path("id").asText("");
+        String type = frame.path("type").asText("");
+        if (id.isEmpty()) {
+            sendError(connection, null, HttpStatus.BAD_REQUEST, "请求帧缺少id");
+            return;
+        }
+
+        switch (type) {
+            case "chat" -> startRequest(connection, id, sink -> doubaoService.chatCompletionsStream(
+                    convertPayload(frame, ChatCompletionRequest.class), connection.apiKey, sink));
+            case "image" -> startRequest(connection, id, sink -> doubaoImageService.generateImageStream(
+                    convertPayload(frame, ImageGenerationRequest.class), connection.apiKey, sink));
+            case "cancel" -> {
+                WebSocketStreamSink sink = connection.requests.get(id);
+                if (sink != null) {
+                    log.info("取消WebSocket请求[会话: {}, 请求: {}]", session.getId(), id);
+                    sink.cancel();
+                }
+            }
+            default -> sendError(connection, id, HttpStatus.BAD_REQUEST, "不支持的请求类型: " + type);
+        }
+    }
+
+    /**
+     * 启动一个流式请求：受单连接并发上限约束，请求结束后自动移出
+     */
+    private void startRequest(MuxConnection connection, String id, Consumer<WebSocketStreamSink> starter) {
+        if (connection.requests.size() >= doubaoProperties.getWebsocket().getMaxInFlight()) {
+            sendError(connection, id, HttpStatus.TOO_MANY_REQUESTS, "进行中的请求数已达上限");
+            return;
+        }
+        WebSocketStreamSink sink = new WebSocketStreamSink(connection.session, id, objectMapper,
+                connection.sendBufferBytes);
+        if (connection.requests.putIfAbsent(id, sink) != null) {
+            sendError(connection, id, HttpStatus.BAD_REQUEST, "请求ID重复: " + id);
+            return;
+        }
+        sink.onClose(() -> connection.requests.remove(id, sink));
+
+        try {
+            starter.accept(sink);
+        } catch (Exception e) {
+            log.warn("WebSocket请求启动失败[请求: {}]: {}", id, e.getMessage());
+            sendError(connection, id, HttpStatus.BAD_REQUEST, e.getMessage());
+            sink.complete();
+        }
+    }
+
+    private <T> T convertPayload(JsonNode frame, Class<T> type) {
+        try {
+            T request = objectMapper.treeToValue(frame.path("payload"), type);
+            if (request == null) {
+                throw new IllegalArgumentException("请求帧缺少payload");
+            }
+            return request;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("无效的payload: " + e.getMessage());
+        }
+    }
+
+    private void sendError(MuxConnection connection, String id, int code, String message) {
+        ObjectNode frame = objectMapper.createObjectNode();
+        frame.put("id", id);
+        frame.put("type", "error");
+        frame.putObject("data").put("code", code).put("message", message);
+        try {
+            connection.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(frame)));
+        } catch (IOException e) {
+            log.debug("发送WebSocket错误帧失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        MuxConnection connection = connections.remove(session.getId());
+        if (connection == null) {
+            return;
+        }
+        // 连接断开：中断该连接上所有进行中的请求
+        int inFlight = connection.requests.size();
+        connection.requests.values().forEach(WebSocketStreamSink::cancel);
+        log.info("WebSocket连接关闭[会话: {}, 状态: {}]，中断请求数: {}", session.getId(), status, inFlight);
+    }
+
+    /**
+     * 单个 WebSocket 连接的上下文
+     */
+    private static class MuxConnection {
+        private final WebSocketSession session;
+        private final String apiKey;
+        private final long sendBufferBytes;
+        // 请求ID -> 输出通道
+        private final Map<String, WebSocketStreamSink> requests = new ConcurrentHashMap<>();
+
+        MuxConnection(WebSocketSession session, String apiKey, long sendBufferBytes) {
+            this.session = session;
+            this.apiKey = apiKey;
+            this.sendBufferBytes = sendBufferBytes;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.doubao.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.doubao.domain.vo.MirroredImage;
+import org.doubao.service.IImageMirrorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 本地镜像图片访问：支持 ETag、Range 请求，优先使用 Tomcat sendfile 零拷贝发送
+ */
+@RestController
+@RequestMapping("/api/doubao/v1/images")
+public class ImageMirrorController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private IImageMirrorService imageMirrorService;
+
+    @RequestMapping(value = "/{key}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveImage(@PathVariable String key,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        MirroredImage image = imageMirrorService.resolve(key);
+        if (image == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        // 尚未下载完成或已淘汰：回源
+        if (image.getFile() == null) {
+            response.sendRedirect(image.getSourceUrl());
+            return;
+        }
+
+        String etag = "\"" + image.getContentHash() + "\"";
+        long size = image.getSize();
+        response.setHeader("ETag", etag);
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("Cache-Control", "public, max-age=31536000, immutable");
+
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (range != null && (ifRange == null || etag.equals(ifRange))) {
+            long[] parsed = parseRange(range, size);
+            if (parsed == null) {
+                response.setHeader("Content-Range", "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(contentType(image.getFormat()));
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 交给 Tomcat 在请求结束后通过 sendfile 发送
+            request.setAttribute(SENDFILE_FILENAME, image.getFile().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(image.getFile(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * 解析单段 Range 头；返回 {start, end}，多段或无法识别时返回空数组（按完整内容响应），越界返回 null
+     */
+    private long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return new long[0];
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String startStr = spec.substring(0, dash).trim();
+            String endStr = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (startStr.isEmpty()) {
+                // 后缀范围：最后 N 个字节
+                long suffix = Long.parseLong(endStr);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(startStr);
+                end = endStr.isEmpty() ? size - 1 : Math.min(Long.parseLong(endStr), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private String contentType(String format) {
+        if (format == null) {
+            return "application/octet-stream";
+        }
+        return switch (format) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "webp" -> "image/webp";
+            case "avif" -> "image/avif";
+            default -> "image/png";
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package org.doubao.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.doubao.recording.SseRecording;
+import org.doubao.recording.SseReplayer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * 录制回放端点：模拟上游的 /samantha/chat/completion，按请求类型（聊天 / 生图）回放录制的 SSE 流
+ */
+@RestController
+@ConditionalOnProperty(prefix = "doubao.sse-replay", name = "enabled", havingValue = "true")
+public class SseReplayController {
+
+    @Autowired
+    private SseReplayer sseReplayer;
+
+    @PostMapping("/samantha/chat/completion")
+    public void completion(@RequestBody String body, HttpServletResponse response) throws IOException {
+        SseRecording recording = sseReplayer.next(SseRecording.kindOf(body));
+        if (recording == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "没有可回放的录制");
+            return;
+        }
+        sseReplayer.awaitFirstByte(recording);
+        response.setStatus(recording.getStatus() > 0 ? recording.getStatus() : HttpServletResponse.SC_OK);
+        response.setContentType("text/event-stream;charset=UTF-8");
+        sseReplayer.replay(recording, response.getOutputStream());
+    }
+}
@@ -1,19 +1,129 @@
 package org.doubao.domain;
 
-import lombok.Data;
+import org.doubao.metrics.LatencyWindow;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * 账号状态模型：管理健康状态、负载、失效时间
+ * 账号状态模型：管理健康状态、负载、失效时间。
+ * 均为原子变量，请求路径上只做无锁更新，管理接口直接读取计数而不扫描会话表
  */
-@Data
 public class AccountStatus {
 
-    private int accountIndex; // 账号在列表中的索引
+    private static final int LATENCY_WINDOW_SIZE = 256;
+
+    private final int accountIndex; // 账号在列表中的索引
+
+    private final String accountKey; // 账号唯一标识
+
+    private final AtomicBoolean healthy = new AtomicBoolean(true); // 是否健康
+
+    private final AtomicInteger activeConnections = new AtomicInteger(); // 活跃连接数
+
+    private final AtomicInteger boundSessions = new AtomicInteger(); // 绑定的会话数
+
+    private volatile long lastFailTime; // 最后失败时间戳（毫秒）
+
+    private volatile String lastFailReason; // 最后失败原因
+
+    private final LongAdder requests = new LongAdder(); // 已完成的请求数
+
+    private final LongAdder errors = new LongAdder(); // 失败的请求数
+
+    private final LatencyWindow latency = new LatencyWindow(LATENCY_WINDOW_SIZE); // 最近的请求耗时
+
+    public AccountStatus(int accountIndex, String accountKey) {
+        this.accountIndex = accountIndex;
+        this.accountKey = accountKey;
+    }
+
+    public int getAccountIndex() {
+        return accountIndex;
+    }
+
+    public String getAccountKey() {
+        return accountKey;
+    }
+
+    public boolean isHealthy() {
+        return healthy.get();
+    }
+
+    /**
+     * 标记失效，返回是否由本次调用从健康变为失效
+     */
+    public boolean markInvalid(String reason) {
+        lastFailTime = System.currentTimeMillis();
+        lastFailReason = reason;
+        return healthy.compareAndSet(true, false);
+    }
+
+    /**
+     * 恢复健康并清零活跃连接数，返回是否由本次调用从失效变为健康
+     */
+    public boolean markHealthy() {
+        if (healthy.compareAndSet(false, true)) {
+            activeConnections.set(0);
+            return true;
+        }
+        return false;
+    }
+
+    public long getLastFailTime() {
+        return lastFailTime;
+    }
+
+    public String getLastFailReason() {
+        return lastFailReason;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int incrementActiveConnections() {
+        return activeConnections.incrementAndGet();
+    }
+
+    public int decrementActiveConnections() {
+        return activeConnections.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    public int getBoundSessions() {
+        return boundSessions.get();
+    }
+
+    public void sessionBound() {
+        boundSessions.incrementAndGet();
+    }
+
+    public void sessionUnbound() {
+        boundSessions.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    /**
+     * 请求结束（成功或失败）时记录耗时
+     */
+    public void recordLatency(long nanos) {
+        requests.increment();
+        latency.record(nanos);
+    }
 
-    private boolean healthy; // 是否健康
+    public void recordError() {
+        errors.increment();
+    }
 
-    private int activeConnections; // 活跃连接数
+    public long getRequests() {
+        return requests.sum();
+    }
 
-    private long lastFailTime; // 最后失败时间戳（毫秒）
+    public long getErrors() {
+        return errors.sum();
+    }
 
+    public LatencyWindow getLatency() {
+        return latency;
+    }
 }
@@ -9,6 +9,7 @@ public class ChatCompletionRequest {
     private List<Message> messages;
     private Boolean stream;
     private String user;
+    private Integer n;
 
     @Data
     public static class Message {
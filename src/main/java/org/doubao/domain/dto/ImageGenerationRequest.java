@@ -1,5 +1,7 @@
 package org.doubao.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
@@ -26,4 +28,12 @@ public class ImageGenerationRequest {
     // 流式输出
     private Boolean stream;
 
+    // 生成批次数（默认 1，大于 1 时分散到多个账号并行生成，结果合并返回）
+    private Integer n;
+
+    // 跳过结果缓存，强制重新生成
+    @JsonProperty("no_cache")
+    @JsonAlias("noCache")
+    private Boolean noCache;
+
 }
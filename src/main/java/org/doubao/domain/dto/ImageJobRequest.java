@@ -0,0 +1,20 @@
+package org.doubao.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ImageJobRequest extends ImageGenerationRequest {
+
+    // 优先级（越大越先执行，默认 0）
+    private Integer priority = 0;
+
+    // 任务结束后回调地址（非必填）
+    @JsonProperty("webhook_url")
+    @JsonAlias("webhookUrl")
+    private String webhookUrl;
+
+}
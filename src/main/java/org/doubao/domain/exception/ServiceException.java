@@ -30,6 +30,14 @@ public final class ServiceException extends RuntimeException {
         this.code = code;
     }
 
+    public Integer getCode() {
+        return code;
+    }
+
+    public String getDetailMessage() {
+        return detailMessage;
+    }
+
     @Override
     public String getMessage() {
         return message;
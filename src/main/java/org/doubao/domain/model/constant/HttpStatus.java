@@ -71,11 +71,21 @@ public interface HttpStatus {
      */
     int CONFLICT = 409;
 
+    /**
+     * 资源已失效，不再可用
+     */
+    int GONE = 410;
+
     /**
      * 不支持的数据，媒体类型
      */
     int UNSUPPORTED_TYPE = 415;
 
+    /**
+     * 请求过多，超出处理能力
+     */
+    int TOO_MANY_REQUESTS = 429;
+
     /**
      * 系统内部错误
      */
@@ -86,6 +96,16 @@ public interface HttpStatus {
      */
     int NOT_IMPLEMENTED = 501;
 
+    /**
+     * 服务暂不可用
+     */
+    int SERVICE_UNAVAILABLE = 503;
+
+    /**
+     * 处理超时
+     */
+    int GATEWAY_TIMEOUT = 504;
+
     /**
      * 系统警告消息
      */
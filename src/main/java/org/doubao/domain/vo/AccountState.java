@@ -0,0 +1,35 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+@Data
+public class AccountState {
+
+    private String service; // chat / image
+
+    private int index; // 账号在列表中的索引
+
+    private String account; // 账号标识摘要（不输出 Cookie）
+
+    private boolean healthy;
+
+    private Long lastFailTime; // 最后失败时间（毫秒时间戳），未失败为 null
+
+    private String lastFailReason;
+
+    private int inFlight; // 进行中的请求数
+
+    private int boundSessions; // 绑定的会话数
+
+    private long requests; // 已完成的请求数
+
+    private long errors; // 失败的请求数
+
+    private double latencyP50Ms; // 最近请求耗时分位数
+
+    private double latencyP90Ms;
+
+    private double latencyP99Ms;
+
+    private int latencySamples; // 计算分位数的样本数
+}
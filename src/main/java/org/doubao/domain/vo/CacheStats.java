@@ -0,0 +1,28 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+@Data
+public class CacheStats {
+
+    private String name;
+
+    private int size; // 当前条目数
+
+    private long hits;
+
+    private long misses;
+
+    private double hitRate; // 命中率（0~1），无访问时为 0
+
+    public static CacheStats of(String name, int size, long hits, long misses) {
+        CacheStats stats = new CacheStats();
+        stats.setName(name);
+        stats.setSize(size);
+        stats.setHits(hits);
+        stats.setMisses(misses);
+        long total = hits + misses;
+        stats.setHitRate(total == 0 ? 0 : (double) hits / total);
+        return stats;
+    }
+}
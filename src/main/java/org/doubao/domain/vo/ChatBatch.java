@@ -0,0 +1,36 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+@Data
+public class ChatBatch {
+
+    public static final String IN_PROGRESS = "in_progress";
+    public static final String CANCELLING = "cancelling";
+    public static final String CANCELLED = "cancelled";
+    public static final String COMPLETED = "completed";
+    public static final String FAILED = "failed";
+
+    private String id;
+
+    private String object = "batch";
+
+    private String endpoint = "/api/doubao/v1/chat/completions";
+
+    private volatile String status;
+
+    private long createdAt; // 创建时间（秒）
+
+    private volatile Long completedAt; // 结束时间（秒）
+
+    private volatile String errorMessage;
+
+    private RequestCounts requestCounts = new RequestCounts();
+
+    @Data
+    public static class RequestCounts {
+        private volatile long total;
+        private volatile long completed;
+        private volatile long failed;
+    }
+}
@@ -1,5 +1,7 @@
 package org.doubao.domain.vo;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 import java.util.List;
@@ -18,6 +20,15 @@ public class ImageGenerationResponse {
 
     private List<ImageData> data;
 
+    // 失败批次（仅 n>1 且部分批次失败时返回）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ImageError> errors;
+
+    // 耗时分解（仅流式汇总事件，格式同 Server-Timing 头）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("server_timing")
+    private String serverTiming;
+
     @Data
     public static class ImageData {
         // 图片URL（核心结果）
@@ -25,4 +36,12 @@ public class ImageGenerationResponse {
         // 图片格式（默认 png）
         private String format = "png";
     }
+
+    @Data
+    public static class ImageError {
+        // 批次序号
+        private int index;
+        // 失败原因
+        private String message;
+    }
 }
@@ -0,0 +1,48 @@
+package org.doubao.domain.vo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import org.doubao.domain.dto.ImageJobRequest;
+
+@Data
+public class ImageJob {
+
+    public static final String QUEUED = "queued";
+    public static final String RUNNING = "running";
+    public static final String SUCCEEDED = "succeeded";
+    public static final String FAILED = "failed";
+
+    private String id;
+
+    private String object = "image.generation.job";
+
+    private volatile String status;
+
+    private int priority;
+
+    private volatile int attempts;
+
+    private long createdAt; // 创建时间（毫秒）
+
+    private volatile long startedAt; // 最近一次开始执行时间（毫秒）
+
+    private volatile long finishedAt; // 结束时间（毫秒）
+
+    private volatile long queueWaitMs; // 累计排队等待时长（毫秒）
+
+    private volatile ImageGenerationResponse result;
+
+    private volatile String error;
+
+    @JsonIgnore
+    private ImageJobRequest request;
+
+    @JsonIgnore
+    private String apiKey;
+
+    @JsonIgnore
+    private volatile long enqueuedAt; // 最近一次入队时间（毫秒）
+
+    @JsonIgnore
+    private long sequence; // 入队序号，同优先级按先后执行
+}
@@ -0,0 +1,29 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+@Data
+public class ImageJobStats {
+
+    private int workers;
+
+    private int queueCapacity;
+
+    private int queueDepth; // 当前排队任务数
+
+    private int running; // 执行中任务数
+
+    private int retrying; // 等待重新排队的任务数
+
+    private long succeeded;
+
+    private long failed;
+
+    private long requeued;
+
+    private long avgQueueWaitMs; // 平均排队等待时长
+
+    private long maxQueueWaitMs; // 最大排队等待时长
+
+    private long oldestQueuedWaitMs; // 当前队列中最久任务已等待时长
+}
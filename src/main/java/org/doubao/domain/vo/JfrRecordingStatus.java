@@ -0,0 +1,19 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+@Data
+public class JfrRecordingStatus {
+
+    private boolean recording; // 是否正在录制
+
+    private String settings; // 录制配置（default / profile）
+
+    private Long startTime; // 开始时间（毫秒时间戳）
+
+    private long durationMs; // 已录制时长
+
+    private long sizeBytes; // 当前录制数据大小
+
+    private String lastDumpFile; // 最近一次导出的文件
+}
@@ -0,0 +1,23 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * 本地镜像图片：file 为空表示尚未下载完成或已被淘汰，此时回源 sourceUrl。
+ * 放入镜像表后不再修改，下载完成时以新的记录替换
+ */
+@Data
+public class MirroredImage {
+
+    private String sourceUrl;
+
+    private String format;
+
+    private String contentHash;
+
+    private Path file;
+
+    private long size;
+}
@@ -0,0 +1,75 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RuntimeStats {
+
+    private PoolStats httpPool; // 上游连接池
+
+    private List<ExecutorStats> executors;
+
+    private List<CacheStats> caches;
+
+    private int chatSessions; // 聊天会话数
+
+    private int imageSessions; // 生图会话数
+
+    private int healthyChatAccounts;
+
+    private int healthyImageAccounts;
+
+    private long sseRecordDropped; // 上游 SSE 录制因写入队列满丢弃的条数
+
+    private JvmStats jvm;
+
+    @Data
+    public static class PoolStats {
+
+        private int leased; // 使用中的连接数
+
+        private int pending; // 等待获取连接的请求数
+
+        private int available; // 空闲连接数
+
+        private int max; // 连接数上限
+    }
+
+    @Data
+    public static class ExecutorStats {
+
+        private String name;
+
+        private int active; // 执行中的任务数
+
+        private int poolSize; // 当前线程数
+
+        private int maxPoolSize;
+
+        private int queueSize; // 排队中的任务数
+
+        private int queueRemaining; // 队列剩余容量
+
+        private long completed; // 已完成任务数
+    }
+
+    @Data
+    public static class JvmStats {
+
+        private int threads; // 存活线程数
+
+        private int peakThreads;
+
+        private long heapUsed; // 堆内存使用（字节）
+
+        private long heapCommitted;
+
+        private long heapMax;
+
+        private long gcCount; // 累计 GC 次数
+
+        private long gcTimeMs; // 累计 GC 耗时
+    }
+}
@@ -0,0 +1,40 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class TraceSpan {
+
+    private String traceId;
+
+    private String spanId;
+
+    private String parentSpanId; // 根 Span 为空
+
+    private String name;
+
+    private String kind; // SERVER / CLIENT / INTERNAL
+
+    private long startTime; // 开始时间戳（毫秒）
+
+    private double durationMs; // 耗时（毫秒）
+
+    private String status; // UNSET / OK / ERROR
+
+    private Map<String, Object> attributes;
+
+    private List<Event> events;
+
+    @Data
+    public static class Event {
+
+        private String name;
+
+        private double offsetMs; // 相对 Span 开始的时间（毫秒）
+
+        private Map<String, Object> attributes;
+    }
+}
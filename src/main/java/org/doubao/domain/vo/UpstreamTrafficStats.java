@@ -0,0 +1,21 @@
+package org.doubao.domain.vo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class UpstreamTrafficStats {
+
+    private long responses; // 上游响应数
+
+    private long compressedResponses; // 压缩传输的响应数
+
+    private long wireBytes; // 网络传输字节数（解压前）
+
+    private long decodedBytes; // 解压后字节数
+
+    private double compressionRatio; // 解压后 / 解压前
+
+    private Map<String, Long> responsesByEncoding; // 按 Content-Encoding 统计的响应数
+}
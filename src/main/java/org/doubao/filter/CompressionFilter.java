@@ -0,0 +1,293 @@
+package org.doubao.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.utils.CompressionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * JSON 响应压缩：按 Accept-Encoding 协商 gzip/deflate，响应体达到最小长度后才开始压缩。
+ * SSE 流由 SseStreamSink 自行压缩（每批写出时同步刷新），这里直接放行；
+ * 已开启异步的响应（非阻塞写出）同样不压缩
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private final DoubaoProperties.CompressionConfig config;
+    private final Set<String> mimeTypes;
+
+    public CompressionFilter(DoubaoProperties doubaoProperties) {
+        this.config = doubaoProperties.getCompression();
+        this.mimeTypes = Arrays.stream(config.getMimeTypes().split(","))
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !Boolean.TRUE.equals(config.getEnabled()) || request.getHeader("Upgrade") != null;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // 异步接口（CompletableFuture）在异步分派时才写出响应体，需要在分派结束后完成压缩
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            CompressingResponse compressingResponse = WebUtils.getNativeResponse(response, CompressingResponse.class);
+            if (compressingResponse != null && !request.isAsyncStarted()) {
+                compressingResponse.finish();
+            }
+            return;
+        }
+        String encoding = CompressionUtils.negotiate(request.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressingResponse = new CompressingResponse(request, response, encoding);
+        filterChain.doFilter(request, compressingResponse);
+        // 异步请求（含 SSE）由异步分派或输出通道自身结束
+        if (!request.isAsyncStarted()) {
+            compressingResponse.finish();
+        }
+    }
+
+    private class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final String encoding;
+        private ServletOutputStream outputStream;
+        private CompressingOutputStream compressingStream;
+        private PrintWriter writer;
+        // 是否已决定输出方式（压缩 / 原样）
+        private boolean decided;
+        private long contentLength = -1;
+
+        CompressingResponse(HttpServletRequest request, HttpServletResponse response, String encoding) {
+            super(response);
+            this.request = request;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() 已被调用");
+            }
+            if (outputStream == null) {
+                decided = true;
+                if (isCompressible()) {
+                    compressingStream = new CompressingOutputStream(this, encoding);
+                    outputStream = compressingStream;
+                } else {
+                    applyContentLength();
+                    outputStream = super.getOutputStream();
+                }
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() 已被调用");
+                }
+                ServletOutputStream stream = getOutputStream();
+                writer = new PrintWriter(new OutputStreamWriter(stream, Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (outputStream != null) {
+                outputStream.flush();
+            }
+            if (compressingStream == null) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            // 不会压缩的响应（含只设置长度不写响应体的 HEAD / sendfile）直接透传
+            if (decided ? compressingStream == null : !isCompressible()) {
+                contentLength = -1;
+                super.setContentLengthLong(len);
+            } else {
+                contentLength = len;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        private void applyContentLength() {
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+                contentLength = -1;
+            }
+        }
+
+        private boolean isCompressible() {
+            String contentType = getContentType();
+            if (contentType == null || getHeader("Content-Encoding") != null || request.isAsyncStarted()) {
+                return false;
+            }
+            int separator = contentType.indexOf(';');
+            String mimeType = (separator >= 0 ? contentType.substring(0, separator) : contentType).trim().toLowerCase();
+            return !"text/event-stream".equals(mimeType) && mimeTypes.contains(mimeType);
+        }
+
+        /**
+         * 请求处理结束：写出剩余内容（异步响应由其自身负责结束）
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (compressingStream != null) {
+                compressingStream.close();
+            } else if (!isCommitted()) {
+                // 设置了长度但未写出响应体时，补上尚未下发的 Content-Length
+                applyContentLength();
+            }
+        }
+
+        HttpServletResponse getDelegate() {
+            return (HttpServletResponse) getResponse();
+        }
+    }
+
+    /**
+     * 先缓冲未压缩内容，达到最小长度后切换为压缩输出；结束时仍未达到则原样写出
+     */
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        private final CompressingResponse response;
+        private final String encoding;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private DeflaterOutputStream compressor;
+        private boolean closed;
+
+        CompressingOutputStream(CompressingResponse response, String encoding) {
+            this.response = response;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("输出流已关闭");
+            }
+            if (compressor != null) {
+                compressor.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() >= config.getMinSize()) {
+                startCompression();
+            }
+        }
+
+        private void startCompression() throws IOException {
+            HttpServletResponse delegate = response.getDelegate();
+            delegate.setHeader("Content-Encoding", encoding);
+            delegate.addHeader("Vary", "Accept-Encoding");
+            compressor = CompressionUtils.wrap(delegate.getOutputStream(), encoding, config.getLevel());
+            buffer.writeTo(compressor);
+            buffer = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // 未达到最小长度前不提前输出，避免小响应失去压缩机会
+            if (compressor != null) {
+                compressor.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (compressor != null) {
+                compressor.close();
+                return;
+            }
+            HttpServletResponse delegate = response.getDelegate();
+            if (!delegate.isCommitted()) {
+                delegate.setContentLength(buffer.size());
+            }
+            ServletOutputStream out = delegate.getOutputStream();
+            buffer.writeTo(out);
+            out.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // 异步响应不会走到压缩输出（见 isCompressible），这里仅作防御
+            throw new IllegalStateException("压缩响应不支持非阻塞写入");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.doubao.handler;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.R;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 全局异常处理：同步和异步（CompletableFuture）接口的业务异常、超时统一返回 R，HTTP 状态码与错误码一致
+ */
+@Slf4j
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler(ServiceException.class)
+    public ResponseEntity<R<Void>> handleServiceException(ServiceException e, HttpServletRequest request) {
+        int code = e.getCode() != null ? e.getCode() : HttpStatus.ERROR;
+        log.warn("请求[{}]处理失败: {}", request.getRequestURI(), e.getMessage());
+        return ResponseEntity.status(code >= 400 && code < 600 ? code : HttpStatus.ERROR)
+                .body(R.fail(code, e.getMessage()));
+    }
+
+    /**
+     * 异步请求超过 spring.mvc.async.request-timeout 仍未完成
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<R<Void>> handleAsyncTimeout(HttpServletRequest request) {
+        log.warn("请求[{}]处理超时", request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(R.fail(HttpStatus.GATEWAY_TIMEOUT, "请求处理超时，请稍后重试"));
+    }
+
+    /**
+     * 转发线程池已满
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<R<Void>> handleRejected(HttpServletRequest request) {
+        log.warn("请求[{}]被拒绝，转发线程池已满", request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(R.fail(HttpStatus.SERVICE_UNAVAILABLE, "服务繁忙，请稍后重试"));
+    }
+}
@@ -0,0 +1,260 @@
+package org.doubao.http;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.brotli.dec.BrotliInputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 上游响应压缩：请求时协商 gzip/deflate，响应按 Content-Encoding 流式解压（边读边解，不缓冲整个响应体），
+ * 同时统计解压前后的字节数。替代 HttpClient 自带的内容压缩处理（其无法统计网络传输字节数）。
+ * br 仍可解压，但 org.brotli:dec 凑满内部缓冲才输出，SSE 帧会被延迟，默认不协商
+ */
+public class UpstreamCompressionExec implements ExecChainHandler {
+
+    private final String acceptEncoding;
+    private final UpstreamTrafficCounter counter;
+
+    public UpstreamCompressionExec(String acceptEncoding, UpstreamTrafficCounter counter) {
+        this.acceptEncoding = acceptEncoding;
+        this.counter = counter;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope,
+                                       ExecChain chain) throws IOException, HttpException {
+        if (acceptEncoding != null && !acceptEncoding.isEmpty() && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.setHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        ClassicHttpResponse response = chain.proceed(request, scope);
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return response;
+        }
+        String encoding = normalize(entity.getContentEncoding());
+        counter.recordResponse(encoding);
+        response.setEntity(new DecodingEntity(entity, encoding, counter));
+        if (encoding != null) {
+            // 解压后长度未知
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders("Content-MD5");
+        }
+        return response;
+    }
+
+    /**
+     * 单个响应已读取的网络传输字节数（解压前），非本处理器包装的响应返回 -1
+     */
+    public static long wireBytes(HttpEntity entity) {
+        return UpstreamRecordingExec.unwrap(entity) instanceof DecodingEntity decoding ? decoding.wireBytes : -1;
+    }
+
+    /**
+     * 单个响应已读取的解压后字节数，非本处理器包装的响应返回 -1
+     */
+    public static long decodedBytes(HttpEntity entity) {
+        return UpstreamRecordingExec.unwrap(entity) instanceof DecodingEntity decoding ? decoding.decodedBytes : -1;
+    }
+
+    /**
+     * 返回支持的压缩格式；identity 或未压缩返回 null，无法识别的格式原样透传
+     */
+    private static String normalize(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> "gzip";
+            case "br", "deflate" -> encoding;
+            default -> null;
+        };
+    }
+
+    private static class DecodingEntity extends HttpEntityWrapper {
+
+        private final String encoding;
+        private final UpstreamTrafficCounter counter;
+        private InputStream content;
+        // 本响应的字节数（由读取线程累加）
+        private long wireBytes;
+        private long decodedBytes;
+
+        DecodingEntity(HttpEntity wrapped, String encoding, UpstreamTrafficCounter counter) {
+            super(wrapped);
+            this.encoding = encoding;
+            this.counter = counter;
+        }
+
+        @Override
+        public synchronized InputStream getContent() throws IOException {
+            if (content == null) {
+                InputStream raw = super.getContent();
+                if (encoding == null) {
+                    content = new CountingInputStream(raw, this, true, true);
+                } else {
+                    InputStream wire = new CountingInputStream(raw, this, true, false);
+                    content = new CountingInputStream(decode(wire), this, false, true) {
+                        // 解压流的 available() 在结束前恒为 1，会让 InputStreamReader 一直阻塞到填满缓冲；
+                        // 返回 0 使 SSE 读取按到达的帧逐行处理
+                        @Override
+                        public int available() {
+                            return 0;
+                        }
+                    };
+                }
+            }
+            return content;
+        }
+
+        private InputStream decode(InputStream wire) throws IOException {
+            return switch (encoding) {
+                case "gzip" -> new GZIPInputStream(wire, 8192);
+                case "br" -> new BrotliDecodingStream(wire);
+                default -> inflate(wire);
+            };
+        }
+
+        /**
+         * deflate 按规范是 zlib 格式，但部分服务端发送不带 zlib 头的原始 deflate 数据，按前两个字节判断
+         */
+        private static InputStream inflate(InputStream wire) throws IOException {
+            PushbackInputStream in = new PushbackInputStream(wire, 2);
+            byte[] header = new byte[2];
+            int read = in.readNBytes(header, 0, 2);
+            in.unread(header, 0, read);
+            int cmf = header[0] & 0xFF;
+            int flg = header[1] & 0xFF;
+            boolean zlib = read == 2 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+            return new InflaterInputStream(in, new Inflater(!zlib), 8192) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try (InputStream in = getContent()) {
+                in.transferTo(outStream);
+            }
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return encoding != null ? null : super.getContentEncoding();
+        }
+
+        @Override
+        public long getContentLength() {
+            return encoding != null ? -1 : super.getContentLength();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
+    }
+
+    /**
+     * br 解码器对损坏数据抛出非受检异常，统一转为 IOException，与其它格式的读取错误一致
+     */
+    private static class BrotliDecodingStream extends FilterInputStream {
+
+        BrotliDecodingStream(InputStream wire) throws IOException {
+            super(open(wire));
+        }
+
+        private static InputStream open(InputStream wire) throws IOException {
+            try {
+                return new BrotliInputStream(wire);
+            } catch (RuntimeException e) {
+                throw new IOException("br 响应解压失败", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (RuntimeException e) {
+                throw new IOException("br 响应解压失败", e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (RuntimeException e) {
+                throw new IOException("br 响应解压失败", e);
+            }
+        }
+    }
+
+    /**
+     * 统计读取字节数；未压缩时同时计入解压前后
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final DecodingEntity entity;
+        private final boolean countWire;
+        private final boolean countDecoded;
+
+        CountingInputStream(InputStream in, DecodingEntity entity, boolean countWire, boolean countDecoded) {
+            super(in);
+            this.entity = entity;
+            this.countWire = countWire;
+            this.countDecoded = countDecoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(long bytes) {
+            if (countWire) {
+                entity.wireBytes += bytes;
+                entity.counter.addWireBytes(bytes);
+            }
+            if (countDecoded) {
+                entity.decodedBytes += bytes;
+                entity.counter.addDecodedBytes(bytes);
+            }
+        }
+    }
+}
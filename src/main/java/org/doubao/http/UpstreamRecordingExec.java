@@ -0,0 +1,174 @@
+package org.doubao.http;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.doubao.recording.SseRecorder;
+import org.doubao.recording.SseRecording;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 上游 SSE 录制：位于压缩处理之外，记录解压后的原始行和到达时间，不改变读取方看到的内容。
+ * 录制类型由调用方通过请求上下文属性 {@link #KIND_ATTRIBUTE} 指定（未指定为聊天），不读取请求体
+ */
+public class UpstreamRecordingExec implements ExecChainHandler {
+
+    public static final String KIND_ATTRIBUTE = "doubao.recording.kind";
+
+    private final SseRecorder recorder;
+
+    public UpstreamRecordingExec(SseRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope,
+                                       ExecChain chain) throws IOException, HttpException {
+        if (!recorder.sample()) {
+            return chain.proceed(request, scope);
+        }
+        Object kindAttribute = scope.clientContext.getAttribute(KIND_ATTRIBUTE);
+        String kind = kindAttribute instanceof String value ? value : SseRecording.CHAT;
+
+        long startNanos = System.nanoTime();
+        ClassicHttpResponse response = chain.proceed(request, scope);
+        HttpEntity entity = response.getEntity();
+        if (entity == null || !isEventStream(entity)) {
+            return response;
+        }
+        SseRecorder.Capture capture = recorder.start(kind, response.getCode(), System.nanoTime() - startNanos);
+        response.setEntity(new RecordingEntity(entity, capture));
+        return response;
+    }
+
+    /**
+     * 带录制类型的请求上下文
+     */
+    public static HttpClientContext context(String kind) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(KIND_ATTRIBUTE, kind);
+        return context;
+    }
+
+    /**
+     * 去掉录制包装，供需要识别内层实体的统计使用
+     */
+    static HttpEntity unwrap(HttpEntity entity) {
+        return entity instanceof RecordingEntity recording ? recording.wrapped : entity;
+    }
+
+    private static boolean isEventStream(HttpEntity entity) {
+        String contentType = entity.getContentType();
+        return contentType != null
+                && ContentType.TEXT_EVENT_STREAM.getMimeType().equalsIgnoreCase(ContentType.parse(contentType).getMimeType());
+    }
+
+    private static class RecordingEntity extends HttpEntityWrapper {
+
+        private final HttpEntity wrapped;
+        private final SseRecorder.Capture capture;
+        private InputStream content;
+
+        RecordingEntity(HttpEntity wrapped, SseRecorder.Capture capture) {
+            super(wrapped);
+            this.wrapped = wrapped;
+            this.capture = capture;
+        }
+
+        @Override
+        public synchronized InputStream getContent() throws IOException {
+            if (content == null) {
+                content = new RecordingInputStream(super.getContent(), capture);
+            }
+            return content;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                capture.finish(false);
+            }
+        }
+    }
+
+    /**
+     * 按字节切分行（与 BufferedReader 的行边界一致），读到流结束时提交录制
+     */
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private final SseRecorder.Capture capture;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+        RecordingInputStream(InputStream in, SseRecorder.Capture capture) {
+            super(in);
+            this.capture = capture;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                complete();
+            } else {
+                accept((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                complete();
+            }
+            for (int i = 0; i < n; i++) {
+                accept(b[off + i]);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                capture.finish(false);
+            }
+        }
+
+        private void accept(byte b) {
+            if (b == '\n') {
+                int size = line.size();
+                byte[] bytes = line.toByteArray();
+                if (size > 0 && bytes[size - 1] == '\r') {
+                    size--;
+                }
+                capture.line(new String(bytes, 0, size, StandardCharsets.UTF_8));
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+
+        private void complete() {
+            if (line.size() > 0) {
+                capture.line(line.toString(StandardCharsets.UTF_8));
+                line.reset();
+            }
+            capture.finish(true);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.doubao.http;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.pool.PoolStats;
+
+import java.io.IOException;
+
+/**
+ * 连接就绪事件：位于建立连接之后、发送请求之前，事件时间减去上游 Span 开始时间即连接池等待 + 建连耗时。
+ * 连接池统计需要获取连接池锁，只在采样的 Span 上读取
+ */
+public class UpstreamTracingExec implements ExecChainHandler {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    public UpstreamTracingExec(PoolingHttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope,
+                                       ExecChain chain) throws IOException, HttpException {
+        Span span = Span.current();
+        if (span.isRecording() && span.getSpanContext().isSampled()) {
+            PoolStats stats = connectionManager.getTotalStats();
+            span.addEvent("connection.acquired", Attributes.builder()
+                    .put("pool.leased", stats.getLeased())
+                    .put("pool.pending", stats.getPending())
+                    .put("pool.available", stats.getAvailable())
+                    .build());
+        }
+        return chain.proceed(request, scope);
+    }
+}
@@ -0,0 +1,61 @@
+package org.doubao.http;
+
+import org.doubao.domain.vo.UpstreamTrafficStats;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 上游流量统计：解压前（网络传输）与解压后的字节数
+ */
+@Component
+public class UpstreamTrafficCounter {
+
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final Map<String, LongAdder> byEncoding = new ConcurrentHashMap<>();
+
+    public void recordResponse(String encoding) {
+        responses.increment();
+        if (encoding != null) {
+            compressedResponses.increment();
+        }
+        byEncoding.computeIfAbsent(encoding != null ? encoding : "identity", k -> new LongAdder()).increment();
+    }
+
+    public void addWireBytes(long bytes) {
+        wireBytes.add(bytes);
+    }
+
+    public void addDecodedBytes(long bytes) {
+        decodedBytes.add(bytes);
+    }
+
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    public UpstreamTrafficStats snapshot() {
+        UpstreamTrafficStats stats = new UpstreamTrafficStats();
+        long wire = wireBytes.sum();
+        long decoded = decodedBytes.sum();
+        stats.setResponses(responses.sum());
+        stats.setCompressedResponses(compressedResponses.sum());
+        stats.setWireBytes(wire);
+        stats.setDecodedBytes(decoded);
+        stats.setCompressionRatio(wire == 0 ? 1.0 : (double) decoded / wire);
+        Map<String, Long> encodings = new TreeMap<>();
+        byEncoding.forEach((encoding, count) -> encodings.put(encoding, count.sum()));
+        stats.setResponsesByEncoding(encodings);
+        return stats;
+    }
+}
@@ -0,0 +1,51 @@
+package org.doubao.jfr;
+
+import jdk.jfr.*;
+import org.doubao.tracing.DoubaoTracing;
+
+/**
+ * 账号状态变化：标记失效、恢复健康
+ */
+@Name("org.doubao.AccountState")
+@Label("Account State Change")
+@Category({"Doubao", "Account"})
+@StackTrace(false)
+public class AccountStateEvent extends Event {
+
+    public static final String HEALTHY = "healthy";
+    public static final String INVALID = "invalid";
+
+    @Label("Service")
+    String service;
+
+    @Label("Account")
+    @Description("账号标识摘要")
+    String account;
+
+    @Label("Account Index")
+    int accountIndex;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Reason")
+    String reason;
+
+    public static void emit(String service, int accountIndex, String accountKey,
+                            String from, String to, String reason) {
+        AccountStateEvent event = new AccountStateEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.service = service;
+        event.account = DoubaoTracing.hashAccount(accountKey);
+        event.accountIndex = accountIndex;
+        event.from = from;
+        event.to = to;
+        event.reason = reason;
+        event.commit();
+    }
+}
@@ -0,0 +1,43 @@
+package org.doubao.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * 会话淘汰：过期清理或绑定账号失效时批量移除会话
+ */
+@Name("org.doubao.SessionEviction")
+@Label("Session Eviction")
+@Category({"Doubao", "Session"})
+@StackTrace(false)
+public class SessionEvictionEvent extends Event {
+
+    public static final String EXPIRED = "expired";
+    public static final String ACCOUNT_INVALID = "account_invalid";
+
+    @Label("Service")
+    String service;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Evicted")
+    int evicted;
+
+    @Label("Remaining")
+    int remaining;
+
+    public static void emit(String service, String reason, int evicted, int remaining) {
+        if (evicted <= 0) {
+            return;
+        }
+        SessionEvictionEvent event = new SessionEvictionEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.service = service;
+        event.reason = reason;
+        event.evicted = evicted;
+        event.remaining = remaining;
+        event.commit();
+    }
+}
@@ -0,0 +1,74 @@
+package org.doubao.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * 一次流式转发会话：从开始转发到向客户端发送结束。
+ * 未开启录制时 {@link #start} 返回共享的空事件，{@link #finish} 为空操作
+ */
+@Name("org.doubao.StreamRelay")
+@Label("Stream Relay")
+@Category({"Doubao", "Stream"})
+@Description("流式转发的分片数、内容增量数、结果和客户端断开原因")
+@StackTrace(false)
+public class StreamRelayEvent extends Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Model")
+    String model;
+
+    @Label("Choices")
+    int n;
+
+    @Label("Tokens")
+    @Description("转发的内容增量数（生图为图片数）")
+    long tokens;
+
+    @Label("Chunks")
+    @Description("写出客户端的事件数")
+    long chunks;
+
+    @Label("Client Write Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long clientWriteTime;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Cancel Reason")
+    String cancelReason;
+
+    // 判断事件是否开启（isEnabled 随录制启停变化）
+    private static final StreamRelayEvent PROBE = new StreamRelayEvent();
+    // 未开启录制时共享的空事件，不能写入字段
+    private static final StreamRelayEvent DISABLED = new StreamRelayEvent();
+
+    public static StreamRelayEvent start(String service, String model, int n) {
+        if (!PROBE.isEnabled()) {
+            return DISABLED;
+        }
+        StreamRelayEvent event = new StreamRelayEvent();
+        event.service = service;
+        event.model = model;
+        event.n = n;
+        event.begin();
+        return event;
+    }
+
+    public void finish(long tokens, long chunks, long clientWriteTime, String outcome, String cancelReason) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.tokens = tokens;
+            this.chunks = chunks;
+            this.clientWriteTime = clientWriteTime;
+            this.outcome = outcome;
+            this.cancelReason = cancelReason;
+            commit();
+        }
+    }
+}
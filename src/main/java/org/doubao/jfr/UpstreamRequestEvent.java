@@ -0,0 +1,101 @@
+package org.doubao.jfr;
+
+import jdk.jfr.*;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.doubao.http.UpstreamCompressionExec;
+import org.doubao.tracing.DoubaoTracing;
+
+/**
+ * 一次上游请求：从发出请求到响应读取完毕。
+ * 未开启录制时 {@link #start} 返回共享的空事件，不创建对象也不计时，各方法均为空操作
+ */
+@Name("org.doubao.UpstreamRequest")
+@Label("Upstream Request")
+@Category({"Doubao", "Upstream"})
+@Description("上游请求的账号、状态码、首字节耗时和传输字节数")
+@StackTrace(false)
+public class UpstreamRequestEvent extends Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Account")
+    @Description("账号标识摘要")
+    String account;
+
+    @Label("Status")
+    int status;
+
+    @Label("Time To First Byte")
+    @Timespan(Timespan.NANOSECONDS)
+    long ttfb;
+
+    @Label("Wire Bytes")
+    @Description("解压前的网络传输字节数")
+    @DataAmount
+    long wireBytes;
+
+    @Label("Decoded Bytes")
+    @DataAmount
+    long decodedBytes;
+
+    @Label("Error")
+    String error;
+
+    // 判断事件是否开启（isEnabled 随录制启停变化）
+    private static final UpstreamRequestEvent PROBE = new UpstreamRequestEvent();
+    // 未开启录制时共享的空事件，不能写入字段
+    private static final UpstreamRequestEvent DISABLED = new UpstreamRequestEvent();
+
+    private transient String accountKey;
+    private transient long startNanos;
+    private transient HttpEntity entity;
+
+    public static UpstreamRequestEvent start(String service, String accountKey) {
+        if (!PROBE.isEnabled()) {
+            return DISABLED;
+        }
+        UpstreamRequestEvent event = new UpstreamRequestEvent();
+        event.service = service;
+        event.accountKey = accountKey;
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    public void responseReceived(ClassicHttpResponse response) {
+        if (this == DISABLED) {
+            return;
+        }
+        status = response.getCode();
+        ttfb = System.nanoTime() - startNanos;
+        entity = response.getEntity();
+    }
+
+    public void failed(Throwable e) {
+        if (this == DISABLED) {
+            return;
+        }
+        error = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /**
+     * 响应读取结束后调用（包括异常路径）；请求期间才开启录制的不提交
+     */
+    public void finish() {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            account = DoubaoTracing.hashAccount(accountKey);
+            if (entity != null) {
+                wireBytes = UpstreamCompressionExec.wireBytes(entity);
+                decodedBytes = UpstreamCompressionExec.decodedBytes(entity);
+            }
+            commit();
+        }
+        entity = null;
+    }
+}
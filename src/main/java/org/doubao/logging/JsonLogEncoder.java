@@ -0,0 +1,64 @@
+package org.doubao.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 结构化 JSON 日志：每行一个对象，包含时间、级别、线程、Logger、脱敏后的消息、分类标记、
+ * MDC（含 traceId / spanId）和异常堆栈
+ */
+public class JsonLogEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("@timestamp", event.getInstant().toString());
+            generator.writeStringField("level", event.getLevel().toString());
+            generator.writeStringField("thread", event.getThreadName());
+            generator.writeStringField("logger", event.getLoggerName());
+            generator.writeStringField("message", LogRedactor.redact(event.getFormattedMessage()));
+            if (event.getMarkerList() != null && !event.getMarkerList().isEmpty()) {
+                generator.writeStringField("category", event.getMarkerList().get(0).getName());
+            }
+            Map<String, String> mdc = event.getMDCPropertyMap();
+            if (mdc != null) {
+                for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                    generator.writeStringField(entry.getKey(), entry.getValue());
+                }
+            }
+            IThrowableProxy throwable = event.getThrowableProxy();
+            if (throwable != null) {
+                generator.writeStringField("exception", ThrowableProxyUtil.asString(throwable));
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            addError("JSON日志编码失败", e);
+            return new byte[0];
+        }
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+}
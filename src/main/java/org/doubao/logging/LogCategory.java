@@ -0,0 +1,23 @@
+package org.doubao.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * 高频日志的分类标记，采样率由 {@link SamplingTurboFilter} 按分类配置（见 doubao.logging.sample-rate）
+ */
+public final class LogCategory {
+
+    /**
+     * 每个请求都会输出的生命周期日志：收到请求、生图缓存命中、发送上游请求、流结束、连接关闭
+     */
+    public static final Marker REQUEST = MarkerFactory.getMarker("REQUEST");
+
+    /**
+     * 会话与账号绑定、会话ID更新
+     */
+    public static final Marker SESSION = MarkerFactory.getMarker("SESSION");
+
+    private LogCategory() {
+    }
+}
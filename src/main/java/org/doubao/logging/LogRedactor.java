@@ -0,0 +1,31 @@
+package org.doubao.logging;
+
+import java.util.regex.Pattern;
+
+/**
+ * 日志脱敏：Cookie 字段、msToken、签名参数、API 密钥等敏感值替换为 ***
+ */
+public final class LogRedactor {
+
+    private static final String MASK = "***";
+
+    // 键值形式：sessionid=xxx、msToken: xxx、"api_key":"xxx"（值为 Bearer xxx 时由 BEARER 处理令牌部分）
+    private static final Pattern KEY_VALUE = Pattern.compile(
+            "(?i)(cookie|sessionid(?:_ss)?|sid_tt|sid_guard|uid_tt(?:_ss)?|passport_csrf_token|ttwid|s_v_web_id"
+                    + "|mstoken|a_bogus|x-bogus|authorization|api[_-]?key|password|secret)"
+                    + "(\"?\\s*[=:]\\s*\"?)(?!\\*\\*\\*|bearer\\s)[^\\s;&,\"]+");
+    private static final Pattern BEARER = Pattern.compile("(?i)(bearer\\s+)[^\\s\"]+");
+    private static final Pattern SECRET_KEY = Pattern.compile("\\bsk-[A-Za-z0-9]{8,}");
+
+    private LogRedactor() {
+    }
+
+    public static String redact(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        String result = BEARER.matcher(message).replaceAll("$1" + MASK);
+        result = KEY_VALUE.matcher(result).replaceAll("$1$2" + MASK);
+        return SECRET_KEY.matcher(result).replaceAll(MASK);
+    }
+}
@@ -0,0 +1,15 @@
+package org.doubao.logging;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * 脱敏后的日志消息（%redactedMsg），在异步输出线程中执行
+ */
+public class RedactingMessageConverter extends MessageConverter {
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return LogRedactor.redact(super.convert(event));
+    }
+}
@@ -0,0 +1,56 @@
+package org.doubao.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按分类标记采样 INFO 及以下级别的日志，WARN / ERROR 始终输出。
+ * 在创建日志事件之前判断，被丢弃的日志不会格式化参数。配置示例：
+ * <pre>
+ * &lt;turboFilter class="org.doubao.logging.SamplingTurboFilter"&gt;
+ *     &lt;sample&gt;REQUEST=0.1&lt;/sample&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    // 标记名 -> 保留比例（0~1），启动后只读
+    private final Map<String, Double> rates = new HashMap<>();
+
+    /**
+     * 添加一个分类的采样率，格式为 标记名=比例
+     */
+    public void addSample(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq <= 0) {
+            addWarn("无效的采样配置: " + spec);
+            return;
+        }
+        try {
+            double rate = Double.parseDouble(spec.substring(eq + 1).trim());
+            rates.put(spec.substring(0, eq).trim(), Math.max(0.0, Math.min(1.0, rate)));
+        } catch (NumberFormatException e) {
+            addWarn("无效的采样比例: " + spec);
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level,
+                              String format, Object[] params, Throwable t) {
+        if (marker == null || level == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        Double rate = rates.get(marker.getName());
+        if (rate == null || rate >= 1.0) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -0,0 +1,34 @@
+package org.doubao.metrics;
+
+import org.doubao.service.IDoubaoImageService;
+import org.doubao.service.IDoubaoService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 账号健康检查（/actuator/health）：没有健康的聊天账号时为 DOWN
+ */
+@Component("accounts")
+public class AccountHealthIndicator implements HealthIndicator {
+
+    private final IDoubaoService doubaoService;
+    private final IDoubaoImageService doubaoImageService;
+
+    public AccountHealthIndicator(IDoubaoService doubaoService, IDoubaoImageService doubaoImageService) {
+        this.doubaoService = doubaoService;
+        this.doubaoImageService = doubaoImageService;
+    }
+
+    @Override
+    public Health health() {
+        int healthyChat = doubaoService.getHealthyAccountCount();
+        Health.Builder builder = healthyChat > 0 ? Health.up() : Health.down();
+        return builder
+                .withDetail("chatHealthy", healthyChat)
+                .withDetail("chatTotal", doubaoService.getAccountStatuses().size())
+                .withDetail("imageHealthy", doubaoImageService.getHealthyAccountCount())
+                .withDetail("imageTotal", doubaoImageService.getAccountStatuses().size())
+                .build();
+    }
+}
@@ -0,0 +1,199 @@
+package org.doubao.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.http.UpstreamTrafficCounter;
+import org.doubao.recording.SseRecorder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 请求全流程指标（Micrometer，通过 /actuator/prometheus 暴露）：
+ * 请求量与耗时、各阶段耗时分布、按账号的并发/错误/耗时、会话缓存大小。
+ * 选择账号、签名、上游响应头耗时同时计入当前请求的 {@link ServerTiming}
+ */
+@Component
+public class DoubaoMetrics {
+
+    // 服务类型
+    public static final String CHAT = "chat";
+    public static final String IMAGE = "image";
+
+    // 接口
+    public static final String CHAT_ENDPOINT = "chat.completions";
+    public static final String IMAGE_ENDPOINT = "images.generations";
+
+    // 请求结果
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+    public static final String CANCELLED = "cancelled";
+
+    private static final String OTHER_MODEL = "other";
+
+    private final MeterRegistry registry;
+    private final int maxModelTags;
+
+    // 已使用的模型标签（限制数量，避免客户端传入任意模型名导致序列膨胀）
+    private final Set<String> modelTags = ConcurrentHashMap.newKeySet();
+    // 指标名 + 标签 -> Timer，避免热路径上重复构建
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public DoubaoMetrics(MeterRegistry registry, DoubaoProperties doubaoProperties,
+                         UpstreamTrafficCounter upstreamTrafficCounter, SseRecorder sseRecorder) {
+        this.registry = registry;
+        this.maxModelTags = Math.max(1, doubaoProperties.getMetrics().getMaxModelTags());
+
+        FunctionCounter.builder("doubao.upstream.wire.bytes", upstreamTrafficCounter, UpstreamTrafficCounter::getWireBytes)
+                .description("上游响应网络传输字节数（解压前）")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("doubao.upstream.decoded.bytes", upstreamTrafficCounter, UpstreamTrafficCounter::getDecodedBytes)
+                .description("上游响应解压后字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("doubao.sse.record.dropped", sseRecorder, SseRecorder::getDropped)
+                .description("上游 SSE 录制因写入队列满丢弃的条数")
+                .register(registry);
+    }
+
+    /**
+     * 请求完成：按接口、模型、是否流式、结果记录次数和总耗时
+     */
+    public void recordRequest(String endpoint, String model, boolean stream, String outcome, long startNanos) {
+        timer("doubao.requests", "endpoint", endpoint, "model", modelTag(model),
+                "stream", String.valueOf(stream), "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 选择账号耗时
+     */
+    public void recordAccountSelect(String service, long startNanos) {
+        record("doubao.account.select.duration", service, startNanos);
+        ServerTiming.record(ServerTiming.Phase.ACCOUNT, startNanos);
+    }
+
+    /**
+     * 生成签名URL耗时
+     */
+    public void recordSign(String service, long startNanos) {
+        record("doubao.sign.duration", service, startNanos);
+        ServerTiming.record(ServerTiming.Phase.SIGN, startNanos);
+    }
+
+    /**
+     * 构建上游请求体耗时
+     */
+    public void recordPayloadBuild(String service, long startNanos) {
+        record("doubao.payload.build.duration", service, startNanos);
+    }
+
+    /**
+     * 上游请求发出到收到响应头的耗时
+     */
+    public void recordUpstreamConnect(String service, long startNanos) {
+        record("doubao.upstream.connect.duration", service, startNanos);
+        ServerTiming.record(ServerTiming.Phase.TTFB, startNanos);
+    }
+
+    /**
+     * 上游请求发出到收到第一个事件的耗时
+     */
+    public void recordFirstEvent(String service, long startNanos) {
+        record("doubao.upstream.first.event.duration", service, startNanos);
+    }
+
+    /**
+     * 相邻两个上游内容事件的间隔
+     */
+    public void recordTokenGap(String service, long gapNanos) {
+        timer("doubao.stream.token.gap", "service", service).record(gapNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 流式请求从受理到结束的总耗时
+     */
+    public void recordStreamDuration(String service, long startNanos) {
+        record("doubao.stream.duration", service, startNanos);
+    }
+
+    /**
+     * 单次向客户端写出事件的耗时
+     */
+    public void recordClientWrite(String service, long startNanos) {
+        record("doubao.client.write.duration", service, startNanos);
+    }
+
+    /**
+     * 注册账号并发数（按账号索引打标签，不暴露 Cookie/设备ID）
+     */
+    public void registerAccount(String service, int accountIndex, Supplier<Number> inFlight) {
+        Gauge.builder("doubao.account.in.flight", inFlight)
+                .description("账号当前进行中的上游请求数")
+                .tags("service", service, "account", String.valueOf(accountIndex))
+                .register(registry);
+    }
+
+    /**
+     * 账号单次上游请求耗时（分配账号到请求结束）
+     */
+    public void recordAccountLatency(String service, int accountIndex, long startNanos) {
+        timer("doubao.account.latency", "service", service, "account", String.valueOf(accountIndex))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 账号上游请求失败
+     */
+    public void recordAccountError(String service, int accountIndex) {
+        registry.counter("doubao.account.errors", "service", service, "account", String.valueOf(accountIndex))
+                .increment();
+    }
+
+    /**
+     * 注册缓存大小（会话缓存、会话-账号绑定等）
+     */
+    public void registerCacheSize(String cache, String service, Map<?, ?> map) {
+        Gauge.builder("doubao.cache.size", map, Map::size)
+                .description("缓存条目数")
+                .tags("cache", cache, "service", service)
+                .register(registry);
+    }
+
+    private void record(String name, String service, long startNanos) {
+        timer(name, "service", service).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String... tags) {
+        String key = name + "\u0001" + String.join("\u0001", tags);
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, k -> Timer.builder(name).tags(tags).register(registry));
+        }
+        return timer;
+    }
+
+    private String modelTag(String model) {
+        if (model == null || model.isEmpty()) {
+            return "default";
+        }
+        if (modelTags.contains(model)) {
+            return model;
+        }
+        synchronized (modelTags) {
+            if (modelTags.size() < maxModelTags) {
+                modelTags.add(model);
+                return model;
+            }
+        }
+        return modelTags.contains(model) ? model : OTHER_MODEL;
+    }
+}
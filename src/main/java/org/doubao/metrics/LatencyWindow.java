@@ -0,0 +1,62 @@
+package org.doubao.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近 N 次耗时的环形缓冲：记录时只做一次原子自增和写入，读取时复制后排序计算分位数
+ */
+public class LatencyWindow {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong cursor = new AtomicLong();
+    private final int mask;
+
+    /**
+     * @param size 保留的样本数，向上取整为 2 的幂
+     */
+    public LatencyWindow(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size) - 1) << 1;
+        this.samples = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public void record(long nanos) {
+        samples.lazySet((int) (cursor.getAndIncrement() & mask), Math.max(1, nanos));
+    }
+
+    /**
+     * 当前窗口内的分位数（毫秒），quantiles 取值 0~1；无样本时返回全 0
+     */
+    public double[] percentilesMillis(double... quantiles) {
+        int count = (int) Math.min(cursor.get(), samples.length());
+        long[] copy = new long[count];
+        int filled = 0;
+        for (int i = 0; i < count; i++) {
+            long value = samples.get(i);
+            if (value > 0) {
+                copy[filled++] = value;
+            }
+        }
+        double[] result = new double[quantiles.length];
+        if (filled == 0) {
+            return result;
+        }
+        Arrays.sort(copy, 0, filled);
+        for (int i = 0; i < quantiles.length; i++) {
+            int rank = (int) Math.ceil(quantiles[i] * filled) - 1;
+            long nanos = copy[Math.max(0, Math.min(filled - 1, rank))];
+            result[i] = nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+        return result;
+    }
+
+    /**
+     * 窗口内的样本数
+     */
+    public int size() {
+        return (int) Math.min(cursor.get(), samples.length());
+    }
+}
@@ -0,0 +1,93 @@
+package org.doubao.metrics;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个请求的耗时分解（Server-Timing）：排队、选择账号、签名、上游首字节、总耗时。
+ * 随上下文传递到转发/并行线程；并行请求的同一阶段取最大值（即关键路径）
+ */
+public final class ServerTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    public enum Phase {
+        QUEUE("queue"), ACCOUNT("account"), SIGN("sign"), TTFB("ttfb");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ContextKey<ServerTiming> KEY = ContextKey.named("doubao-server-timing");
+
+    private final long startNanos;
+    // 各阶段耗时（纳秒），0 表示未记录
+    private final AtomicLongArray durations = new AtomicLongArray(PHASES.length);
+
+    public ServerTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 在执行线程上开始计时：记录排队耗时并设为当前上下文，timing 为空时不做任何事
+     */
+    public static Scope begin(ServerTiming timing) {
+        if (timing == null) {
+            return Scope.noop();
+        }
+        timing.add(Phase.QUEUE, System.nanoTime() - timing.startNanos);
+        return Context.current().with(KEY, timing).makeCurrent();
+    }
+
+    /**
+     * 当前上下文中的耗时记录，未开启时返回 null
+     */
+    public static ServerTiming current() {
+        return Context.current().get(KEY);
+    }
+
+    /**
+     * 记录当前请求某阶段的耗时（从 startNanos 到现在）
+     */
+    public static void record(Phase phase, long startNanos) {
+        ServerTiming timing = current();
+        if (timing != null) {
+            timing.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    public void add(Phase phase, long nanos) {
+        durations.accumulateAndGet(phase.ordinal(), Math.max(nanos, 1), Math::max);
+    }
+
+    /**
+     * 生成 Server-Timing 头的值，如 queue;dur=0.1, account;dur=0.2, sign;dur=1.3, ttfb;dur=80.5, total;dur=512.0
+     */
+    public String toHeader() {
+        StringBuilder sb = new StringBuilder(96);
+        for (Phase phase : PHASES) {
+            long nanos = durations.get(phase.ordinal());
+            if (nanos > 0) {
+                append(sb, phase.metricName, nanos);
+            }
+        }
+        append(sb, "total", System.nanoTime() - startNanos);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String name, long nanos) {
+        if (!sb.isEmpty()) {
+            sb.append(", ");
+        }
+        // 保留一位小数（毫秒）
+        long tenths = Math.round(nanos / 100_000.0);
+        sb.append(name).append(";dur=").append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
@@ -0,0 +1,206 @@
+package org.doubao.recording;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.logging.LogRedactor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 上游 SSE 录制：按比例采样，逐行记录到达时间，脱敏后追加到滚动文件，供回放模式作为模拟上游使用。
+ * 录制完成后交给单个后台线程写文件，转发线程不等待磁盘 I/O；写入队列满时丢弃该条录制
+ */
+@Slf4j
+@Component
+public class SseRecorder {
+
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    static final String FILE_SUFFIX = ".sse";
+    // URL 查询参数（含签名）替换为 redacted，兼容 JSON 字符串中的 \/ 和 & 转义
+    private static final Pattern URL_QUERY = Pattern.compile(
+            "(https?:(?:\\\\?/){2}(?:[^\\s\"\\\\?]|\\\\/)+)\\?(?:[^\\s\"\\\\]|\\\\u0026|\\\\/)*");
+
+    private final DoubaoProperties.SseRecordConfig config;
+    private final Path dir;
+    private final long maxFileBytes;
+    private final long maxStreamBytes;
+
+    // 写文件线程（未开启录制时不创建）
+    private final ThreadPoolExecutor writer;
+    private final LongAdder dropped = new LongAdder();
+
+    // 仅由写文件线程访问
+    private Path currentFile;
+
+    public SseRecorder(DoubaoProperties doubaoProperties) {
+        this.config = doubaoProperties.getSseRecord();
+        this.dir = Paths.get(config.getDir()).toAbsolutePath();
+        this.maxFileBytes = config.getMaxFileSizeMb() * 1024L * 1024L;
+        this.maxStreamBytes = config.getMaxStreamKb() * 1024L;
+        this.writer = isEnabled()
+                ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(Math.max(1, config.getWriteQueueSize())), runnable -> {
+                            Thread thread = new Thread(runnable, "sse-recorder");
+                            thread.setDaemon(true);
+                            return thread;
+                        })
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    /**
+     * 写入队列满时丢弃的录制条数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 是否录制本次请求（按采样比例）
+     */
+    public boolean sample() {
+        return isEnabled() && ThreadLocalRandom.current().nextDouble() < config.getSampleRate();
+    }
+
+    public Capture start(String kind, int status, long ttfbNanos) {
+        SseRecording recording = new SseRecording();
+        recording.setKind(kind);
+        recording.setStatus(status);
+        recording.setTtfbMs(TimeUnit.NANOSECONDS.toMillis(ttfbNanos));
+        return new Capture(recording, System.nanoTime());
+    }
+
+    static String redact(String line) {
+        if (line.isEmpty()) {
+            return line;
+        }
+        return LogRedactor.redact(URL_QUERY.matcher(line).replaceAll("$1?redacted"));
+    }
+
+    /**
+     * 提交给写文件线程，队列已满时丢弃
+     */
+    private void submit(SseRecording recording) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.execute(() -> save(recording));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            // 累计丢弃数见 doubao_sse_record_dropped_total 指标和 /admin/runtime
+            log.debug("录制写入队列已满，丢弃本条录制，累计丢弃: {}", dropped.sum());
+        }
+    }
+
+    /**
+     * 追加到当前文件，超过大小上限时切换新文件，只保留最近的 maxFiles 个文件
+     */
+    private void save(SseRecording recording) {
+        try {
+            Files.createDirectories(dir);
+            if (currentFile == null || !Files.exists(currentFile) || Files.size(currentFile) >= maxFileBytes) {
+                currentFile = dir.resolve("upstream-" + LocalDateTime.now().format(FILE_NAME) + FILE_SUFFIX);
+                cleanOldFiles();
+            }
+            try (Writer writer = Files.newBufferedWriter(currentFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                recording.write(writer);
+            }
+            log.debug("录制上游{}流: {} 行，写入 {}", recording.getKind(), recording.getLines().size(), currentFile);
+        } catch (IOException e) {
+            log.warn("写入上游流录制失败: {}", e.getMessage());
+        }
+    }
+
+    private void cleanOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(f -> f.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .toList();
+        }
+        // 即将创建的新文件占一个名额
+        for (int i = Math.max(1, config.getMaxFiles()) - 1; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * 单条流的录制过程，由读取响应的线程调用（取消时关闭响应可能来自其他线程）
+     */
+    public class Capture {
+
+        private final SseRecording recording;
+        private final long startNanos;
+        private long bytes;
+        private boolean overflow;
+        private boolean finished;
+
+        private Capture(SseRecording recording, long startNanos) {
+            this.recording = recording;
+            this.startNanos = startNanos;
+        }
+
+        public synchronized void line(String text) {
+            if (overflow) {
+                return;
+            }
+            bytes += text.length() + 16;
+            if (bytes > maxStreamBytes) {
+                // 超出单条上限：放弃本条录制
+                overflow = true;
+                recording.getLines().clear();
+                return;
+            }
+            long offsetMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            recording.getLines().add(new SseRecording.Line(offsetMs, redact(text)));
+        }
+
+        public synchronized void finish(boolean complete) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (overflow || recording.getLines().isEmpty()) {
+                return;
+            }
+            recording.setComplete(complete);
+            submit(recording);
+        }
+    }
+
+    /**
+     * 停止时写完已排队的录制
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
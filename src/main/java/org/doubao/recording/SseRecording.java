@@ -0,0 +1,117 @@
+package org.doubao.recording;
+
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 一条录制的上游 SSE 流。文件格式（UTF-8 文本，可多条连续追加）：
+ * <pre>
+ * #stream kind=chat status=200 ttfb=312 complete=true
+ * 0	data: {...}
+ * 0
+ * 105	data: {...}
+ * #end
+ * </pre>
+ * 每行为“相对响应头到达的毫秒偏移 + Tab + 原始行内容”
+ */
+@Data
+public class SseRecording {
+
+    public static final String CHAT = "chat";
+    public static final String IMAGE = "image";
+
+    private static final String STREAM_HEADER = "#stream";
+    private static final String STREAM_END = "#end";
+    // 生图请求的消息类型
+    private static final Pattern IMAGE_REQUEST = Pattern.compile("\"content_type\"\\s*:\\s*2009\\b");
+
+    private String kind;
+
+    private int status;
+
+    private long ttfbMs; // 发出请求到收到响应头的耗时
+
+    private boolean complete; // 是否读到流结束（客户端提前断开时为 false）
+
+    private List<Line> lines = new ArrayList<>();
+
+    public record Line(long offsetMs, String text) {
+    }
+
+    /**
+     * 按上游请求体区分聊天和生图
+     */
+    public static String kindOf(String requestBody) {
+        return requestBody != null && IMAGE_REQUEST.matcher(requestBody).find() ? IMAGE : CHAT;
+    }
+
+    public void write(Writer writer) throws IOException {
+        writer.write(STREAM_HEADER + " kind=" + kind + " status=" + status + " ttfb=" + ttfbMs
+                + " complete=" + complete + "\n");
+        for (Line line : lines) {
+            writer.write(line.offsetMs() + "\t" + line.text() + "\n");
+        }
+        writer.write(STREAM_END + "\n");
+    }
+
+    /**
+     * 读取文件中的全部录制，格式不完整的记录跳过
+     */
+    public static List<SseRecording> readAll(BufferedReader reader) throws IOException {
+        List<SseRecording> recordings = new ArrayList<>();
+        SseRecording current = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(STREAM_HEADER)) {
+                current = parseHeader(line);
+            } else if (line.equals(STREAM_END)) {
+                if (current != null) {
+                    recordings.add(current);
+                }
+                current = null;
+            } else if (current != null) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) {
+                    current = null;
+                    continue;
+                }
+                try {
+                    current.lines.add(new Line(Long.parseLong(line.substring(0, tab)), line.substring(tab + 1)));
+                } catch (NumberFormatException e) {
+                    current = null;
+                }
+            }
+        }
+        return recordings;
+    }
+
+    private static SseRecording parseHeader(String header) {
+        SseRecording recording = new SseRecording();
+        recording.setKind(CHAT);
+        for (String field : header.substring(STREAM_HEADER.length()).trim().split("\\s+")) {
+            int eq = field.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String value = field.substring(eq + 1);
+            try {
+                switch (field.substring(0, eq)) {
+                    case "kind" -> recording.setKind(value);
+                    case "status" -> recording.setStatus(Integer.parseInt(value));
+                    case "ttfb" -> recording.setTtfbMs(Long.parseLong(value));
+                    case "complete" -> recording.setComplete(Boolean.parseBoolean(value));
+                    default -> {
+                    }
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return recording;
+    }
+}
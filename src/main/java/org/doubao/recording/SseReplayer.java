@@ -0,0 +1,108 @@
+package org.doubao.recording;
+
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 录制回放：启动时加载录制文件，按聊天 / 生图分组轮流回放，按原始间隔（可加速）逐行输出
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "doubao.sse-replay", name = "enabled", havingValue = "true")
+public class SseReplayer {
+
+    private final double speed;
+    private final Map<String, List<SseRecording>> recordings = new HashMap<>();
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    public SseReplayer(DoubaoProperties doubaoProperties) throws IOException {
+        DoubaoProperties.SseReplayConfig config = doubaoProperties.getSseReplay();
+        this.speed = config.getSpeed();
+        Path dir = Paths.get(config.getDir()).toAbsolutePath();
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> list = Files.list(dir)) {
+                list.filter(f -> f.getFileName().toString().endsWith(SseRecorder.FILE_SUFFIX))
+                        .sorted()
+                        .forEach(files::add);
+            }
+        }
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                for (SseRecording recording : SseRecording.readAll(reader)) {
+                    recordings.computeIfAbsent(recording.getKind(), k -> new ArrayList<>()).add(recording);
+                }
+            }
+        }
+        log.info("加载上游流录制[{}]，文件数: {}，聊天: {} 条，生图: {} 条，回放速度: {}x", dir, files.size(),
+                recordings.getOrDefault(SseRecording.CHAT, List.of()).size(),
+                recordings.getOrDefault(SseRecording.IMAGE, List.of()).size(), speed);
+    }
+
+    /**
+     * 轮流取同类录制；没有同类录制时返回 null
+     */
+    public SseRecording next(String kind) {
+        List<SseRecording> candidates = recordings.get(kind);
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(Math.floorMod(cursor.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * 按录制时的首字节耗时等待（发送响应头之前调用）
+     */
+    public void awaitFirstByte(SseRecording recording) throws IOException {
+        pause(System.nanoTime(), recording.getTtfbMs());
+    }
+
+    /**
+     * 按录制时的行间隔输出，每个事件结束（空行）时刷新
+     */
+    public void replay(SseRecording recording, OutputStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        for (SseRecording.Line line : recording.getLines()) {
+            pause(startNanos, line.offsetMs());
+            out.write(line.text().getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            if (line.text().isEmpty()) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    private void pause(long startNanos, long offsetMs) throws IOException {
+        if (speed <= 0) {
+            return;
+        }
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos((long) (offsetMs / speed)) - (System.nanoTime() - startNanos);
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("回放被中断", e);
+        }
+    }
+}
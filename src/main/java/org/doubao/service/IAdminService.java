@@ -0,0 +1,19 @@
+package org.doubao.service;
+
+import org.doubao.domain.vo.AccountState;
+import org.doubao.domain.vo.RuntimeStats;
+
+import java.util.List;
+
+public interface IAdminService {
+
+    /**
+     * 聊天和生图各账号的实时状态：健康、进行中请求、绑定会话、最近耗时分位数
+     */
+    List<AccountState> getAccounts(String apiKey);
+
+    /**
+     * 连接池、线程池队列、缓存命中率和会话数
+     */
+    RuntimeStats getRuntime(String apiKey);
+}
@@ -0,0 +1,29 @@
+package org.doubao.service;
+
+import org.doubao.domain.vo.ChatBatch;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface IChatBatchService {
+
+    /**
+     * 创建批量任务：输入为 JSONL（每行一个聊天请求），边读边写入磁盘
+     */
+    ChatBatch create(InputStream input, String apiKey);
+
+    /**
+     * 查询批量任务（不存在返回 null）
+     */
+    ChatBatch get(String batchId, String apiKey);
+
+    /**
+     * 取消批量任务：不再派发新请求，执行中的请求完成后结束
+     */
+    ChatBatch cancel(String batchId, String apiKey);
+
+    /**
+     * 获取结果文件路径（JSONL，按完成顺序写入）
+     */
+    Path getOutputFile(String batchId, String apiKey);
+}
@@ -1,8 +1,13 @@
 package org.doubao.service;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.doubao.domain.AccountStatus;
 import org.doubao.domain.dto.ImageGenerationRequest;
 import org.doubao.domain.vo.ImageGenerationResponse;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.doubao.stream.StreamSink;
+
+import java.util.List;
 
 public interface IDoubaoImageService {
 
@@ -12,7 +17,25 @@ public interface IDoubaoImageService {
     ImageGenerationResponse generateImage(ImageGenerationRequest request, String apiKey);
 
     /**
-     * 流式生图（实时返回生成状态/结果）
+     * 流式生图（SSE，实时返回生成状态/结果），校验通过后开启异步响应
+     */
+    void generateImageStream(ImageGenerationRequest request, String apiKey,
+                             HttpServletRequest httpRequest, HttpServletResponse httpResponse);
+
+    /**
+     * 流式生图，输出到指定通道（WebSocket 等非 SSE 传输复用）
      */
-    SseEmitter generateImageStream(ImageGenerationRequest request, String apiKey);
+    void generateImageStream(ImageGenerationRequest request, String apiKey, StreamSink sink);
+
+    /**
+     * 各账号状态（按账号索引），供管理接口只读展示
+     */
+    List<AccountStatus> getAccountStatuses();
+
+    /**
+     * 健康账号数（计数器维护，不扫描账号表）
+     */
+    int getHealthyAccountCount();
+
+    int getSessionCount();
 }
@@ -1,17 +1,55 @@
 package org.doubao.service;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.doubao.domain.AccountStatus;
 import org.doubao.domain.dto.ChatCompletionRequest;
 import org.doubao.domain.vo.ChatCompletionResponse;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.doubao.domain.vo.UpstreamTrafficStats;
+import org.doubao.stream.StreamSink;
+
+import java.util.List;
 
 public interface IDoubaoService {
 
-    SseEmitter chatCompletionsStream(ChatCompletionRequest request, String apiKey);
+    /**
+     * 流式聊天（SSE），校验通过后开启异步响应
+     */
+    void chatCompletionsStream(ChatCompletionRequest request, String apiKey,
+                               HttpServletRequest httpRequest, HttpServletResponse httpResponse);
+
+    /**
+     * 流式聊天，输出到指定通道（WebSocket 等非 SSE 传输复用）
+     */
+    void chatCompletionsStream(ChatCompletionRequest request, String apiKey, StreamSink sink);
 
     ChatCompletionResponse chatCompletions(ChatCompletionRequest request, String apiKey);
 
+    /**
+     * 直接在指定账号上执行一次非流式聊天（离线批量按账号限流时使用）：不建立会话、不修改传入的请求，
+     * 仅支持 n=1；账号已失效时直接失败，不改派到其他账号
+     */
+    ChatCompletionResponse chatCompletionsOnAccount(ChatCompletionRequest request, String apiKey, int accountIndex);
+
     Object getModels(String apiKey);
 
+    /**
+     * 上游流量统计（解压前后字节数）
+     */
+    UpstreamTrafficStats getUpstreamStats(String apiKey);
+
     String healthCheck();
 
+    /**
+     * 各账号状态（按账号索引），供管理接口只读展示
+     */
+    List<AccountStatus> getAccountStatuses();
+
+    /**
+     * 健康账号数（计数器维护，不扫描账号表）
+     */
+    int getHealthyAccountCount();
+
+    int getSessionCount();
+
 }
@@ -0,0 +1,25 @@
+package org.doubao.service;
+
+import org.doubao.domain.vo.CacheStats;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public interface IIdempotencyService {
+
+    /**
+     * 按 Idempotency-Key 执行请求：相同键的重试加入进行中的执行或直接返回保留期内的结果，不再调用上游。
+     * key 为空时直接执行；同一个键用于不同请求体时拒绝。重试在进行中的执行结果上异步组合，不阻塞线程等待
+     *
+     * @param scope   接口范围（chat / image），不同接口的键互不影响
+     * @param request 请求体，用于校验重试请求与首次请求一致
+     * @param action  发起异步执行（仅首次请求调用）
+     */
+    <T> CompletableFuture<T> execute(String scope, String key, String apiKey, Object request,
+                                     Supplier<CompletableFuture<T>> action);
+
+    /**
+     * 结果缓存统计：命中包括直接返回已保存结果和加入进行中的执行
+     */
+    CacheStats getStats();
+}
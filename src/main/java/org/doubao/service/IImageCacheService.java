@@ -0,0 +1,28 @@
+package org.doubao.service;
+
+import org.doubao.domain.dto.ImageGenerationRequest;
+import org.doubao.domain.vo.CacheStats;
+import org.doubao.domain.vo.ImageGenerationResponse;
+
+public interface IImageCacheService {
+
+    /**
+     * 查询缓存的生图结果（未命中或已过期返回 null）
+     */
+    ImageGenerationResponse get(ImageGenerationRequest request);
+
+    /**
+     * 缓存生图结果
+     */
+    void put(ImageGenerationRequest request, ImageGenerationResponse response);
+
+    /**
+     * 清空缓存
+     */
+    void clear();
+
+    /**
+     * 缓存命中统计
+     */
+    CacheStats getStats();
+}
@@ -0,0 +1,23 @@
+package org.doubao.service;
+
+import org.doubao.domain.dto.ImageJobRequest;
+import org.doubao.domain.vo.ImageJob;
+import org.doubao.domain.vo.ImageJobStats;
+
+public interface IImageJobService {
+
+    /**
+     * 提交异步生图任务（立即返回任务信息）
+     */
+    ImageJob submit(ImageJobRequest request, String apiKey);
+
+    /**
+     * 查询任务状态（不存在返回 null）
+     */
+    ImageJob getJob(String jobId, String apiKey);
+
+    /**
+     * 队列统计
+     */
+    ImageJobStats getStats(String apiKey);
+}
@@ -0,0 +1,16 @@
+package org.doubao.service;
+
+import org.doubao.domain.vo.MirroredImage;
+
+public interface IImageMirrorService {
+
+    /**
+     * 登记上游图片并在后台下载到本地，返回改写后的本地访问地址（未启用时原样返回）
+     */
+    String mirror(String sourceUrl, String format);
+
+    /**
+     * 按镜像键查询本地图片（不存在返回 null）
+     */
+    MirroredImage resolve(String key);
+}
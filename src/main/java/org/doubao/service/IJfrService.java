@@ -0,0 +1,25 @@
+package org.doubao.service;
+
+import org.doubao.domain.vo.JfrRecordingStatus;
+
+import java.nio.file.Path;
+
+public interface IJfrService {
+
+    /**
+     * 开始录制（settings 为 JDK 内置配置 default 或 profile），已在录制时返回当前状态
+     */
+    JfrRecordingStatus start(String settings, String apiKey);
+
+    /**
+     * 导出当前录制内容到文件，录制继续进行；未在录制时返回 null
+     */
+    Path dump(String apiKey);
+
+    /**
+     * 停止录制并丢弃未导出的数据
+     */
+    JfrRecordingStatus stop(String apiKey);
+
+    JfrRecordingStatus getStatus(String apiKey);
+}
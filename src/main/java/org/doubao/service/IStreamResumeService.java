@@ -0,0 +1,28 @@
+package org.doubao.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.doubao.stream.StreamSink;
+
+public interface IStreamResumeService {
+
+    /**
+     * 为新的流式请求开启异步 SSE 响应并创建输出通道（未启用续传时为普通 SSE 通道）
+     */
+    StreamSink open(HttpServletRequest request, HttpServletResponse response, long timeout);
+
+    /**
+     * 按 Last-Event-ID 续传：回放缺失事件并接续仍在进行的上游输出；格式无效时抛出 400，流不存在、已过期或无法无缝续传时
+     * 抛出 410（未开启响应），不按新请求重新生成。未启用续传时忽略 Last-Event-ID 并返回 false。
+     * 没有 Last-Event-ID 时按 Idempotency-Key 加入相同请求的流，首次请求返回 false 并登记，调用方随后须调用 {@link #release}
+     *
+     * @param body 请求体，用于校验幂等重试与首次请求一致
+     */
+    boolean resume(String lastEventId, String apiKey, Object body,
+                   HttpServletRequest request, HttpServletResponse response, long timeout);
+
+    /**
+     * 请求处理结束：释放未能开启流的幂等登记（已开启流时无操作）
+     */
+    void release(HttpServletRequest request);
+}
@@ -0,0 +1,13 @@
+package org.doubao.service;
+
+import org.doubao.domain.vo.TraceSpan;
+
+import java.util.List;
+
+public interface ITraceService {
+
+    /**
+     * 查询内存中最近的 Span（traceId 为空时返回全部链路）
+     */
+    List<TraceSpan> getRecentSpans(String traceId, int limit, String apiKey);
+}
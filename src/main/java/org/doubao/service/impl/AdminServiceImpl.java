@@ -0,0 +1,160 @@
+package org.doubao.service.impl;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.AccountStatus;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.vo.AccountState;
+import org.doubao.domain.vo.RuntimeStats;
+import org.doubao.metrics.DoubaoMetrics;
+import org.doubao.recording.SseRecorder;
+import org.doubao.service.IAdminService;
+import org.doubao.service.IDoubaoImageService;
+import org.doubao.service.IDoubaoService;
+import org.doubao.service.IIdempotencyService;
+import org.doubao.service.IImageCacheService;
+import org.doubao.tracing.DoubaoTracing;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 只读管理接口：数据全部来自各组件维护的计数器，查询时不扫描会话表或账号表（请求路径上的账号选择同样不扫描；
+ * 仅账号由健康变为失效时扫描一次会话绑定表以清理会话）
+ */
+@Service
+public class AdminServiceImpl implements IAdminService {
+
+    private final DoubaoProperties doubaoProperties;
+    private final IDoubaoService doubaoService;
+    private final IDoubaoImageService doubaoImageService;
+    private final IImageCacheService imageCacheService;
+    private final IIdempotencyService idempotencyService;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final ThreadPoolTaskExecutor relayExecutor;
+    private final ThreadPoolTaskScheduler streamScheduler;
+    private final SseRecorder sseRecorder;
+
+    public AdminServiceImpl(DoubaoProperties doubaoProperties,
+                            IDoubaoService doubaoService,
+                            IDoubaoImageService doubaoImageService,
+                            IImageCacheService imageCacheService,
+                            IIdempotencyService idempotencyService,
+                            PoolingHttpClientConnectionManager connectionManager,
+                            @Qualifier("relayExecutor") ThreadPoolTaskExecutor relayExecutor,
+                            @Qualifier("streamScheduler") ThreadPoolTaskScheduler streamScheduler,
+                            SseRecorder sseRecorder) {
+        this.doubaoProperties = doubaoProperties;
+        this.doubaoService = doubaoService;
+        this.doubaoImageService = doubaoImageService;
+        this.imageCacheService = imageCacheService;
+        this.idempotencyService = idempotencyService;
+        this.connectionManager = connectionManager;
+        this.relayExecutor = relayExecutor;
+        this.streamScheduler = streamScheduler;
+        this.sseRecorder = sseRecorder;
+    }
+
+    @Override
+    public List<AccountState> getAccounts(String apiKey) {
+        validateApiKey(apiKey);
+        List<AccountState> states = new ArrayList<>();
+        doubaoService.getAccountStatuses().forEach(status -> states.add(toState(DoubaoMetrics.CHAT, status)));
+        doubaoImageService.getAccountStatuses().forEach(status -> states.add(toState(DoubaoMetrics.IMAGE, status)));
+        return states;
+    }
+
+    @Override
+    public RuntimeStats getRuntime(String apiKey) {
+        validateApiKey(apiKey);
+        RuntimeStats stats = new RuntimeStats();
+
+        PoolStats poolStats = connectionManager.getTotalStats();
+        RuntimeStats.PoolStats httpPool = new RuntimeStats.PoolStats();
+        httpPool.setLeased(poolStats.getLeased());
+        httpPool.setPending(poolStats.getPending());
+        httpPool.setAvailable(poolStats.getAvailable());
+        httpPool.setMax(poolStats.getMax());
+        stats.setHttpPool(httpPool);
+
+        stats.setExecutors(List.of(
+                toExecutorStats("relay", relayExecutor.getThreadPoolExecutor()),
+                toExecutorStats("stream-scheduler", streamScheduler.getScheduledThreadPoolExecutor())));
+        stats.setCaches(List.of(imageCacheService.getStats(), idempotencyService.getStats()));
+
+        stats.setChatSessions(doubaoService.getSessionCount());
+        stats.setImageSessions(doubaoImageService.getSessionCount());
+        stats.setHealthyChatAccounts(doubaoService.getHealthyAccountCount());
+        stats.setHealthyImageAccounts(doubaoImageService.getHealthyAccountCount());
+        stats.setSseRecordDropped(sseRecorder.getDropped());
+        stats.setJvm(getJvmStats());
+        return stats;
+    }
+
+    private RuntimeStats.JvmStats getJvmStats() {
+        RuntimeStats.JvmStats jvm = new RuntimeStats.JvmStats();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        jvm.setThreads(threads.getThreadCount());
+        jvm.setPeakThreads(threads.getPeakThreadCount());
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        jvm.setHeapUsed(heap.getUsed());
+        jvm.setHeapCommitted(heap.getCommitted());
+        jvm.setHeapMax(heap.getMax());
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            jvm.setGcCount(jvm.getGcCount() + Math.max(0, gc.getCollectionCount()));
+            jvm.setGcTimeMs(jvm.getGcTimeMs() + Math.max(0, gc.getCollectionTime()));
+        }
+        return jvm;
+    }
+
+    private AccountState toState(String service, AccountStatus status) {
+        AccountState state = new AccountState();
+        state.setService(service);
+        state.setIndex(status.getAccountIndex());
+        state.setAccount(DoubaoTracing.hashAccount(status.getAccountKey()));
+        state.setHealthy(status.isHealthy());
+        state.setLastFailTime(status.getLastFailTime() > 0 ? status.getLastFailTime() : null);
+        state.setLastFailReason(status.getLastFailReason());
+        state.setInFlight(status.getActiveConnections());
+        state.setBoundSessions(status.getBoundSessions());
+        state.setRequests(status.getRequests());
+        state.setErrors(status.getErrors());
+        double[] percentiles = status.getLatency().percentilesMillis(0.5, 0.9, 0.99);
+        state.setLatencyP50Ms(percentiles[0]);
+        state.setLatencyP90Ms(percentiles[1]);
+        state.setLatencyP99Ms(percentiles[2]);
+        state.setLatencySamples(status.getLatency().size());
+        return state;
+    }
+
+    private RuntimeStats.ExecutorStats toExecutorStats(String name, ThreadPoolExecutor executor) {
+        RuntimeStats.ExecutorStats stats = new RuntimeStats.ExecutorStats();
+        stats.setName(name);
+        stats.setActive(executor.getActiveCount());
+        stats.setPoolSize(executor.getPoolSize());
+        stats.setMaxPoolSize(executor.getMaximumPoolSize());
+        stats.setQueueSize(executor.getQueue().size());
+        // 调度器的延迟队列无界
+        stats.setQueueRemaining(executor instanceof ScheduledThreadPoolExecutor
+                ? -1 : executor.getQueue().remainingCapacity());
+        stats.setCompleted(executor.getCompletedTaskCount());
+        return stats;
+    }
+
+    private void validateApiKey(String apiKey) {
+        if (!doubaoProperties.getApiKey().equals(apiKey)) {
+            throw new ServiceException("无效的API密钥");
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.AccountStatus;
+import org.doubao.domain.dto.ChatCompletionRequest;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.domain.vo.ChatBatch;
+import org.doubao.domain.vo.ChatCompletionResponse;
+import org.doubao.service.IChatBatchService;
+import org.doubao.service.IDoubaoService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 离线批量聊天：输入 JSONL 落盘后逐行派发，每个健康账号同时执行的批量请求不超过“每账号并发”（所有批量任务共享），
+ * 每行在分配到的账号上直接执行（不建立会话，仅支持 n=1）；结果按完成顺序追加写入输出 JSONL，重启后根据输出文件跳过已完成的行继续执行
+ */
+@Slf4j
+@Service
+public class ChatBatchServiceImpl implements IChatBatchService {
+
+    private static final String INPUT_FILE = "input.jsonl";
+    private static final String OUTPUT_FILE = "output.jsonl";
+    private static final String META_FILE = "batch.json";
+
+    private final DoubaoProperties doubaoProperties;
+    private final IDoubaoService doubaoService;
+    private final ObjectMapper objectMapper;
+    private final Executor relayExecutor;
+    private final Path storageDir;
+
+    private final Map<String, ChatBatch> batches = new ConcurrentHashMap<>();
+    // 每个批量任务一个派发线程
+    private final ExecutorService batchDispatcher = Executors.newCachedThreadPool();
+    // 各账号（按索引）进行中的批量请求数，以自身为锁
+    private final int[] accountInFlight;
+
+    public ChatBatchServiceImpl(DoubaoProperties doubaoProperties,
+                                IDoubaoService doubaoService,
+                                ObjectMapper objectMapper,
+                                @Qualifier("relayExecutor") Executor relayExecutor) {
+        this.doubaoProperties = doubaoProperties;
+        this.doubaoService = doubaoService;
+        this.objectMapper = objectMapper;
+        this.relayExecutor = relayExecutor;
+        this.storageDir = Paths.get(doubaoProperties.getBatch().getStorageDir()).toAbsolutePath();
+        this.accountInFlight = new int[doubaoProperties.getAccounts().size()];
+
+        // 恢复重启前未完成的批量任务
+        resumeBatches();
+    }
+
+    @Override
+    public ChatBatch create(InputStream input, String apiKey) {
+        validateApiKey(apiKey);
+        String batchId = "batch_" + UUID.randomUUID().toString().replace("-", "");
+        Path batchDir = storageDir.resolve(batchId);
+
+        try {
+            Files.createDirectories(batchDir);
+            Path inputFile = batchDir.resolve(INPUT_FILE);
+            Files.copy(input, inputFile);
+
+            ChatBatch batch = new ChatBatch();
+            batch.setId(batchId);
+            batch.setStatus(ChatBatch.IN_PROGRESS);
+            batch.setCreatedAt(System.currentTimeMillis() / 1000);
+            batch.getRequestCounts().setTotal(countRequests(inputFile));
+            if (batch.getRequestCounts().getTotal() == 0) {
+                throw new ServiceException("批量请求文件为空", HttpStatus.BAD_REQUEST);
+            }
+            Files.createFile(batchDir.resolve(OUTPUT_FILE));
+            saveMeta(batch);
+            batches.put(batchId, batch);
+
+            log.info("创建批量任务[{}]，请求数: {}", batchId, batch.getRequestCounts().getTotal());
+            batchDispatcher.execute(() -> runBatch(batch, new BitSet()));
+            return batch;
+        } catch (IOException e) {
+            log.error("创建批量任务失败[{}]", batchId, e);
+            throw new ServiceException("创建批量任务失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public ChatBatch get(String batchId, String apiKey) {
+        validateApiKey(apiKey);
+        return batches.get(batchId);
+    }
+
+    @Override
+    public ChatBatch cancel(String batchId, String apiKey) {
+        validateApiKey(apiKey);
+        ChatBatch batch = batches.get(batchId);
+        if (batch != null && ChatBatch.IN_PROGRESS.equals(batch.getStatus())) {
+            batch.setStatus(ChatBatch.CANCELLING);
+            saveMeta(batch);
+            log.info("取消批量任务[{}]", batchId);
+        }
+        return batch;
+    }
+
+    @Override
+    public Path getOutputFile(String batchId, String apiKey) {
+        validateApiKey(apiKey);
+        if (!batches.containsKey(batchId)) {
+            return null;
+        }
+        return storageDir.resolve(batchId).resolve(OUTPUT_FILE);
+    }
+
+    /**
+     * 执行批量任务：逐行读取输入（不整体加载），取得有空闲并发的账号后派发到转发线程池
+     */
+    private void runBatch(ChatBatch batch, BitSet doneLines) {
+        Path batchDir = storageDir.resolve(batch.getId());
+        // 进行中的请求（派发线程自身占一个）
+        Phaser running = new Phaser(1);
+        AtomicLong sinceLastSave = new AtomicLong();
+
+        try (BufferedReader reader = Files.newBufferedReader(batchDir.resolve(INPUT_FILE), StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(batchDir.resolve(OUTPUT_FILE),
+                     StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+
+            String line;
+            int lineNo = -1;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || doneLines.get(lineNo)) {
+                    continue;
+                }
+                if (!ChatBatch.IN_PROGRESS.equals(batch.getStatus())) {
+                    break;
+                }
+
+                int account = acquireAccount();
+                final String requestLine = line;
+                final int currentLine = lineNo;
+                running.register();
+                Runnable task = () -> {
+                    try {
+                        String result = executeLine(batch, requestLine, currentLine, account);
+                        synchronized (writer) {
+                            writer.write(result);
+                            writer.write('\n');
+                            writer.flush();
+                        }
+                        if (sinceLastSave.incrementAndGet() % 100 == 0) {
+                            saveMeta(batch);
+                        }
+                    } catch (IOException e) {
+                        log.error("写入批量结果失败[{}]，行号: {}", batch.getId(), currentLine, e);
+                    } finally {
+                        releaseAccount(account);
+                        running.arriveAndDeregister();
+                    }
+                };
+                // 转发线程池已满时稍后重试，不丢弃请求
+                while (true) {
+                    try {
+                        relayExecutor.execute(task);
+                        break;
+                    } catch (RejectedExecutionException e) {
+                        Thread.sleep(100);
+                    }
+                }
+            }
+
+            // 等待执行中的请求全部完成
+            running.awaitAdvanceInterruptibly(running.arrive());
+            batch.setStatus(ChatBatch.CANCELLING.equals(batch.getStatus()) ? ChatBatch.CANCELLED : ChatBatch.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("批量任务[{}]被中断，重启后继续执行", batch.getId());
+            return;
+        } catch (Exception e) {
+            log.error("批量任务执行失败[{}]", batch.getId(), e);
+            batch.setStatus(ChatBatch.FAILED);
+            batch.setErrorMessage(e.getMessage());
+        }
+
+        batch.setCompletedAt(System.currentTimeMillis() / 1000);
+        saveMeta(batch);
+        log.info("批量任务[{}]结束，状态: {}，成功: {}，失败: {}，总数: {}", batch.getId(), batch.getStatus(),
+                batch.getRequestCounts().getCompleted(), batch.getRequestCounts().getFailed(),
+                batch.getRequestCounts().getTotal());
+    }
+
+    /**
+     * 选择进行中批量请求最少且未达到每账号并发上限的健康账号，均已达到上限时等待。
+     * 没有健康账号时返回 -1，由常规账号选择直接返回失败
+     */
+    private int acquireAccount() throws InterruptedException {
+        int limit = Math.max(1, doubaoProperties.getBatch().getPerAccountConcurrency());
+        synchronized (accountInFlight) {
+            while (true) {
+                List<AccountStatus> statuses = doubaoService.getAccountStatuses();
+                int selected = -1;
+                boolean anyHealthy = false;
+                for (AccountStatus status : statuses) {
+                    int index = status.getAccountIndex();
+                    if (!status.isHealthy() || index >= accountInFlight.length) {
+                        continue;
+                    }
+                    anyHealthy = true;
+                    if (accountInFlight[index] < limit
+                            && (selected < 0 || accountInFlight[index] < accountInFlight[selected])) {
+                        selected = index;
+                    }
+                }
+                if (selected >= 0) {
+                    accountInFlight[selected]++;
+                    return selected;
+                }
+                if (!anyHealthy) {
+                    return -1;
+                }
+                // 账号状态变化（失效 / 恢复）不会通知，定时重新检查
+                accountInFlight.wait(1000);
+            }
+        }
+    }
+
+    private void releaseAccount(int account) {
+        if (account < 0) {
+            return;
+        }
+        synchronized (accountInFlight) {
+            accountInFlight[account]--;
+            accountInFlight.notifyAll();
+        }
+    }
+
+    /**
+     * 执行单行请求，返回结果行（支持 {"custom_id": ..., "body": {...}} 包装格式或直接为聊天请求）
+     */
+    private String executeLine(ChatBatch batch, String line, int lineNo, int account) throws IOException {
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("id", "batch_req_" + UUID.randomUUID().toString().replace("-", ""));
+        output.put("line", lineNo);
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            JsonNode body = node.has("body") ? node.get("body") : node;
+            if (node.hasNonNull("custom_id")) {
+                output.put("custom_id", node.get("custom_id").asText());
+            }
+
+            ChatCompletionRequest request = objectMapper.treeToValue(body, ChatCompletionRequest.class);
+            request.setStream(false);
+            // n>1 会扇出到其他账号，绕过每账号并发限制
+            if (request.getN() != null && request.getN() > 1) {
+                throw new ServiceException("批量请求不支持 n>1", HttpStatus.BAD_REQUEST);
+            }
+
+            // 每行都是新对话，避免不相关的请求共享对话上下文
+            ChatCompletionResponse response;
+            if (account >= 0) {
+                response = doubaoService.chatCompletionsOnAccount(request, doubaoProperties.getApiKey(), account);
+            } else {
+                request.setUser(null);
+                response = doubaoService.chatCompletions(request, doubaoProperties.getApiKey());
+            }
+            output.put("response", Map.of("status_code", 200, "body", response));
+            output.put("error", null);
+            synchronized (batch) {
+                batch.getRequestCounts().setCompleted(batch.getRequestCounts().getCompleted() + 1);
+            }
+        } catch (Exception e) {
+            log.warn("批量请求失败[{}]，行号: {}: {}", batch.getId(), lineNo, e.getMessage());
+            output.put("response", null);
+            output.put("error", Map.of("message", String.valueOf(e.getMessage())));
+            synchronized (batch) {
+                batch.getRequestCounts().setFailed(batch.getRequestCounts().getFailed() + 1);
+            }
+        }
+        return objectMapper.writeValueAsString(output);
+    }
+
+    /**
+     * 统计输入文件中的请求数（非空行）
+     */
+    private long countRequests(Path inputFile) throws IOException {
+        try (Stream<String> lines = Files.lines(inputFile, StandardCharsets.UTF_8)) {
+            return lines.filter(line -> !line.isBlank()).count();
+        }
+    }
+
+    /**
+     * 保存任务元数据（先写临时文件再原子替换）
+     */
+    private void saveMeta(ChatBatch batch) {
+        Path batchDir = storageDir.resolve(batch.getId());
+        try {
+            Path tmp = batchDir.resolve(META_FILE + ".tmp");
+            synchronized (batch) {
+                Files.write(tmp, objectMapper.writeValueAsBytes(batch));
+            }
+            Files.move(tmp, batchDir.resolve(META_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("保存批量任务元数据失败[{}]", batch.getId(), e);
+        }
+    }
+
+    /**
+     * 启动时加载批量任务，未结束的任务根据输出文件跳过已完成的行后继续执行
+     */
+    private void resumeBatches() {
+        if (!Files.isDirectory(storageDir)) {
+            return;
+        }
+        try (Stream<Path> dirs = Files.list(storageDir)) {
+            for (Path batchDir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                Path metaFile = batchDir.resolve(META_FILE);
+                if (!Files.exists(metaFile)) {
+                    continue;
+                }
+                ChatBatch batch = objectMapper.readValue(metaFile.toFile(), ChatBatch.class);
+                batches.put(batch.getId(), batch);
+
+                boolean unfinished = ChatBatch.IN_PROGRESS.equals(batch.getStatus())
+                        || ChatBatch.CANCELLING.equals(batch.getStatus());
+                if (!unfinished) {
+                    continue;
+                }
+                BitSet doneLines = loadDoneLines(batch, batchDir.resolve(OUTPUT_FILE));
+                if (ChatBatch.CANCELLING.equals(batch.getStatus())) {
+                    batch.setStatus(ChatBatch.CANCELLED);
+                    batch.setCompletedAt(System.currentTimeMillis() / 1000);
+                    saveMeta(batch);
+                    continue;
+                }
+                log.info("恢复批量任务[{}]，已完成: {}/{}", batch.getId(), doneLines.cardinality(),
+                        batch.getRequestCounts().getTotal());
+                batchDispatcher.execute(() -> runBatch(batch, doneLines));
+            }
+        } catch (IOException e) {
+            log.error("加载批量任务失败: {}", storageDir, e);
+        }
+    }
+
+    /**
+     * 读取输出文件中已完成的行号并重新统计成功/失败数，截掉异常退出时写了一半的末行；
+     * 中间无法解析或缺少行号的记录（如手工编辑过）跳过，对应行重新执行
+     */
+    BitSet loadDoneLines(ChatBatch batch, Path outputFile) throws IOException {
+        BitSet doneLines = new BitSet();
+        long completed = 0;
+        long failed = 0;
+        long offset = 0;
+        long validLength = 0;
+        try (BufferedReader reader = Files.newBufferedReader(outputFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    log.warn("批量结果记录无法解析，跳过[{}]: {}", batch.getId(), line);
+                    continue;
+                }
+                validLength = offset;
+                JsonNode lineNode = node == null ? null : node.path("line");
+                if (lineNode == null || !lineNode.isIntegralNumber() || !lineNode.canConvertToInt()
+                        || lineNode.intValue() < 0) {
+                    if (!line.isBlank()) {
+                        log.warn("批量结果记录缺少行号，跳过[{}]: {}", batch.getId(), line);
+                    }
+                    continue;
+                }
+                if (doneLines.get(lineNode.intValue())) {
+                    continue;
+                }
+                doneLines.set(lineNode.intValue());
+                if (node.hasNonNull("error")) {
+                    failed++;
+                } else {
+                    completed++;
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            } else if (channel.size() == validLength - 1) {
+                // 末行完整但缺少换行符
+                channel.write(ByteBuffer.wrap(new byte[]{'\n'}), channel.size());
+            }
+        }
+        batch.getRequestCounts().setCompleted(completed);
+        batch.getRequestCounts().setFailed(failed);
+        return doneLines;
+    }
+
+    private void validateApiKey(String apiKey) {
+        if (!doubaoProperties.getApiKey().equals(apiKey)) {
+            throw new ServiceException("无效的API密钥");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batches.values().stream()
+                .filter(batch -> ChatBatch.IN_PROGRESS.equals(batch.getStatus()))
+                .forEach(this::saveMeta);
+        batchDispatcher.shutdownNow();
+    }
+}
@@ -3,6 +3,11 @@ package org.doubao.service.impl;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
@@ -17,13 +22,29 @@ import org.doubao.domain.dto.ChatCompletionRequest;
 import org.doubao.domain.dto.ImageGenerationRequest;
 import org.doubao.domain.dto.SignatureRequest;
 import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
 import org.doubao.domain.vo.ImageGenerationResponse;
 import org.doubao.domain.vo.SignatureResponse;
+import org.doubao.http.UpstreamRecordingExec;
+import org.doubao.jfr.AccountStateEvent;
+import org.doubao.jfr.SessionEvictionEvent;
+import org.doubao.jfr.UpstreamRequestEvent;
+import org.doubao.logging.LogCategory;
+import org.doubao.metrics.DoubaoMetrics;
+import org.doubao.metrics.ServerTiming;
+import org.doubao.recording.SseRecording;
 import org.doubao.service.IDoubaoImageService;
+import org.doubao.service.IImageCacheService;
+import org.doubao.service.IImageMirrorService;
 import org.doubao.service.ISignatureService;
+import org.doubao.service.IStreamResumeService;
+import org.doubao.stream.StreamSink;
+import org.doubao.tracing.DoubaoTracing;
+import org.doubao.tracing.RelayTrace;
+import org.doubao.utils.FanOutUtils;
 import org.doubao.utils.SseUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -31,9 +52,13 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -41,19 +66,30 @@ import java.util.stream.Collectors;
 public class DoubaoImageServiceImpl implements IDoubaoImageService {
 
     // 生图接口核心常量
-    private static final String DEFAULT_IMAGE_MODEL = "Seedream 4.0"; // 默认生图模型
+    static final String DEFAULT_IMAGE_MODEL = "Seedream 4.0"; // 默认生图模型
 
     // 依赖注入
     private final DoubaoProperties doubaoProperties;
     private final CloseableHttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final ISignatureService signatureService;
+    private final IImageCacheService imageCacheService;
+    private final IImageMirrorService imageMirrorService;
+    private final IStreamResumeService streamResumeService;
+    private final DoubaoMetrics metrics;
+    private final DoubaoTracing tracing;
+    private final Executor relayExecutor;
     private final List<DoubaoProperties.AccountConfig> accounts;
 
     // 生图专属缓存
     private final Map<String, SessionData> imageSessionCache = new ConcurrentHashMap<>();
     private final Map<String, Integer> imageSessionAccountBindCache = new ConcurrentHashMap<>();
     private final Map<String, AccountStatus> imageAccountStatusCache = new ConcurrentHashMap<>();
+    // 按账号索引的状态（与 imageAccountStatusCache 为同一对象）及健康账号数，账号选择按索引遍历，不扫描映射表
+    private final List<AccountStatus> accountStatusByIndex = new ArrayList<>();
+    private final AtomicInteger healthyAccountCount = new AtomicInteger();
+    // 账号选择的轮转起点
+    private final AtomicInteger selectCursor = new AtomicInteger();
     private final Map<String, Boolean> imageConnectionStatus = new ConcurrentHashMap<>();
 
     // 定时任务线程池
@@ -64,15 +100,30 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
     public DoubaoImageServiceImpl(DoubaoProperties doubaoProperties,
                                   CloseableHttpClient httpClient,
                                   ObjectMapper objectMapper,
-                                  ISignatureService signatureService) {
+                                  ISignatureService signatureService,
+                                  IImageCacheService imageCacheService,
+                                  IImageMirrorService imageMirrorService,
+                                  IStreamResumeService streamResumeService,
+                                  DoubaoMetrics metrics,
+                                  DoubaoTracing tracing,
+                                  @Qualifier("relayExecutor") Executor relayExecutor) {
         this.doubaoProperties = doubaoProperties;
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
         this.signatureService = signatureService;
+        this.imageCacheService = imageCacheService;
+        this.imageMirrorService = imageMirrorService;
+        this.streamResumeService = streamResumeService;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.relayExecutor = relayExecutor;
         this.accounts = doubaoProperties.getAccounts();
 
         // 初始化账号状态
         initAccountStatusCache();
+        metrics.registerCacheSize("session", DoubaoMetrics.IMAGE, imageSessionCache);
+        metrics.registerCacheSize("session_account_bind", DoubaoMetrics.IMAGE, imageSessionAccountBindCache);
+        metrics.registerCacheSize("stream_connection", DoubaoMetrics.IMAGE, imageConnectionStatus);
         // 启动会话清理任务
         imageSessionScheduler.scheduleAtFixedRate(this::cleanExpiredSessions, 1, 1, TimeUnit.HOURS);
         // 启动账号恢复任务
@@ -87,12 +138,48 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
         validateApiKey(apiKey);
         validateImageRequest(request);
 
+        int n = resolveImageCount(request);
+        long startNanos = System.nanoTime();
+        String outcome = DoubaoMetrics.ERROR;
+        try {
+            ImageGenerationResponse result = n > 1 ? generateImagesParallel(request, n) : generateSingleImage(request);
+            outcome = DoubaoMetrics.SUCCESS;
+            return result;
+        } finally {
+            metrics.recordRequest(DoubaoMetrics.IMAGE_ENDPOINT, request.getModel(), false, outcome, startNanos);
+        }
+    }
+
+    /**
+     * 单批生图：优先命中缓存
+     */
+    private ImageGenerationResponse generateSingleImage(ImageGenerationRequest request) {
+        if (!Boolean.TRUE.equals(request.getNoCache())) {
+            ImageGenerationResponse cached = imageCacheService.get(request);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        ImageGenerationResponse result = doGenerateImage(request);
+        imageCacheService.put(request, result);
+        return result;
+    }
+
+    /**
+     * 执行一次非流式生图（单个上游请求）
+     */
+    private ImageGenerationResponse doGenerateImage(ImageGenerationRequest request) {
         String sessionId = buildImageSessionId(request);
         String accountKey = null;
+        long accountStart = 0;
 
         try {
+            long selectStart = System.nanoTime();
             DoubaoProperties.AccountConfig account = getNextImageAccount(sessionId);
             accountKey = getAccountKey(account);
+            accountStart = System.nanoTime();
+            metrics.recordAccountSelect(DoubaoMetrics.IMAGE, selectStart);
 
             SessionData sessionData = imageSessionCache.computeIfAbsent(sessionId, k -> {
                 SessionData newSession = new SessionData();
@@ -103,93 +190,418 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
             sessionData.setLastActiveTime(System.currentTimeMillis());
             String conversationId = sessionData.getConversationId();
 
-            String signedUrl = buildImageSignedUrl(account);
+            long phaseStart = System.nanoTime();
+            String signedUrl = tracing.inSpan("doubao.sign", () -> buildImageSignedUrl(account));
+            metrics.recordSign(DoubaoMetrics.IMAGE, phaseStart);
             HttpPost httpPost = buildImageHttpPost(signedUrl, account.getCookie());
-            String payload = buildImagePayload(request, conversationId);
+            phaseStart = System.nanoTime();
+            String payload = tracing.inSpan("doubao.payload.build", () -> buildImagePayload(request, conversationId));
+            metrics.recordPayloadBuild(DoubaoMetrics.IMAGE, phaseStart);
             httpPost.setEntity(new StringEntity(payload, StandardCharsets.UTF_8));
-
-            log.info("发送非流式生图请求[会话: {}, 账号: {}]，对话ID: {}", sessionId, accountKey, conversationId);
-
-            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            // 并行批次整体超时时中断上游请求
+            FanOutUtils.onAbort(httpPost::cancel);
+
+            log.info(LogCategory.REQUEST, "发送非流式生图请求[会话: {}, 账号: {}]，对话ID: {}", sessionId, accountKey, conversationId);
+
+            Span upstreamSpan = tracing.startUpstreamSpan(DoubaoMetrics.IMAGE, accountKey, sessionId, request.getModel());
+            UpstreamRequestEvent upstreamEvent = UpstreamRequestEvent.start(DoubaoMetrics.IMAGE, accountKey);
+            long upstreamStart = System.nanoTime();
+            try (Scope ignored = upstreamSpan.makeCurrent();
+                 CloseableHttpResponse response = httpClient.execute(httpPost,
+                         UpstreamRecordingExec.context(SseRecording.IMAGE))) {
+                metrics.recordUpstreamConnect(DoubaoMetrics.IMAGE, upstreamStart);
+                DoubaoTracing.responseReceived(upstreamSpan, response.getCode());
+                upstreamEvent.responseReceived(response);
                 if (response.getCode() != 200) {
                     throw new ServiceException("生图服务返回错误状态: " + response.getCode());
                 }
                 return parseImageResponse(response, request.getModel());
+            } catch (Exception e) {
+                DoubaoTracing.recordError(upstreamSpan, e);
+                upstreamEvent.failed(e);
+                throw e;
+            } finally {
+                upstreamSpan.end();
+                upstreamEvent.finish();
             }
 
         } catch (Exception e) {
+            if (FanOutUtils.isAborted()) {
+                // 并行批次整体超时导致的中断，不影响账号健康状态
+                log.warn("非流式生图超时已中断[会话: {}, 账号: {}]", sessionId, accountKey);
+                throw new ServiceException("生图超时", HttpStatus.GATEWAY_TIMEOUT);
+            }
             log.error("非流式生图失败[会话: {}, 账号: {}]", sessionId, accountKey, e);
             if (accountKey != null) {
+                recordAccountError(accountKey);
                 markImageAccountInvalid(accountKey, e);
             }
             throw new ServiceException("生图服务暂时不可用: " + e.getMessage());
         } finally {
             if (accountKey != null) {
+                recordAccountLatency(accountKey, accountStart);
                 decrementImageActiveConnections(accountKey);
             }
         }
     }
 
+    /**
+     * 并行生成多批图片（n>1）：拆分到多个账号并发执行，合并结果并记录失败批次
+     */
+    private ImageGenerationResponse generateImagesParallel(ImageGenerationRequest request, int n) {
+        ImageGenerationResponse[] results = new ImageGenerationResponse[n];
+        String[] errors = new String[n];
+
+        BitSet unclaimed = runFanOut(n, index -> {
+            try {
+                results[index] = doGenerateImage(buildFanOutRequest(request, index));
+            } catch (Exception e) {
+                errors[index] = e.getMessage();
+            }
+        });
+
+        ImageGenerationResponse merged = new ImageGenerationResponse();
+        merged.setModel(Optional.ofNullable(request.getModel()).orElse(DEFAULT_IMAGE_MODEL));
+        merged.setData(new ArrayList<>());
+        List<ImageGenerationResponse.ImageError> imageErrors = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (results[i] != null) {
+                merged.getData().addAll(results[i].getData());
+            } else {
+                imageErrors.add(buildImageError(i, unclaimed.get(i) ? "生图超时，批次未执行"
+                        : Optional.ofNullable(errors[i]).orElse("生图超时")));
+            }
+        }
+        if (merged.getData().isEmpty()) {
+            throw new ServiceException("生图服务暂时不可用: " + imageErrors.get(0).getMessage());
+        }
+        if (!imageErrors.isEmpty()) {
+            merged.setErrors(imageErrors);
+            log.warn("并行生图部分失败，成功批次: {}/{}", n - imageErrors.size(), n);
+        }
+        return merged;
+    }
+
     /**
      * 流式生图实现
      */
     @Override
-    public SseEmitter generateImageStream(ImageGenerationRequest request, String apiKey) {
+    public void generateImageStream(ImageGenerationRequest request, String apiKey,
+                                    HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        // 先校验再开启异步响应，校验失败仍按普通错误返回
         validateApiKey(apiKey);
         validateImageRequest(request);
+        resolveImageCount(request);
+        generateImageStream(request, apiKey, streamResumeService.open(httpRequest, httpResponse, 300000L)); // 5分钟超时
+    }
+
+    @Override
+    public void generateImageStream(ImageGenerationRequest request, String apiKey, StreamSink sink) {
+        validateApiKey(apiKey);
+        validateImageRequest(request);
+        int n = resolveImageCount(request);
+        long startNanos = System.nanoTime();
+        ServerTiming timing = Boolean.TRUE.equals(doubaoProperties.getServerTiming().getEnabled())
+                ? new ServerTiming(startNanos) : null;
 
-        SseEmitter emitter = new SseEmitter(300000L); // 5分钟超时
         String connectionId = "img-stream-" + UUID.randomUUID();
         imageConnectionStatus.put(connectionId, true);
 
-        setupImageSseCallbacks(emitter, connectionId);
+        setupImageSinkCallbacks(sink, connectionId);
 
-        Executors.newSingleThreadExecutor().submit(() -> {
-            String sessionId = buildImageSessionId(request);
-            String accountKey = null;
+        // 命中缓存时直接推送结果并结束流
+        if (n == 1 && !Boolean.TRUE.equals(request.getNoCache())) {
+            ImageGenerationResponse cached = imageCacheService.get(request);
+            if (cached != null) {
+                boolean sent = sendCachedImageResult(sink, connectionId, cached);
+                metrics.recordRequest(DoubaoMetrics.IMAGE_ENDPOINT, request.getModel(), true,
+                        sent ? DoubaoMetrics.SUCCESS : DoubaoMetrics.ERROR, startNanos);
+                return;
+            }
+        }
 
-            try {
-                DoubaoProperties.AccountConfig account = getNextImageAccount(sessionId);
-                accountKey = getAccountKey(account);
-
-                SessionData sessionData = imageSessionCache.computeIfAbsent(sessionId, k -> {
-                    SessionData newSession = new SessionData();
-                    newSession.setConversationId("0");
-                    newSession.setLastActiveTime(System.currentTimeMillis());
-                    return newSession;
-                });
-                String conversationId = sessionData.getConversationId();
-
-                String signedUrl = buildImageSignedUrl(account);
-                HttpPost httpPost = buildImageHttpPost(signedUrl, account.getCookie());
-                String payload = buildImagePayload(request, conversationId);
-                httpPost.setEntity(new StringEntity(payload, StandardCharsets.UTF_8));
-
-                String requestId = "imgcmpl-" + UUID.randomUUID();
-                log.info("发送流式生图请求[会话: {}, 账号: {}]，请求ID: {}", sessionId, accountKey, requestId);
-
-                try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
-                    if (response.getCode() != 200) {
-                        throw new ServiceException("生图服务返回错误状态: " + response.getCode());
+        relayExecutor.execute(() -> {
+            String requestId = "imgcmpl-" + UUID.randomUUID();
+            String resultModel = Optional.ofNullable(request.getModel()).orElse(DEFAULT_IMAGE_MODEL);
+            AtomicInteger imageIndex = new AtomicInteger();
+            String outcome = DoubaoMetrics.CANCELLED;
+
+            try (Scope ignored = ServerTiming.begin(timing);
+                 RelayTrace trace = tracing.startRelay(DoubaoMetrics.IMAGE, request.getModel(), n)) {
+                try {
+                    ImageGenerationResponse result;
+                    if (n > 1) {
+                        result = streamImagesParallel(request, n, sink, connectionId, requestId, resultModel, imageIndex);
+                    } else {
+                        List<ImageGenerationResponse.ImageData> images = executeImageStream(request, sink, connectionId,
+                                buildStreamListener(sink, connectionId, requestId, resultModel, null, imageIndex));
+                        if (images == null) {
+                            return; // 客户端已断开
+                        }
+                        result = new ImageGenerationResponse();
+                        result.setModel(resultModel);
+                        result.setData(images);
+                        imageCacheService.put(request, result);
                     }
-                    processImageStreamResponse(response, emitter, connectionId, requestId, request.getModel());
-                }
 
-            } catch (Exception e) {
-                log.error("流式生图失败[会话: {}, 账号: {}]", sessionId, accountKey, e);
-                if (accountKey != null) {
-                    markImageAccountInvalid(accountKey, e);
+                    // 最终汇总事件：包含全部图片
+                    if (imageConnectionStatus.containsKey(connectionId)) {
+                        result.setId(requestId);
+                        if (timing != null) {
+                            result.setServerTiming(timing.toHeader());
+                        }
+                        sendImageSseData(sink, connectionId, objectMapper.writeValueAsString(result));
+                        sendImageSseData(sink, connectionId, SseUtils.createDoneChunk());
+                        sink.complete();
+                        trace.completed();
+                        outcome = DoubaoMetrics.SUCCESS;
+                    }
+                } catch (Exception e) {
+                    outcome = DoubaoMetrics.ERROR;
+                    trace.fail(e);
+                    handleImageStreamError(sink, e, connectionId);
+                } finally {
+                    trace.outcome(outcome, DoubaoMetrics.CANCELLED.equals(outcome) ? sink.getCloseReason() : null);
                 }
-                handleImageStreamError(emitter, e, connectionId);
             } finally {
-                if (accountKey != null) {
-                    decrementImageActiveConnections(accountKey);
-                }
                 imageConnectionStatus.remove(connectionId);
+                metrics.recordStreamDuration(DoubaoMetrics.IMAGE, startNanos);
+                metrics.recordRequest(DoubaoMetrics.IMAGE_ENDPOINT, request.getModel(), true, outcome, startNanos);
+            }
+        });
+    }
+
+    @Override
+    public List<AccountStatus> getAccountStatuses() {
+        return Collections.unmodifiableList(accountStatusByIndex);
+    }
+
+    @Override
+    public int getHealthyAccountCount() {
+        return healthyAccountCount.get();
+    }
+
+    @Override
+    public int getSessionCount() {
+        return imageSessionCache.size();
+    }
+
+    /**
+     * 并行流式生成多批图片：每批各自请求上游，图片解析出后立即推送
+     */
+    private ImageGenerationResponse streamImagesParallel(ImageGenerationRequest request, int n, StreamSink sink,
+                                                         String connectionId, String requestId, String resultModel,
+                                                         AtomicInteger imageIndex) {
+        List<ImageGenerationResponse.ImageData> images = Collections.synchronizedList(new ArrayList<>());
+        List<ImageGenerationResponse.ImageError> imageErrors = Collections.synchronizedList(new ArrayList<>());
+
+        BitSet unclaimed = runFanOut(n, index -> {
+            try {
+                List<ImageGenerationResponse.ImageData> batchImages = executeImageStream(
+                        buildFanOutRequest(request, index), sink, connectionId,
+                        buildStreamListener(sink, connectionId, requestId, resultModel, index, imageIndex));
+                if (batchImages != null) {
+                    images.addAll(batchImages);
+                }
+            } catch (Exception e) {
+                imageErrors.add(buildImageError(index, e.getMessage()));
+                try {
+                    sendImageSseError(sink, connectionId, "第" + index + "批生图失败: " + e.getMessage());
+                } catch (IOException ex) {
+                    log.debug("推送批次失败事件失败[连接ID: {}]", connectionId);
+                }
+            }
+        });
+        // 超时未执行的批次同样推送失败事件
+        unclaimed.stream().forEach(index -> {
+            imageErrors.add(buildImageError(index, "生图超时，批次未执行"));
+            try {
+                sendImageSseError(sink, connectionId, "第" + index + "批生图超时，未执行");
+            } catch (IOException ex) {
+                log.debug("推送批次失败事件失败[连接ID: {}]", connectionId);
             }
         });
 
-        return emitter;
+        if (images.isEmpty()) {
+            throw new ServiceException(imageErrors.isEmpty() ? "未生成有效图片URL" : imageErrors.get(0).getMessage());
+        }
+        ImageGenerationResponse result = new ImageGenerationResponse();
+        result.setModel(resultModel);
+        result.setData(new ArrayList<>(images));
+        if (!imageErrors.isEmpty()) {
+            imageErrors.sort(Comparator.comparingInt(ImageGenerationResponse.ImageError::getIndex));
+            result.setErrors(new ArrayList<>(imageErrors));
+        }
+        return result;
+    }
+
+    /**
+     * 构建流式监听：推送生成进度和单张图片分片（batch 为空表示单批生成）
+     */
+    private ImageStreamListener buildStreamListener(StreamSink sink, String connectionId, String requestId,
+                                                    String resultModel, Integer batch, AtomicInteger imageIndex) {
+        return new ImageStreamListener() {
+            @Override
+            public void onProgress(int progress) throws IOException {
+                Map<String, Object> chunk = new HashMap<>();
+                chunk.put("id", requestId);
+                chunk.put("object", "image.generation.chunk");
+                chunk.put("created", System.currentTimeMillis() / 1000);
+                chunk.put("status", "generating");
+                chunk.put("progress", progress);
+                if (batch != null) {
+                    chunk.put("batch", batch);
+                }
+                sendImageSseData(sink, connectionId, objectMapper.writeValueAsString(chunk));
+            }
+
+            @Override
+            public void onImage(ImageGenerationResponse.ImageData imageData) throws IOException {
+                Map<String, Object> chunk = SseUtils.createImageChunk(
+                        requestId, resultModel, imageIndex.getAndIncrement(), imageData);
+                if (batch != null) {
+                    chunk.put("batch", batch);
+                }
+                RelayTrace trace = RelayTrace.current();
+                if (trace != null) {
+                    trace.firstChunk("first_image", batch != null ? batch : 0);
+                    trace.recordToken();
+                }
+                sendImageSseData(sink, connectionId, objectMapper.writeValueAsString(chunk));
+            }
+        };
+    }
+
+    /**
+     * 执行一次流式生图（单个上游请求）：分配账号、请求上游并逐张回调，返回全部图片（客户端断开返回 null）
+     */
+    private List<ImageGenerationResponse.ImageData> executeImageStream(ImageGenerationRequest request, StreamSink sink,
+                                                                      String connectionId, ImageStreamListener listener) {
+        String sessionId = buildImageSessionId(request);
+        String accountKey = null;
+        Runnable releaseSlot = null;
+        long accountStart = 0;
+
+        try {
+            long selectStart = System.nanoTime();
+            DoubaoProperties.AccountConfig account = getNextImageAccount(sessionId);
+            accountKey = getAccountKey(account);
+            accountStart = System.nanoTime();
+            metrics.recordAccountSelect(DoubaoMetrics.IMAGE, selectStart);
+            // 客户端失联或取消时立即释放账号连接，无需等待转发线程退出
+            releaseSlot = slotReleaser(accountKey);
+            sink.onClose(releaseSlot);
+
+            SessionData sessionData = imageSessionCache.computeIfAbsent(sessionId, k -> {
+                SessionData newSession = new SessionData();
+                newSession.setConversationId("0");
+                newSession.setLastActiveTime(System.currentTimeMillis());
+                return newSession;
+            });
+            String conversationId = sessionData.getConversationId();
+
+            long phaseStart = System.nanoTime();
+            String signedUrl = tracing.inSpan("doubao.sign", () -> buildImageSignedUrl(account));
+            metrics.recordSign(DoubaoMetrics.IMAGE, phaseStart);
+            HttpPost httpPost = buildImageHttpPost(signedUrl, account.getCookie());
+            phaseStart = System.nanoTime();
+            String payload = tracing.inSpan("doubao.payload.build", () -> buildImagePayload(request, conversationId));
+            metrics.recordPayloadBuild(DoubaoMetrics.IMAGE, phaseStart);
+            httpPost.setEntity(new StringEntity(payload, StandardCharsets.UTF_8));
+            // 客户端断开、取消或并行批次整体超时时立即中断上游请求，释放账号连接
+            sink.onClose(httpPost::cancel);
+            FanOutUtils.onAbort(httpPost::cancel);
+
+            log.info(LogCategory.REQUEST, "发送流式生图请求[会话: {}, 账号: {}]，连接ID: {}", sessionId, accountKey, connectionId);
+
+            Span upstreamSpan = tracing.startUpstreamSpan(DoubaoMetrics.IMAGE, accountKey, sessionId, request.getModel());
+            UpstreamRequestEvent upstreamEvent = UpstreamRequestEvent.start(DoubaoMetrics.IMAGE, accountKey);
+            long upstreamStart = System.nanoTime();
+            try (Scope ignored = upstreamSpan.makeCurrent();
+                 CloseableHttpResponse response = httpClient.execute(httpPost,
+                         UpstreamRecordingExec.context(SseRecording.IMAGE))) {
+                metrics.recordUpstreamConnect(DoubaoMetrics.IMAGE, upstreamStart);
+                DoubaoTracing.responseReceived(upstreamSpan, response.getCode());
+                upstreamEvent.responseReceived(response);
+                if (response.getCode() != 200) {
+                    throw new ServiceException("生图服务返回错误状态: " + response.getCode());
+                }
+                return processImageStreamResponse(response, connectionId, listener, upstreamStart);
+            } catch (Exception e) {
+                DoubaoTracing.recordError(upstreamSpan, e);
+                upstreamEvent.failed(e);
+                throw e;
+            } finally {
+                upstreamSpan.end();
+                upstreamEvent.finish();
+            }
+
+        } catch (Exception e) {
+            if (!imageConnectionStatus.containsKey(connectionId)) {
+                // 客户端已断开或取消导致的中断，不影响账号健康状态
+                log.info("流式生图已中断[会话: {}, 账号: {}]", sessionId, accountKey);
+                return null;
+            }
+            if (FanOutUtils.isAborted()) {
+                // 并行批次整体超时导致的中断，不影响账号健康状态
+                log.warn("流式生图超时已中断[会话: {}, 账号: {}]", sessionId, accountKey);
+                throw new ServiceException("生图超时", HttpStatus.GATEWAY_TIMEOUT);
+            }
+            log.error("流式生图失败[会话: {}, 账号: {}]", sessionId, accountKey, e);
+            if (accountKey != null) {
+                recordAccountError(accountKey);
+                markImageAccountInvalid(accountKey, e);
+            }
+            throw e instanceof ServiceException ? (ServiceException) e : new ServiceException("流式生图失败: " + e.getMessage());
+        } finally {
+            if (releaseSlot != null) {
+                recordAccountLatency(accountKey, accountStart);
+                releaseSlot.run();
+            }
+        }
+    }
+
+    /**
+     * 解析生图数量（n），限制在 1 ~ 配置上限
+     */
+    private int resolveImageCount(ImageGenerationRequest request) {
+        int n = Optional.ofNullable(request.getN()).orElse(1);
+        int maxN = doubaoProperties.getImageFanOut().getMaxN();
+        if (n < 1 || n > maxN) {
+            throw new ServiceException("生图数量 n 须在 1 ~ " + maxN + " 之间", HttpStatus.BAD_REQUEST);
+        }
+        return n;
+    }
+
+    /**
+     * 按并发上限执行 n 个批次，返回超时未执行的批次
+     */
+    private BitSet runFanOut(int n, IntConsumer task) {
+        return FanOutUtils.run(n, doubaoProperties.getImageFanOut().getMaxParallel(), relayExecutor,
+                doubaoProperties.getTimeout(), task);
+    }
+
+    /**
+     * 构建单个批次的请求：各批次使用独立会话以分散到不同账号，并跳过缓存保证结果不同
+     */
+    private ImageGenerationRequest buildFanOutRequest(ImageGenerationRequest request, int index) {
+        ImageGenerationRequest subRequest = new ImageGenerationRequest();
+        subRequest.setModel(request.getModel());
+        subRequest.setPrompt(request.getPrompt());
+        subRequest.setRatio(request.getRatio());
+        subRequest.setTemplateType(request.getTemplateType());
+        subRequest.setUser(index == 0 ? request.getUser() : null);
+        subRequest.setStream(request.getStream());
+        subRequest.setNoCache(true);
+        subRequest.setN(1);
+        return subRequest;
+    }
+
+    private ImageGenerationResponse.ImageError buildImageError(int index, String message) {
+        ImageGenerationResponse.ImageError imageError = new ImageGenerationResponse.ImageError();
+        imageError.setIndex(index);
+        imageError.setMessage(message);
+        return imageError;
     }
 
     /**
@@ -206,7 +618,7 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
      */
     private void validateImageRequest(ImageGenerationRequest request) {
         if (request.getPrompt() == null || request.getPrompt().trim().isEmpty()) {
-            throw new ServiceException("生图描述（prompt）不能为空");
+            throw new ServiceException("生图描述（prompt）不能为空", HttpStatus.BAD_REQUEST);
         }
     }
 
@@ -228,16 +640,52 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
         for (int i = 0; i < accounts.size(); i++) {
             DoubaoProperties.AccountConfig account = accounts.get(i);
             String accountKey = getAccountKey(account);
-            AccountStatus status = new AccountStatus();
-            status.setAccountIndex(i);
-            status.setHealthy(true);
-            status.setActiveConnections(0);
-            status.setLastFailTime(0L);
+            AccountStatus status = new AccountStatus(i, accountKey);
             imageAccountStatusCache.put(accountKey, status);
+            accountStatusByIndex.add(status);
+            healthyAccountCount.incrementAndGet();
+            metrics.registerAccount(DoubaoMetrics.IMAGE, i, status::getActiveConnections);
             log.info("初始化生图账号[{}]状态: 健康", accountKey);
         }
     }
 
+    /**
+     * 记录账号请求耗时（指标 + 账号状态中的最近耗时窗口）
+     */
+    private void recordAccountLatency(String accountKey, long startNanos) {
+        AccountStatus status = imageAccountStatusCache.get(accountKey);
+        if (status != null) {
+            status.recordLatency(System.nanoTime() - startNanos);
+            metrics.recordAccountLatency(DoubaoMetrics.IMAGE, status.getAccountIndex(), startNanos);
+        }
+    }
+
+    private void recordAccountError(String accountKey) {
+        AccountStatus status = imageAccountStatusCache.get(accountKey);
+        if (status != null) {
+            status.recordError();
+            metrics.recordAccountError(DoubaoMetrics.IMAGE, status.getAccountIndex());
+        }
+    }
+
+    /**
+     * 绑定会话与账号，同步维护账号的绑定会话数
+     */
+    private void bindSession(String sessionId, int accountIndex) {
+        Integer previous = imageSessionAccountBindCache.put(sessionId, accountIndex);
+        if (previous != null) {
+            accountStatusByIndex.get(previous).sessionUnbound();
+        }
+        accountStatusByIndex.get(accountIndex).sessionBound();
+    }
+
+    private void unbindSession(String sessionId) {
+        Integer previous = imageSessionAccountBindCache.remove(sessionId);
+        if (previous != null) {
+            accountStatusByIndex.get(previous).sessionUnbound();
+        }
+    }
+
     /**
      * 获取账号唯一标识
      */
@@ -253,44 +701,46 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
             throw new ServiceException("未配置豆包账号信息");
         }
 
-        // 检查会话绑定账号
-        if (imageSessionAccountBindCache.containsKey(sessionId)) {
-            Integer boundIndex = imageSessionAccountBindCache.get(sessionId);
-            DoubaoProperties.AccountConfig boundAccount = accounts.get(boundIndex);
-            String accountKey = getAccountKey(boundAccount);
-            AccountStatus status = imageAccountStatusCache.get(accountKey);
-
-            if (status != null && status.isHealthy()) {
-                incrementImageActiveConnections(accountKey);
-                return boundAccount;
-            } else {
-                imageSessionAccountBindCache.remove(sessionId);
-                log.warn("生图会话{}绑定账号{}失效，重新分配", sessionId, accountKey);
+        // 检查会话绑定账号（只读取一次，避免与并发解绑交错）
+        Integer boundIndex = imageSessionAccountBindCache.get(sessionId);
+        if (boundIndex != null) {
+            AccountStatus status = accountStatusByIndex.get(boundIndex);
+            if (status.isHealthy()) {
+                status.incrementActiveConnections();
+                return accounts.get(boundIndex);
+            }
+            if (imageSessionAccountBindCache.remove(sessionId, boundIndex)) {
+                status.sessionUnbound();
             }
+            log.warn("生图会话{}绑定账号{}失效，重新分配", sessionId, status.getAccountKey());
         }
 
-        // 筛选健康账号
-        List<Map.Entry<String, AccountStatus>> healthyAccounts = imageAccountStatusCache.entrySet().stream()
-                .filter(entry -> entry.getValue().isHealthy())
-                .sorted(Comparator.comparingInt(entry -> entry.getValue().getActiveConnections()))
-                .collect(Collectors.toList());
-
-        if (healthyAccounts.isEmpty()) {
+        // 选择活跃连接最少的健康账号（从轮转起点开始，连接数相同时分散）
+        int size = accountStatusByIndex.size();
+        int start = Math.floorMod(selectCursor.getAndIncrement(), size);
+        AccountStatus selectedStatus = null;
+        int selectedConnections = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            AccountStatus status = accountStatusByIndex.get((start + i) % size);
+            if (!status.isHealthy()) {
+                continue;
+            }
+            int connections = status.getActiveConnections();
+            if (connections < selectedConnections) {
+                selectedStatus = status;
+                selectedConnections = connections;
+            }
+        }
+        if (selectedStatus == null) {
             throw new ServiceException("所有生图账号均已失效，请检查Cookie配置");
         }
 
-        // 选择活跃连接最少的账号
-        Map.Entry<String, AccountStatus> selectedEntry = healthyAccounts.get(0);
-        String selectedAccountKey = selectedEntry.getKey();
-        AccountStatus selectedStatus = selectedEntry.getValue();
         int selectedIndex = selectedStatus.getAccountIndex();
-        DoubaoProperties.AccountConfig selectedAccount = accounts.get(selectedIndex);
+        bindSession(sessionId, selectedIndex);
+        int activeConnections = selectedStatus.incrementActiveConnections();
+        log.info(LogCategory.SESSION, "生图会话{}绑定账号{}，活跃连接数:{}", sessionId, selectedStatus.getAccountKey(), activeConnections);
 
-        imageSessionAccountBindCache.put(sessionId, selectedIndex);
-        incrementImageActiveConnections(selectedAccountKey);
-        log.info("生图会话{}绑定账号{}，活跃连接数:{}", sessionId, selectedAccountKey, selectedStatus.getActiveConnections());
-
-        return selectedAccount;
+        return accounts.get(selectedIndex);
     }
 
     /**
@@ -342,7 +792,7 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
 
             SignatureResponse signatureResponse = signatureService.generateSignature(signatureRequest);
             if (signatureResponse.isSuccess()) {
-                log.info("生图账号{}签名生成成功", getAccountKey(account));
+                log.info(LogCategory.REQUEST, "生图账号{}签名生成成功", getAccountKey(account));
                 return signatureResponse.getSignedUrl();
             } else {
                 log.warn("生图账号{}签名生成失败: {}", getAccountKey(account), signatureResponse.getError());
@@ -379,7 +829,7 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
     /**
      * 构建生图请求体 - 支持比例参数
      */
-    private String buildImagePayload(ImageGenerationRequest request, String conversationId) throws JsonProcessingException {
+    String buildImagePayload(ImageGenerationRequest request, String conversationId) throws JsonProcessingException {
         Map<String, Object> payload = new HashMap<>();
 
         // 支持比例参数
@@ -445,66 +895,11 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
      */
     private ImageGenerationResponse parseImageResponse(CloseableHttpResponse response, String model) throws IOException, ParseException {
         String responseBody = EntityUtils.toString(response.getEntity());
-        log.info("生图响应体长度: {}", responseBody.length());
+        log.info(LogCategory.REQUEST, "生图响应体长度: {}", responseBody.length());
         log.debug("完整生图响应体: {}", responseBody);
 
         try {
-            String[] lines = responseBody.split("\n");
-            List<String> imageUrls = new ArrayList<>();
-
-            for (String line : lines) {
-                if (line.startsWith("data: ") && !line.contains("[DONE]")) {
-                    String dataStr = line.substring(6).trim();
-                    if (dataStr.isEmpty()) {
-                        continue;
-                    }
-
-                    JsonNode eventNode = objectMapper.readTree(dataStr);
-                    JsonNode eventTypeNode = eventNode.get("event_type");
-                    JsonNode eventDataStrNode = eventNode.get("event_data");
-
-                    if (eventTypeNode == null || !"2001".equals(eventTypeNode.asText()) || eventDataStrNode == null) {
-                        continue;
-                    }
-
-                    String eventDataStr = eventDataStrNode.asText().trim();
-                    JsonNode eventDataNode = objectMapper.readTree(eventDataStr);
-                    JsonNode messageNode = eventDataNode.get("message");
-                    if (messageNode == null) {
-                        continue;
-                    }
-
-                    JsonNode contentTypeNode = messageNode.get("content_type");
-                    if (contentTypeNode == null || !"2010".equals(contentTypeNode.asText())) {
-                        log.debug("跳过非图片结果事件，content_type: {}", contentTypeNode);
-                        continue;
-                    }
-
-                    JsonNode contentStrNode = messageNode.get("content");
-                    if (contentStrNode == null) {
-                        continue;
-                    }
-                    String contentStr = contentStrNode.asText().trim();
-                    JsonNode contentNode = objectMapper.readTree(contentStr);
-                    JsonNode imageDataArrayNode = contentNode.get("data");
-
-                    if (imageDataArrayNode != null && imageDataArrayNode.isArray()) {
-                        for (JsonNode imageItemNode : imageDataArrayNode) {
-                            JsonNode imageRawNode = imageItemNode.get("image_raw");
-                            if (imageRawNode != null) {
-                                JsonNode imageUrlNode = imageRawNode.get("url");
-                                if (imageUrlNode != null && !imageUrlNode.asText().trim().isEmpty()) {
-                                    String imageUrl = imageUrlNode.asText().trim();
-                                    imageUrl = fixUrlEscapeCharacters(imageUrl);
-                                    imageUrls.add(imageUrl);
-                                    log.debug("提取到无水印图片URL: {}", imageUrl);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-
+            List<String> imageUrls = parseImageUrls(objectMapper, responseBody);
             if (imageUrls.isEmpty()) {
                 throw new ServiceException("未从响应中提取到有效图片URL，请检查响应结构或生图服务状态");
             }
@@ -512,19 +907,7 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
             ImageGenerationResponse result = new ImageGenerationResponse();
             result.setModel(Optional.ofNullable(model).orElse(DEFAULT_IMAGE_MODEL));
             List<ImageGenerationResponse.ImageData> imageDataList = imageUrls.stream()
-                    .map(url -> {
-                        ImageGenerationResponse.ImageData imageData = new ImageGenerationResponse.ImageData();
-                        imageData.setUrl(url);
-                        String format = "png";
-                        if (url.contains(".")) {
-                            String suffix = url.substring(url.lastIndexOf(".") + 1).toLowerCase();
-                            if (Arrays.asList("png", "jpeg", "jpg", "webp", "avif").contains(suffix)) {
-                                format = suffix;
-                            }
-                        }
-                        imageData.setFormat(format);
-                        return imageData;
-                    })
+                    .map(this::buildImageData)
                     .collect(Collectors.toList());
             result.setData(imageDataList);
             return result;
@@ -540,22 +923,93 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
         }
     }
 
+    /**
+     * 从完整的 SSE 响应体中提取全部无水印图片URL
+     */
+    static List<String> parseImageUrls(ObjectMapper objectMapper, String responseBody) throws JsonProcessingException {
+        List<String> imageUrls = new ArrayList<>();
+        for (String line : responseBody.split("\n")) {
+            if (line.startsWith("data: ") && !line.contains("[DONE]")) {
+                String dataStr = line.substring(6).trim();
+                if (dataStr.isEmpty()) {
+                    continue;
+                }
+
+                JsonNode eventNode = objectMapper.readTree(dataStr);
+                JsonNode eventTypeNode = eventNode.get("event_type");
+                JsonNode eventDataStrNode = eventNode.get("event_data");
+
+                if (eventTypeNode == null || !"2001".equals(eventTypeNode.asText()) || eventDataStrNode == null) {
+                    continue;
+                }
+                imageUrls.addAll(extractImageUrls(objectMapper, eventDataStrNode.asText().trim()));
+            }
+        }
+        return imageUrls;
+    }
+
+    /**
+     * 解析 2001 事件的 event_data：图片结果（content_type 2010）中 image_raw 的 URL，非图片结果返回空列表
+     */
+    static List<String> extractImageUrls(ObjectMapper objectMapper, String eventDataStr) throws JsonProcessingException {
+        JsonNode eventDataNode = objectMapper.readTree(eventDataStr);
+        JsonNode messageNode = eventDataNode.get("message");
+        if (messageNode == null) {
+            return Collections.emptyList();
+        }
+
+        JsonNode contentTypeNode = messageNode.get("content_type");
+        if (contentTypeNode == null || !"2010".equals(contentTypeNode.asText())) {
+            log.debug("跳过非图片结果事件，content_type: {}", contentTypeNode);
+            return Collections.emptyList();
+        }
+
+        JsonNode contentStrNode = messageNode.get("content");
+        if (contentStrNode == null) {
+            return Collections.emptyList();
+        }
+        String contentStr = contentStrNode.asText().trim();
+        JsonNode contentNode = objectMapper.readTree(contentStr);
+        JsonNode imageDataArrayNode = contentNode.get("data");
+
+        List<String> imageUrls = new ArrayList<>();
+        if (imageDataArrayNode != null && imageDataArrayNode.isArray()) {
+            for (JsonNode imageItemNode : imageDataArrayNode) {
+                JsonNode imageRawNode = imageItemNode.get("image_raw"); // 无水印原图
+                if (imageRawNode != null) {
+                    JsonNode imageUrlNode = imageRawNode.get("url");
+                    if (imageUrlNode != null && !imageUrlNode.asText().trim().isEmpty()) {
+                        String imageUrl = fixUrlEscapeCharacters(imageUrlNode.asText().trim());
+                        imageUrls.add(imageUrl);
+                        log.debug("提取到无水印图片URL: {}", imageUrl);
+                    }
+                }
+            }
+        }
+        return imageUrls;
+    }
+
     /**
      * 处理流式生图响应 - 无水印版本
      */
-    private void processImageStreamResponse(CloseableHttpResponse response, SseEmitter emitter,
-                                            String connectionId, String requestId, String model) throws IOException {
+    private List<ImageGenerationResponse.ImageData> processImageStreamResponse(CloseableHttpResponse response,
+                                                                               String connectionId,
+                                                                               ImageStreamListener listener,
+                                                                               long upstreamStart) throws IOException {
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
 
             String line;
-            List<String> imageUrls = new ArrayList<>();
+            // 已推送的图片（按URL去重，上游可能重复下发同一批结果）
+            Set<String> seenUrls = new HashSet<>();
+            List<ImageGenerationResponse.ImageData> imageDataList = new ArrayList<>();
+            boolean firstEvent = true;
 
             while ((line = reader.readLine()) != null) {
                 // 检查客户端连接状态
                 if (!imageConnectionStatus.containsKey(connectionId)) {
                     log.info("客户端已断开，停止生图流式处理[连接ID: {}]", connectionId);
-                    return;
+                    return null;
                 }
 
                 if (line.startsWith("data: ")) {
@@ -563,6 +1017,11 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
                     if (dataStr.isEmpty() || "[DONE]".equals(dataStr)) {
                         continue;
                     }
+                    if (firstEvent) {
+                        metrics.recordFirstEvent(DoubaoMetrics.IMAGE, upstreamStart);
+                        Span.current().addEvent("first.event");
+                        firstEvent = false;
+                    }
 
                     try {
                         JsonNode eventNode = objectMapper.readTree(dataStr);
@@ -579,105 +1038,102 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
                             String eventDataStr = eventDataStrNode.asText().trim();
                             if (!eventDataStr.isEmpty()) {
                                 JsonNode progressNode = objectMapper.readTree(eventDataStr);
-                                Map<String, Object> progress = new HashMap<>();
-                                progress.put("id", requestId);
-                                progress.put("object", "image.generation.chunk");
-                                progress.put("created", System.currentTimeMillis() / 1000);
-                                progress.put("status", "generating");
-                                progress.put("progress", progressNode.has("progress")
+                                listener.onProgress(progressNode.has("progress")
                                         ? progressNode.get("progress").asInt(0)
                                         : 0);
-                                sendImageSseData(emitter, connectionId, objectMapper.writeValueAsString(progress));
                             }
                         }
 
                         else if ("2001".equals(eventType)) {
-                            String eventDataStr = eventDataStrNode.asText().trim();
-                            JsonNode eventDataNode = objectMapper.readTree(eventDataStr);
-                            JsonNode messageNode = eventDataNode.get("message");
-                            if (messageNode == null) {
-                                continue;
-                            }
-
-                            JsonNode contentTypeNode = messageNode.get("content_type");
-                            if (contentTypeNode == null || !"2010".equals(contentTypeNode.asText())) {
-                                log.debug("跳过非图片结果事件，content_type: {}", contentTypeNode);
-                                continue;
-                            }
-
-                            JsonNode contentStrNode = messageNode.get("content");
-                            if (contentStrNode == null) {
-                                continue;
-                            }
-                            String contentStr = contentStrNode.asText().trim();
-                            JsonNode contentNode = objectMapper.readTree(contentStr);
-                            JsonNode imageDataArrayNode = contentNode.get("data");
-
-                            if (imageDataArrayNode != null && imageDataArrayNode.isArray()) {
-                                for (JsonNode imageItemNode : imageDataArrayNode) {
-                                    JsonNode imageRawNode = imageItemNode.get("image_raw"); // 改为获取image_raw
-                                    if (imageRawNode != null) {
-                                        JsonNode imageUrlNode = imageRawNode.get("url");
-                                        if (imageUrlNode != null && !imageUrlNode.asText().trim().isEmpty()) {
-                                            String imageUrl = imageUrlNode.asText().trim();
-                                            imageUrl = fixUrlEscapeCharacters(imageUrl);
-                                            imageUrls.add(imageUrl);
-                                            log.debug("流式提取到无水印图片URL: {}", imageUrl);
-                                        }
-                                    }
+                            for (String imageUrl : extractImageUrls(objectMapper, eventDataStrNode.asText().trim())) {
+                                if (!seenUrls.add(imageUrl)) {
+                                    continue;
                                 }
+                                log.debug("流式提取到无水印图片URL: {}", imageUrl);
+
+                                // 每解析出一张图片立即推送
+                                ImageGenerationResponse.ImageData imageData = buildImageData(imageUrl);
+                                imageDataList.add(imageData);
+                                listener.onImage(imageData);
                             }
                         }
 
                     } catch (JsonProcessingException e) {
                         log.error("流式JSON解析失败，数据: {}", dataStr, e);
-                        sendImageSseError(emitter, connectionId, "解析生图进度失败: " + e.getMessage());
                     } catch (Exception e) {
                         log.warn("处理生图流式数据异常: {}", dataStr, e);
                     }
                 }
             }
 
-            if (!imageUrls.isEmpty() && imageConnectionStatus.containsKey(connectionId)) {
-                ImageGenerationResponse result = new ImageGenerationResponse();
-                result.setId(requestId);
-                result.setModel(Optional.ofNullable(model).orElse(DEFAULT_IMAGE_MODEL));
-                List<ImageGenerationResponse.ImageData> imageDataList = imageUrls.stream()
-                        .map(url -> {
-                            ImageGenerationResponse.ImageData imageData = new ImageGenerationResponse.ImageData();
-                            imageData.setUrl(url);
-                            String format = "png";
-                            if (url.contains(".")) {
-                                String suffix = url.substring(url.lastIndexOf(".") + 1).toLowerCase();
-                                if (Arrays.asList("png", "jpeg", "jpg", "webp", "avif").contains(suffix)) {
-                                    format = suffix;
-                                }
-                            }
-                            imageData.setFormat(format);
-                            return imageData;
-                        })
-                        .collect(Collectors.toList());
-                result.setData(imageDataList);
-                sendImageSseData(emitter, connectionId, objectMapper.writeValueAsString(result));
-                sendImageSseData(emitter, connectionId, SseUtils.createDoneChunk());
-            } else {
+            if (imageDataList.isEmpty()) {
                 throw new ServiceException("未生成有效图片URL");
             }
+            return imageDataList;
 
         } catch (IOException e) {
-            log.error("读取生图流式响应失败", e);
-            throw e;
-        } finally {
             if (imageConnectionStatus.containsKey(connectionId)) {
-                emitter.complete();
+                log.error("读取生图流式响应失败", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 生图流式事件监听
+     */
+    private interface ImageStreamListener {
+
+        void onProgress(int progress) throws IOException;
+
+        void onImage(ImageGenerationResponse.ImageData imageData) throws IOException;
+    }
+
+    /**
+     * 构建图片结果：按上游URL后缀识别格式，启用镜像时改写为本地地址
+     */
+    private ImageGenerationResponse.ImageData buildImageData(String url) {
+        ImageGenerationResponse.ImageData imageData = new ImageGenerationResponse.ImageData();
+        String format = "png";
+        if (url.contains(".")) {
+            String suffix = url.substring(url.lastIndexOf(".") + 1).toLowerCase();
+            if (Arrays.asList("png", "jpeg", "jpg", "webp", "avif").contains(suffix)) {
+                format = suffix;
             }
         }
+        imageData.setFormat(format);
+        imageData.setUrl(imageMirrorService.mirror(url, format));
+        return imageData;
+    }
+
+    /**
+     * 推送缓存的生图结果，返回是否推送成功
+     */
+    private boolean sendCachedImageResult(StreamSink sink, String connectionId, ImageGenerationResponse cached) {
+        try {
+            // 与实时生成保持相同的事件序列：逐张图片分片，再推送汇总结果
+            for (int i = 0; i < cached.getData().size(); i++) {
+                Map<String, Object> imageChunk = SseUtils.createImageChunk(
+                        cached.getId(), cached.getModel(), i, cached.getData().get(i));
+                sendImageSseData(sink, connectionId, objectMapper.writeValueAsString(imageChunk));
+            }
+            sendImageSseData(sink, connectionId, objectMapper.writeValueAsString(cached));
+            sendImageSseData(sink, connectionId, SseUtils.createDoneChunk());
+            sink.complete();
+            return true;
+        } catch (IOException e) {
+            log.warn("推送缓存生图结果失败[连接ID: {}]", connectionId, e);
+            sink.completeWithError(e);
+            return false;
+        } finally {
+            imageConnectionStatus.remove(connectionId);
+        }
     }
 
     /**
      * 修复转义字符问题
      */
-    private String fixUrlEscapeCharacters(String url) {
+    private static String fixUrlEscapeCharacters(String url) {
         if (url == null || url.isEmpty()) {
             return url;
         }
@@ -692,7 +1148,7 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
     }
 
     // 发送错误事件的工具方法
-    private void sendImageSseError(SseEmitter emitter, String connectionId, String errorMsg) throws IOException {
+    private void sendImageSseError(StreamSink sink, String connectionId, String errorMsg) throws IOException {
         if (!imageConnectionStatus.containsKey(connectionId)) {
             return;
         }
@@ -700,86 +1156,81 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
         error.put("id", "error-" + connectionId);
         error.put("object", "image.generation.error");
         error.put("message", errorMsg);
-        emitter.send(SseEmitter.event()
-                .name("error")
-                .data(objectMapper.writeValueAsString(error)));
+        sink.send("error", objectMapper.writeValueAsString(error));
     }
 
     /**
-     * 设置SSE回调
+     * 设置输出通道回调：连接关闭（完成、超时、出错或取消）后停止转发
      */
-    private void setupImageSseCallbacks(SseEmitter emitter, String connectionId) {
-        emitter.onCompletion(() -> {
-            log.info("生图SSE连接完成[连接ID: {}]", connectionId);
-            imageConnectionStatus.remove(connectionId);
-        });
-
-        emitter.onTimeout(() -> {
-            log.warn("生图SSE连接超时[连接ID: {}]", connectionId);
-            imageConnectionStatus.remove(connectionId);
-        });
-
-        emitter.onError((ex) -> {
-            log.error("生图SSE连接错误[连接ID: {}]", connectionId, ex);
+    private void setupImageSinkCallbacks(StreamSink sink, String connectionId) {
+        sink.onClose(() -> {
             imageConnectionStatus.remove(connectionId);
+            log.info(LogCategory.REQUEST, "生图流式连接关闭[连接ID: {}]", connectionId);
         });
     }
 
     /**
      * 发送SSE数据
      */
-    private void sendImageSseData(SseEmitter emitter, String connectionId, String data) throws IOException {
+    private void sendImageSseData(StreamSink sink, String connectionId, String data) throws IOException {
         if (!imageConnectionStatus.containsKey(connectionId)) {
             throw new IOException("生图SSE连接已关闭");
         }
-        emitter.send(SseEmitter.event().data(data));
+        long startNanos = System.nanoTime();
+        sink.send(data);
+        metrics.recordClientWrite(DoubaoMetrics.IMAGE, startNanos);
+        RelayTrace trace = RelayTrace.current();
+        if (trace != null) {
+            trace.recordWrite(System.nanoTime() - startNanos);
+        }
     }
 
     /**
      * 处理流式错误
      */
-    private void handleImageStreamError(SseEmitter emitter, Exception e, String connectionId) {
+    private void handleImageStreamError(StreamSink sink, Exception e, String connectionId) {
         try {
             Map<String, Object> error = new HashMap<>();
             error.put("id", "error-" + connectionId);
             error.put("object", "image.generation.error");
             error.put("message", e.getMessage());
-            emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(error)));
+            sink.send("error", objectMapper.writeValueAsString(error));
         } catch (IOException ex) {
             log.warn("发送生图错误事件失败", ex);
         } finally {
-            emitter.completeWithError(e);
+            sink.completeWithError(e);
         }
     }
 
     /**
-     * 标记账号为失效
+     * 标记账号为失效：仅在由健康变为失效时记录事件并清理绑定的会话（每次失效只扫描一次绑定表）
      */
     private void markImageAccountInvalid(String accountKey, Exception e) {
         AccountStatus status = imageAccountStatusCache.get(accountKey);
-        if (status != null) {
-            status.setHealthy(false);
-            status.setLastFailTime(System.currentTimeMillis());
-            log.error("生图账号{}已失效，原因:{}", accountKey, e.getMessage());
-
-            // 清理绑定的会话
-            List<String> boundSessions = imageSessionAccountBindCache.entrySet().stream()
-                    .filter(entry -> {
-                        int boundIndex = entry.getValue();
-                        String boundAccountKey = getAccountKey(accounts.get(boundIndex));
-                        return boundAccountKey.equals(accountKey);
-                    })
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-
-            boundSessions.forEach(sessionId -> {
-                imageSessionAccountBindCache.remove(sessionId);
-                imageSessionCache.remove(sessionId);
-                log.info("清除失效生图账号{}绑定的会话: {}", accountKey, sessionId);
-            });
+        if (status == null || !status.markInvalid(e.getMessage())) {
+            return;
         }
+        healthyAccountCount.decrementAndGet();
+        int accountIndex = status.getAccountIndex();
+        AccountStateEvent.emit(DoubaoMetrics.IMAGE, accountIndex, accountKey,
+                AccountStateEvent.HEALTHY, AccountStateEvent.INVALID, e.getMessage());
+        log.error("生图账号{}已失效，原因:{}", accountKey, e.getMessage());
+
+        // 清理绑定的会话
+        List<String> boundSessions = imageSessionAccountBindCache.entrySet().stream()
+                .filter(entry -> entry.getValue() == accountIndex)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        boundSessions.forEach(sessionId -> {
+            if (imageSessionAccountBindCache.remove(sessionId, accountIndex)) {
+                status.sessionUnbound();
+            }
+            imageSessionCache.remove(sessionId);
+            log.info("清除失效生图账号{}绑定的会话: {}", accountKey, sessionId);
+        });
+        SessionEvictionEvent.emit(DoubaoMetrics.IMAGE, SessionEvictionEvent.ACCOUNT_INVALID,
+                boundSessions.size(), imageSessionCache.size());
     }
 
     /**
@@ -802,8 +1253,11 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
                 DoubaoProperties.AccountConfig account = accounts.get(accountIndex);
                 try {
                     signatureService.getMsToken(account.getCookie()); // 验证账号有效性
-                    status.setHealthy(true);
-                    status.setActiveConnections(0);
+                    if (status.markHealthy()) {
+                        healthyAccountCount.incrementAndGet();
+                        AccountStateEvent.emit(DoubaoMetrics.IMAGE, accountIndex, accountKey,
+                                AccountStateEvent.INVALID, AccountStateEvent.HEALTHY, "recovered");
+                    }
                     log.info("生图账号{}已恢复健康", accountKey);
                 } catch (Exception e) {
                     log.warn("生图账号{}仍未恢复:{}", accountKey, e.getMessage());
@@ -827,20 +1281,34 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
 
         expiredSessions.forEach(sessionId -> {
             imageSessionCache.remove(sessionId);
-            imageSessionAccountBindCache.remove(sessionId);
+            unbindSession(sessionId);
         });
+        SessionEvictionEvent.emit(DoubaoMetrics.IMAGE, SessionEvictionEvent.EXPIRED,
+                expiredSessions.size(), imageSessionCache.size());
 
         log.info("清理生图过期会话，清理前:{}，清理后:{}，清理数:{}",
                 initialSize, imageSessionCache.size(), expiredSessions.size());
     }
 
+    /**
+     * 账号连接释放（只执行一次）：正常结束与连接关闭回调都会调用
+     */
+    private Runnable slotReleaser(String accountKey) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                decrementImageActiveConnections(accountKey);
+            }
+        };
+    }
+
     /**
      * 增加活跃连接数
      */
     private void incrementImageActiveConnections(String accountKey) {
         AccountStatus status = imageAccountStatusCache.get(accountKey);
         if (status != null) {
-            status.setActiveConnections(status.getActiveConnections() + 1);
+            status.incrementActiveConnections();
         }
     }
 
@@ -850,8 +1318,13 @@ public class DoubaoImageServiceImpl implements IDoubaoImageService {
     private void decrementImageActiveConnections(String accountKey) {
         AccountStatus status = imageAccountStatusCache.get(accountKey);
         if (status != null) {
-            int newCount = Math.max(0, status.getActiveConnections() - 1);
-            status.setActiveConnections(newCount);
+            status.decrementActiveConnections();
         }
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        imageSessionScheduler.shutdownNow();
+        imageAccountRecoveryScheduler.shutdownNow();
+    }
+}
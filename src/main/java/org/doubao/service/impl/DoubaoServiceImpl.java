@@ -3,6 +3,11 @@ package org.doubao.service.impl;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
@@ -16,14 +21,28 @@ import org.doubao.domain.SessionData;
 import org.doubao.domain.dto.ChatCompletionRequest;
 import org.doubao.domain.dto.SignatureRequest;
 import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
 import org.doubao.domain.vo.ChatCompletionResponse;
 import org.doubao.domain.vo.DoubaoModel;
 import org.doubao.domain.vo.SignatureResponse;
+import org.doubao.domain.vo.UpstreamTrafficStats;
+import org.doubao.http.UpstreamTrafficCounter;
+import org.doubao.jfr.AccountStateEvent;
+import org.doubao.jfr.SessionEvictionEvent;
+import org.doubao.jfr.UpstreamRequestEvent;
+import org.doubao.logging.LogCategory;
+import org.doubao.metrics.DoubaoMetrics;
+import org.doubao.metrics.ServerTiming;
 import org.doubao.service.IDoubaoService;
 import org.doubao.service.ISignatureService;
+import org.doubao.service.IStreamResumeService;
+import org.doubao.stream.StreamSink;
+import org.doubao.tracing.DoubaoTracing;
+import org.doubao.tracing.RelayTrace;
+import org.doubao.utils.FanOutUtils;
 import org.doubao.utils.SseUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -31,9 +50,14 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -44,6 +68,11 @@ public class DoubaoServiceImpl implements IDoubaoService {
     private final CloseableHttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final ISignatureService signatureService;
+    private final IStreamResumeService streamResumeService;
+    private final UpstreamTrafficCounter upstreamTrafficCounter;
+    private final DoubaoMetrics metrics;
+    private final DoubaoTracing tracing;
+    private final Executor relayExecutor;
     private final List<DoubaoProperties.AccountConfig> accounts; // 账号列表
 
     // 会话缓存（统一使用SessionData类型）
@@ -52,6 +81,11 @@ public class DoubaoServiceImpl implements IDoubaoService {
     private final Map<String, Integer> sessionAccountBindCache = new ConcurrentHashMap<>();
     // 账号状态缓存：存储每个账号的健康状态、活跃连接数、最后失败时间
     private final Map<String, AccountStatus> accountStatusCache = new ConcurrentHashMap<>();
+    // 按账号索引的状态（与 accountStatusCache 为同一对象）及健康账号数，账号选择按索引遍历，不扫描映射表
+    private final List<AccountStatus> accountStatusByIndex = new ArrayList<>();
+    private final AtomicInteger healthyAccountCount = new AtomicInteger();
+    // 账号选择的轮转起点
+    private final AtomicInteger selectCursor = new AtomicInteger();
     // 连接状态管理
     private final Map<String, Boolean> connectionStatus = new ConcurrentHashMap<>();
     // 定时任务：清理过期会话
@@ -69,15 +103,28 @@ public class DoubaoServiceImpl implements IDoubaoService {
     public DoubaoServiceImpl(DoubaoProperties doubaoProperties,
                              CloseableHttpClient httpClient,
                              ObjectMapper objectMapper,
-                             ISignatureService signatureService) {
+                             ISignatureService signatureService,
+                             IStreamResumeService streamResumeService,
+                             UpstreamTrafficCounter upstreamTrafficCounter,
+                             DoubaoMetrics metrics,
+                             DoubaoTracing tracing,
+                             @Qualifier("relayExecutor") Executor relayExecutor) {
         this.doubaoProperties = doubaoProperties;
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
         this.signatureService = signatureService;
+        this.streamResumeService = streamResumeService;
+        this.upstreamTrafficCounter = upstreamTrafficCounter;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.relayExecutor = relayExecutor;
         this.accounts = doubaoProperties.getAccounts();
 
         // 初始化账号状态
         initAccountStatusCache();
+        metrics.registerCacheSize("session", DoubaoMetrics.CHAT, sessionCache);
+        metrics.registerCacheSize("session_account_bind", DoubaoMetrics.CHAT, sessionAccountBindCache);
+        metrics.registerCacheSize("stream_connection", DoubaoMetrics.CHAT, connectionStatus);
         // 启动会话清理任务（每小时执行一次）
         sessionScheduler.scheduleAtFixedRate(this::cleanExpiredSessions, 1, 1, TimeUnit.HOURS);
         // 启动账号恢复检测任务（每5分钟执行一次）
@@ -94,12 +141,11 @@ public class DoubaoServiceImpl implements IDoubaoService {
         for (int i = 0; i < accounts.size(); i++) {
             DoubaoProperties.AccountConfig account = accounts.get(i);
             String accountKey = getAccountKey(account); // 生成账号唯一标识
-            AccountStatus status = new AccountStatus();
-            status.setAccountIndex(i);
-            status.setHealthy(true);
-            status.setActiveConnections(0);
-            status.setLastFailTime(0L);
+            AccountStatus status = new AccountStatus(i, accountKey);
             accountStatusCache.put(accountKey, status);
+            accountStatusByIndex.add(status);
+            healthyAccountCount.incrementAndGet();
+            metrics.registerAccount(DoubaoMetrics.CHAT, i, status::getActiveConnections);
             log.info("初始化会话账号[{}]状态: 健康", accountKey);
         }
     }
@@ -115,74 +161,181 @@ public class DoubaoServiceImpl implements IDoubaoService {
     }
 
     @Override
-    public SseEmitter chatCompletionsStream(ChatCompletionRequest request, String apiKey) {
+    public void chatCompletionsStream(ChatCompletionRequest request, String apiKey,
+                                      HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        // 先校验再开启异步响应，校验失败仍按普通错误返回
         validateApiKey(apiKey);
-
+        resolveChoiceCount(request);
         // 设置3分钟超时
-        SseEmitter emitter = new SseEmitter(180000L);
+        chatCompletionsStream(request, apiKey, streamResumeService.open(httpRequest, httpResponse, 180000L));
+    }
+
+    @Override
+    public void chatCompletionsStream(ChatCompletionRequest request, String apiKey, StreamSink sink) {
+        validateApiKey(apiKey);
+        int n = resolveChoiceCount(request);
+        long startNanos = System.nanoTime();
+        ServerTiming timing = Boolean.TRUE.equals(doubaoProperties.getServerTiming().getEnabled())
+                ? new ServerTiming(startNanos) : null;
+
         String connectionId = UUID.randomUUID().toString();
         connectionStatus.put(connectionId, true);
 
-        setupSseCallbacks(emitter, connectionId);
+        setupSinkCallbacks(sink, connectionId);
 
         // 异步处理流式请求
-        Executors.newSingleThreadExecutor().submit(() -> {
-            try {
-                processRealStreamRequest(request, emitter, connectionId);
-            } catch (Exception e) {
-                handleStreamError(emitter, e, connectionId);
+        relayExecutor.execute(() -> {
+            String outcome = DoubaoMetrics.ERROR;
+            try (Scope ignored = ServerTiming.begin(timing);
+                 RelayTrace trace = tracing.startRelay(DoubaoMetrics.CHAT, request.getModel(), n)) {
+                try {
+                    outcome = processRealStreamRequest(request, n, sink, connectionId)
+                            ? DoubaoMetrics.SUCCESS : DoubaoMetrics.CANCELLED;
+                } catch (Exception e) {
+                    trace.fail(e);
+                    handleStreamError(sink, e, connectionId);
+                } finally {
+                    trace.outcome(outcome, DoubaoMetrics.CANCELLED.equals(outcome) ? sink.getCloseReason() : null);
+                }
+            } finally {
+                metrics.recordStreamDuration(DoubaoMetrics.CHAT, startNanos);
+                metrics.recordRequest(DoubaoMetrics.CHAT_ENDPOINT, request.getModel(), true, outcome, startNanos);
             }
         });
-
-        return emitter;
     }
 
     @Override
     public ChatCompletionResponse chatCompletions(ChatCompletionRequest request, String apiKey) {
         validateApiKey(apiKey);
 
+        int n = resolveChoiceCount(request);
+        long startNanos = System.nanoTime();
+        String outcome = DoubaoMetrics.ERROR;
+        try {
+            ChatCompletionResponse response = n > 1 ? chatCompletionsParallel(request, n) : doChatCompletion(request);
+            outcome = DoubaoMetrics.SUCCESS;
+            return response;
+        } finally {
+            metrics.recordRequest(DoubaoMetrics.CHAT_ENDPOINT, request.getModel(), false, outcome, startNanos);
+        }
+    }
+
+    @Override
+    public ChatCompletionResponse chatCompletionsOnAccount(ChatCompletionRequest request, String apiKey, int accountIndex) {
+        validateApiKey(apiKey);
+        if (accountIndex < 0 || accountIndex >= accounts.size()) {
+            throw new ServiceException("账号索引超出范围: " + accountIndex, HttpStatus.BAD_REQUEST);
+        }
+        if (resolveChoiceCount(request) > 1) {
+            throw new ServiceException("指定账号执行时选项数量 n 只能为 1", HttpStatus.BAD_REQUEST);
+        }
+        // 在副本上执行，不修改调用方的请求
+        ChatCompletionRequest oneShot = buildFanOutRequest(request, -1);
+        oneShot.setStream(false);
+
+        long startNanos = System.nanoTime();
+        String outcome = DoubaoMetrics.ERROR;
+        try {
+            ChatCompletionResponse response = doChatCompletion(oneShot, accountIndex);
+            outcome = DoubaoMetrics.SUCCESS;
+            return response;
+        } finally {
+            metrics.recordRequest(DoubaoMetrics.CHAT_ENDPOINT, oneShot.getModel(), false, outcome, startNanos);
+        }
+    }
+
+    /**
+     * 执行一次非流式聊天（单个上游请求）
+     */
+    private ChatCompletionResponse doChatCompletion(ChatCompletionRequest request) {
+        return doChatCompletion(request, -1);
+    }
+
+    /**
+     * 执行一次非流式聊天；pinnedAccount >= 0 时直接使用该账号、不建立会话（账号失效则失败，不改派），
+     * 否则按会话绑定选择账号
+     */
+    private ChatCompletionResponse doChatCompletion(ChatCompletionRequest request, int pinnedAccount) {
         String sessionId = Optional.ofNullable(request.getUser())
                 .orElse("session-" + UUID.randomUUID().toString().substring(0, 8));
         String accountKey = null;
+        long accountStart = 0;
 
         try {
             // 获取绑定的账号
-            DoubaoProperties.AccountConfig account = getNextAccount(sessionId);
+            long selectStart = System.nanoTime();
+            DoubaoProperties.AccountConfig account = pinnedAccount >= 0
+                    ? acquirePinnedAccount(pinnedAccount) : getNextAccount(sessionId);
             accountKey = getAccountKey(account);
-
-            // 初始化或获取会话数据
-            SessionData sessionData = sessionCache.computeIfAbsent(sessionId, k -> {
-                SessionData newSession = new SessionData();
-                newSession.setConversationId("0");
-                newSession.setLastActiveTime(System.currentTimeMillis());
-                return newSession;
-            });
-            sessionData.setLastActiveTime(System.currentTimeMillis());
-            String conversationId = sessionData.getConversationId();
+            accountStart = System.nanoTime();
+            metrics.recordAccountSelect(DoubaoMetrics.CHAT, selectStart);
+
+            // 初始化或获取会话数据（指定账号时每次都是新对话）
+            String conversationId = "0";
+            if (pinnedAccount < 0) {
+                SessionData sessionData = sessionCache.computeIfAbsent(sessionId, k -> {
+                    SessionData newSession = new SessionData();
+                    newSession.setConversationId("0");
+                    newSession.setLastActiveTime(System.currentTimeMillis());
+                    return newSession;
+                });
+                sessionData.setLastActiveTime(System.currentTimeMillis());
+                conversationId = sessionData.getConversationId();
+            }
+            String finalConversationId = conversationId;
 
             // 构建请求
-            String signedUrl = buildSignedUrl(account);
+            long phaseStart = System.nanoTime();
+            String signedUrl = tracing.inSpan("doubao.sign", () -> buildSignedUrl(account));
+            metrics.recordSign(DoubaoMetrics.CHAT, phaseStart);
             HttpPost httpPost = buildHttpPost(signedUrl, account.getCookie());
-            String payload = buildRealPayload(request, conversationId, account);
+            phaseStart = System.nanoTime();
+            String payload = tracing.inSpan("doubao.payload.build",
+                    () -> buildRealPayload(request, finalConversationId, account));
+            metrics.recordPayloadBuild(DoubaoMetrics.CHAT, phaseStart);
             httpPost.setEntity(new StringEntity(payload, StandardCharsets.UTF_8));
-
-            log.info("发送豆包API请求[会话: {}, 账号: {}]，对话ID: {}", sessionId, accountKey, conversationId);
-
-            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            // 并行选项整体超时时中断上游请求
+            FanOutUtils.onAbort(httpPost::cancel);
+
+            log.info(LogCategory.REQUEST, "发送豆包API请求[会话: {}, 账号: {}]，对话ID: {}", sessionId, accountKey, conversationId);
+
+            Span upstreamSpan = tracing.startUpstreamSpan(DoubaoMetrics.CHAT, accountKey, sessionId,
+                    request.getModel());
+            UpstreamRequestEvent upstreamEvent = UpstreamRequestEvent.start(DoubaoMetrics.CHAT, accountKey);
+            long upstreamStart = System.nanoTime();
+            try (Scope ignored = upstreamSpan.makeCurrent();
+                 CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                metrics.recordUpstreamConnect(DoubaoMetrics.CHAT, upstreamStart);
+                DoubaoTracing.responseReceived(upstreamSpan, response.getCode());
+                upstreamEvent.responseReceived(response);
                 if (response.getCode() != 200) {
                     throw new ServiceException("上游服务返回错误状态: " + response.getCode());
                 }
                 return parseNonStreamResponse(response, request.getModel(), sessionId, conversationId);
+            } catch (Exception e) {
+                DoubaoTracing.recordError(upstreamSpan, e);
+                upstreamEvent.failed(e);
+                throw e;
+            } finally {
+                upstreamSpan.end();
+                upstreamEvent.finish();
             }
 
         } catch (Exception e) {
+            if (FanOutUtils.isAborted()) {
+                // 并行选项整体超时导致的中断，不影响账号健康状态
+                log.warn("非流式聊天请求超时已中断[会话: {}, 账号: {}]", sessionId, accountKey);
+                throw new ServiceException("请求超时", HttpStatus.GATEWAY_TIMEOUT);
+            }
             log.error("非流式聊天请求失败[会话: {}, 账号: {}]", sessionId, accountKey, e);
             if (accountKey != null) {
+                recordAccountError(accountKey);
                 markAccountInvalid(accountKey, e);
             }
             throw new ServiceException("豆包AI服务暂时不可用: " + e.getMessage());
         } finally {
             if (accountKey != null) {
+                recordAccountLatency(accountKey, accountStart);
                 decrementActiveConnections(accountKey);
             }
         }
@@ -204,24 +357,164 @@ public class DoubaoServiceImpl implements IDoubaoService {
         return response;
     }
 
+    @Override
+    public UpstreamTrafficStats getUpstreamStats(String apiKey) {
+        validateApiKey(apiKey);
+        return upstreamTrafficCounter.snapshot();
+    }
+
     @Override
     public String healthCheck() {
-        long healthyCount = accountStatusCache.values().stream().filter(AccountStatus::isHealthy).count();
-        return String.format("豆包AI服务运行正常，健康账号数: %d/%d", healthyCount, accountStatusCache.size());
+        return String.format("豆包AI服务运行正常，健康账号数: %d/%d", healthyAccountCount.get(), accountStatusByIndex.size());
+    }
+
+    @Override
+    public List<AccountStatus> getAccountStatuses() {
+        return Collections.unmodifiableList(accountStatusByIndex);
+    }
+
+    @Override
+    public int getHealthyAccountCount() {
+        return healthyAccountCount.get();
+    }
+
+    @Override
+    public int getSessionCount() {
+        return sessionCache.size();
+    }
+
+    /**
+     * 并行生成多个选项（n>1）：拆分到多个账号并发执行，按序号合并选项
+     */
+    private ChatCompletionResponse chatCompletionsParallel(ChatCompletionRequest request, int n) {
+        AtomicReferenceArray<ChatCompletionResponse> results = new AtomicReferenceArray<>(n);
+        AtomicReferenceArray<String> errors = new AtomicReferenceArray<>(n);
+
+        BitSet unclaimed = runFanOut(n, index -> {
+            try {
+                results.set(index, doChatCompletion(buildFanOutRequest(request, index)));
+            } catch (Exception e) {
+                errors.set(index, e.getMessage());
+            }
+        });
+
+        ChatCompletionResponse merged = null;
+        List<ChatCompletionResponse.Choice> choices = new ArrayList<>();
+        int completionTokens = 0;
+        String firstError = null;
+        for (int i = 0; i < n; i++) {
+            ChatCompletionResponse result = results.get(i);
+            if (result != null) {
+                if (merged == null) {
+                    merged = result;
+                }
+                ChatCompletionResponse.Choice choice = result.getChoices().get(0);
+                choice.setIndex(i);
+                choices.add(choice);
+                completionTokens += result.getUsage().getCompletionTokens();
+            } else {
+                // 失败或超时未执行的选项保留序号，finish_reason 标记为 error
+                String error = unclaimed.get(i) ? "请求超时，选项未执行"
+                        : Optional.ofNullable(errors.get(i)).orElse("请求超时");
+                firstError = Optional.ofNullable(firstError).orElse(error);
+                choices.add(createErrorChoice(i));
+            }
+        }
+        if (merged == null) {
+            throw new ServiceException("豆包AI服务暂时不可用: " + firstError);
+        }
+        if (firstError != null) {
+            log.warn("并行聊天部分失败，成功选项: {}/{}，首个错误: {}",
+                    choices.stream().filter(c -> !"error".equals(c.getFinishReason())).count(), n, firstError);
+        }
+
+        merged.setChoices(choices);
+        ChatCompletionResponse.Usage usage = merged.getUsage();
+        usage.setCompletionTokens(completionTokens);
+        usage.setTotalTokens(usage.getPromptTokens() + completionTokens);
+        return merged;
+    }
+
+    /**
+     * 处理真实流式请求：n>1 时各选项并发请求上游，分片按 index 交错推送；返回是否完整推送到客户端
+     */
+    private boolean processRealStreamRequest(ChatCompletionRequest request, int n,
+                                          StreamSink sink, String connectionId) throws IOException {
+        String requestId = "chatcmpl-" + UUID.randomUUID().toString();
+        String model = request.getModel();
+
+        if (n == 1) {
+            streamChoice(request, sink, connectionId, requestId, 0);
+            sendStopChunk(sink, connectionId, requestId, model, 0, "stop");
+        } else {
+            AtomicReferenceArray<String> errors = new AtomicReferenceArray<>(n);
+            BitSet unclaimed = runFanOut(n, index -> {
+                String finishReason = "stop";
+                try {
+                    streamChoice(buildFanOutRequest(request, index), sink, connectionId, requestId, index);
+                } catch (Exception e) {
+                    errors.set(index, e.getMessage());
+                    finishReason = "error";
+                }
+                sendStopChunkQuietly(sink, connectionId, requestId, model, index, finishReason);
+            });
+            // 超时未执行的选项同样以 error 结束（runFanOut 返回后不会再有选项写入）
+            unclaimed.stream().forEach(index -> {
+                errors.set(index, "请求超时，选项未执行");
+                sendStopChunkQuietly(sink, connectionId, requestId, model, index, "error");
+            });
+            boolean allFailed = true;
+            for (int i = 0; i < n && allFailed; i++) {
+                allFailed = errors.get(i) != null;
+            }
+            if (allFailed) {
+                throw new ServiceException("流式请求处理失败: " + errors.get(0));
+            }
+        }
+
+        try {
+            if (connectionStatus.containsKey(connectionId)) {
+                ServerTiming timing = ServerTiming.current();
+                if (timing != null) {
+                    sendSseData(sink, connectionId, objectMapper.writeValueAsString(
+                            SseUtils.createTimingChunk(requestId, model, timing.toHeader())));
+                }
+                sendSseData(sink, connectionId, SseUtils.createDoneChunk());
+                log.info(LogCategory.REQUEST, "SSE流正常结束[连接ID: {}]", connectionId);
+                RelayTrace trace = RelayTrace.current();
+                if (trace != null) {
+                    trace.completed();
+                }
+                return true;
+            }
+            return false;
+        } finally {
+            connectionStatus.remove(connectionId);
+            sink.complete(); // 显式通知客户端流结束
+        }
     }
 
     /**
-     * 处理真实流式请求
+     * 流式请求单个选项：选择账号并把上游内容转发为带 index 的分片
      */
-    private void processRealStreamRequest(ChatCompletionRequest request, SseEmitter emitter, String connectionId) {
+    private void streamChoice(ChatCompletionRequest request, StreamSink sink, String connectionId,
+                              String requestId, int index) {
         String sessionId = Optional.ofNullable(request.getUser())
                 .orElse("session-" + UUID.randomUUID().toString().substring(0, 8));
         String accountKey = null;
+        Runnable releaseSlot = null;
+        long accountStart = 0;
 
         try {
             // 获取绑定的账号
+            long selectStart = System.nanoTime();
             DoubaoProperties.AccountConfig account = getNextAccount(sessionId);
             accountKey = getAccountKey(account);
+            accountStart = System.nanoTime();
+            metrics.recordAccountSelect(DoubaoMetrics.CHAT, selectStart);
+            // 客户端失联或取消时立即释放账号连接，无需等待转发线程退出
+            releaseSlot = slotReleaser(accountKey);
+            sink.onClose(releaseSlot);
 
             // 初始化或获取会话数据
             SessionData sessionData = sessionCache.computeIfAbsent(sessionId, k -> {
@@ -234,46 +527,106 @@ public class DoubaoServiceImpl implements IDoubaoService {
             String conversationId = sessionData.getConversationId();
 
             // 构建请求
-            String signedUrl = buildSignedUrl(account);
+            long phaseStart = System.nanoTime();
+            String signedUrl = tracing.inSpan("doubao.sign", () -> buildSignedUrl(account));
+            metrics.recordSign(DoubaoMetrics.CHAT, phaseStart);
             HttpPost httpPost = buildHttpPost(signedUrl, account.getCookie());
-            String payload = buildRealPayload(request, conversationId, account);
+            phaseStart = System.nanoTime();
+            String payload = tracing.inSpan("doubao.payload.build",
+                    () -> buildRealPayload(request, conversationId, account));
+            metrics.recordPayloadBuild(DoubaoMetrics.CHAT, phaseStart);
             httpPost.setEntity(new StringEntity(payload, StandardCharsets.UTF_8));
-
-            String requestId = "chatcmpl-" + UUID.randomUUID().toString();
-            log.info("发送流式请求[会话: {}, 账号: {}]，请求ID: {}", sessionId, accountKey, requestId);
-
-            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            // 客户端断开、取消或并行选项整体超时时立即中断上游请求，释放账号连接
+            sink.onClose(httpPost::cancel);
+            FanOutUtils.onAbort(httpPost::cancel);
+
+            log.info(LogCategory.REQUEST, "发送流式请求[会话: {}, 账号: {}]，请求ID: {}，选项: {}", sessionId, accountKey, requestId, index);
+
+            Span upstreamSpan = tracing.startUpstreamSpan(DoubaoMetrics.CHAT, accountKey, sessionId,
+                    request.getModel());
+            UpstreamRequestEvent upstreamEvent = UpstreamRequestEvent.start(DoubaoMetrics.CHAT, accountKey);
+            upstreamSpan.setAttribute("doubao.index", index);
+            long upstreamStart = System.nanoTime();
+            try (Scope ignored = upstreamSpan.makeCurrent();
+                 CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                metrics.recordUpstreamConnect(DoubaoMetrics.CHAT, upstreamStart);
+                DoubaoTracing.responseReceived(upstreamSpan, response.getCode());
+                upstreamEvent.responseReceived(response);
                 if (response.getCode() != 200) {
                     throw new ServiceException("上游服务返回错误状态: " + response.getCode());
                 }
-                processStreamResponse(response, emitter, connectionId, requestId, request.getModel(), sessionId, conversationId);
+                processStreamResponse(response, sink, connectionId, requestId, request.getModel(),
+                        sessionId, conversationId, index, upstreamStart);
+            } catch (Exception e) {
+                DoubaoTracing.recordError(upstreamSpan, e);
+                upstreamEvent.failed(e);
+                throw e;
+            } finally {
+                upstreamSpan.end();
+                upstreamEvent.finish();
             }
 
         } catch (Exception e) {
+            if (!connectionStatus.containsKey(connectionId)) {
+                // 客户端已断开或取消导致的中断，不影响账号健康状态
+                log.info("流式请求已中断[会话: {}, 账号: {}]", sessionId, accountKey);
+                return;
+            }
+            if (FanOutUtils.isAborted()) {
+                // 并行选项整体超时导致的中断，不影响账号健康状态
+                log.warn("流式请求超时已中断[会话: {}, 账号: {}]，选项: {}", sessionId, accountKey, index);
+                throw new ServiceException("请求超时", HttpStatus.GATEWAY_TIMEOUT);
+            }
             log.error("处理流式请求失败[会话: {}, 账号: {}]", sessionId, accountKey, e);
             if (accountKey != null) {
+                recordAccountError(accountKey);
                 markAccountInvalid(accountKey, e);
             }
             throw new ServiceException("流式请求处理失败: " + e.getMessage());
         } finally {
-            if (accountKey != null) {
-                decrementActiveConnections(accountKey);
+            if (releaseSlot != null) {
+                recordAccountLatency(accountKey, accountStart);
+                releaseSlot.run();
             }
-            connectionStatus.remove(connectionId);
+        }
+    }
+
+    private void sendStopChunkQuietly(StreamSink sink, String connectionId, String requestId, String model,
+                                      int index, String finishReason) {
+        try {
+            sendStopChunk(sink, connectionId, requestId, model, index, finishReason);
+        } catch (IOException e) {
+            log.debug("发送选项结束分片失败[连接ID: {}, 选项: {}]", connectionId, index);
+        }
+    }
+
+    /**
+     * 发送选项结束分片
+     */
+    private void sendStopChunk(StreamSink sink, String connectionId, String requestId, String model,
+                               int index, String finishReason) throws IOException {
+        if (connectionStatus.containsKey(connectionId)) {
+            Map<String, Object> finalChunk = SseUtils.createChunk(requestId, model, index, "", finishReason);
+            sendSseData(sink, connectionId, objectMapper.writeValueAsString(finalChunk));
         }
     }
 
     /**
-     * 处理流式响应并发送SSE
+     * 处理流式响应并发送SSE（upstreamStart 为上游请求发出时刻，用于首事件耗时）
      */
-    private void processStreamResponse(CloseableHttpResponse response, SseEmitter emitter,
+    private void processStreamResponse(CloseableHttpResponse response, StreamSink sink,
                                        String connectionId, String requestId, String model,
-                                       String sessionId, String conversationId) throws IOException {
+                                       String sessionId, String conversationId, int index,
+                                       long upstreamStart) throws IOException {
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
 
             String line;
             String newConversationId = null;
+            boolean firstEvent = true;
+            // 上一个内容事件的时刻，0 表示尚未收到内容
+            long lastTokenAt = 0;
+            RelayTrace trace = RelayTrace.current();
 
             while ((line = reader.readLine()) != null) {
                 if (!connectionStatus.containsKey(connectionId)) {
@@ -284,6 +637,11 @@ public class DoubaoServiceImpl implements IDoubaoService {
                 if (line.startsWith("data: ")) {
                     String data = line.substring(6).trim();
                     if (data.isEmpty() || "[DONE]".equals(data)) continue;
+                    if (firstEvent) {
+                        metrics.recordFirstEvent(DoubaoMetrics.CHAT, upstreamStart);
+                        Span.current().addEvent("first.event");
+                        firstEvent = false;
+                    }
 
                     try {
                         JsonNode jsonData = objectMapper.readTree(data);
@@ -317,7 +675,7 @@ public class DoubaoServiceImpl implements IDoubaoService {
                                     sessionData.setConversationId(newConversationId);
                                     sessionData.setLastActiveTime(System.currentTimeMillis());
                                     sessionCache.put(sessionId, sessionData);
-                                    log.info("更新会话ID[会话: {}]: {} -> {}", sessionId, conversationId, newConversationId);
+                                    log.info(LogCategory.SESSION, "更新会话ID[会话: {}]: {} -> {}", sessionId, conversationId, newConversationId);
                                 }
                             }
                         }
@@ -328,31 +686,26 @@ public class DoubaoServiceImpl implements IDoubaoService {
                                 log.debug("event_type=2001但缺少event_data字段: {}", data);
                                 continue;
                             }
-                            String eventData = eventDataNode.asText();
-                            JsonNode eventDataJson = objectMapper.readTree(eventData);
-                            JsonNode messageNode = eventDataJson.get("message");
-                            if (messageNode == null) {
-                                log.debug("event_data缺少message字段: {}", eventData);
-                                continue;
-                            }
-                            JsonNode contentNode = messageNode.get("content");
-                            if (contentNode == null) {
-                                log.debug("message缺少content字段: {}", messageNode);
-                                continue;
-                            }
-                            String contentJson = contentNode.asText();
-                            JsonNode contentDetailNode = objectMapper.readTree(contentJson);
-                            JsonNode textNode = contentDetailNode.get("text");
-                            if (textNode == null) {
-                                log.debug("content缺少text字段: {}", contentJson);
+                            String deltaContent = extractDeltaText(objectMapper, eventDataNode.asText());
+                            if (deltaContent == null) {
                                 continue;
                             }
-                            String deltaContent = textNode.asText();
 
                             if (!deltaContent.isEmpty()) {
+                                long now = System.nanoTime();
+                                if (lastTokenAt != 0) {
+                                    metrics.recordTokenGap(DoubaoMetrics.CHAT, now - lastTokenAt);
+                                }
+                                if (trace != null) {
+                                    if (lastTokenAt == 0) {
+                                        trace.firstChunk("first_token", index);
+                                    }
+                                    trace.recordToken();
+                                }
+                                lastTokenAt = now;
                                 Map<String, Object> chunk = SseUtils.createChunk(
-                                        requestId, model, deltaContent, null);
-                                sendSseData(emitter, connectionId, objectMapper.writeValueAsString(chunk));
+                                        requestId, model, index, deltaContent, null);
+                                sendSseData(sink, connectionId, objectMapper.writeValueAsString(chunk));
                             }
                         }
                     } catch (JsonProcessingException e) {
@@ -361,30 +714,42 @@ public class DoubaoServiceImpl implements IDoubaoService {
                 }
             }
         } catch (IOException e) {
-            log.error("读取流式响应失败", e);
-            throw e;
-        } finally {
-            // 确保发送结束标记
-            try {
-                if (connectionStatus.containsKey(connectionId)) {
-                    Map<String, Object> finalChunk = SseUtils.createChunk(requestId, model, "", "stop");
-                    sendSseData(emitter, connectionId, objectMapper.writeValueAsString(finalChunk));
-                    sendSseData(emitter, connectionId, SseUtils.createDoneChunk());
-                    log.info("SSE流正常结束[连接ID: {}]", connectionId);
-                }
-            } catch (IOException e) {
-                log.warn("发送SSE结束标记失败", e);
-            } finally {
-                connectionStatus.remove(connectionId);
-                emitter.complete(); // 显式通知客户端流结束
+            if (connectionStatus.containsKey(connectionId)) {
+                log.error("读取流式响应失败", e);
             }
+            throw e;
+        }
+    }
+
+    /**
+     * 解析 2001 事件的 event_data（JSON 字符串）→ message.content（JSON 字符串）→ text，字段缺失时返回 null
+     */
+    static String extractDeltaText(ObjectMapper objectMapper, String eventData) throws JsonProcessingException {
+        JsonNode eventDataJson = objectMapper.readTree(eventData);
+        JsonNode messageNode = eventDataJson.get("message");
+        if (messageNode == null) {
+            log.debug("event_data缺少message字段: {}", eventData);
+            return null;
+        }
+        JsonNode contentNode = messageNode.get("content");
+        if (contentNode == null) {
+            log.debug("message缺少content字段: {}", messageNode);
+            return null;
         }
+        String contentJson = contentNode.asText();
+        JsonNode contentDetailNode = objectMapper.readTree(contentJson);
+        JsonNode textNode = contentDetailNode.get("text");
+        if (textNode == null) {
+            log.debug("content缺少text字段: {}", contentJson);
+            return null;
+        }
+        return textNode.asText();
     }
 
     /**
      * 构建签名URL
      */
-    private String buildSignedUrl(DoubaoProperties.AccountConfig account) {
+    String buildSignedUrl(DoubaoProperties.AccountConfig account) {
         try {
             Map<String, String> baseParams = new LinkedHashMap<>();
             baseParams.put("aid", "4978");
@@ -398,7 +763,6 @@ public class DoubaoServiceImpl implements IDoubaoService {
             baseParams.put("sys_region", "CN");
             baseParams.put("use-olympus-account", "1");
             baseParams.put("version_code", "180");
-            System.out.println(account.getCookie());
 
             // 设备指纹参数
             baseParams.put("device_id", account.getDeviceId());
@@ -446,7 +810,7 @@ public class DoubaoServiceImpl implements IDoubaoService {
     /**
      * 构建HTTP请求
      */
-    private HttpPost buildHttpPost(String url, String cookie) {
+    HttpPost buildHttpPost(String url, String cookie) {
         HttpPost httpPost = new HttpPost(url);
         httpPost.setHeader("Accept", "*/*");
         httpPost.setHeader("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8");
@@ -468,8 +832,8 @@ public class DoubaoServiceImpl implements IDoubaoService {
     /**
      * 构建请求体
      */
-    private String buildRealPayload(ChatCompletionRequest request, String conversationId,
-                                    DoubaoProperties.AccountConfig account) throws JsonProcessingException {
+    String buildRealPayload(ChatCompletionRequest request, String conversationId,
+                            DoubaoProperties.AccountConfig account) throws JsonProcessingException {
         if (request.getMessages() == null || request.getMessages().isEmpty()) {
             throw new ServiceException("请求消息列表不能为空");
         }
@@ -533,7 +897,7 @@ public class DoubaoServiceImpl implements IDoubaoService {
         int statusCode = response.getCode();
         String responseBody = EntityUtils.toString(response.getEntity());
 
-        log.info("豆包API响应状态: {}, 响应体长度: {}", statusCode, responseBody.length());
+        log.info(LogCategory.REQUEST, "豆包API响应状态: {}, 响应体长度: {}", statusCode, responseBody.length());
 
         if (statusCode != 200) {
             throw new ServiceException("豆包API服务异常，状态码: " + statusCode);
@@ -570,19 +934,9 @@ public class DoubaoServiceImpl implements IDoubaoService {
                             JsonNode eventDataNode = jsonData.get("event_data");
                             if (eventDataNode == null) continue;
 
-                            String eventData = eventDataNode.asText();
-                            JsonNode eventDataJson = objectMapper.readTree(eventData);
-                            JsonNode messageNode = eventDataJson.get("message");
-                            if (messageNode == null) continue;
-
-                            JsonNode contentNode = messageNode.get("content");
-                            if (contentNode == null) continue;
-
-                            String contentJson = contentNode.asText();
-                            JsonNode contentDetailNode = objectMapper.readTree(contentJson);
-                            JsonNode textNode = contentDetailNode.get("text");
-                            if (textNode != null) {
-                                contentBuilder.append(textNode.asText());
+                            String deltaContent = extractDeltaText(objectMapper, eventDataNode.asText());
+                            if (deltaContent != null) {
+                                contentBuilder.append(deltaContent);
                             }
                         }
                     } catch (Exception e) {
@@ -660,7 +1014,7 @@ public class DoubaoServiceImpl implements IDoubaoService {
     /**
      * 估算Token数量
      */
-    private int estimateTokens(String text) {
+    static int estimateTokens(String text) {
         if (text == null) return 0;
         int chineseCount = text.replaceAll("[^\\u4e00-\\u9fa5]", "").length();
         int englishCount = text.replaceAll("[^a-zA-Z]", "").length();
@@ -668,30 +1022,20 @@ public class DoubaoServiceImpl implements IDoubaoService {
     }
 
     /**
-     * 设置SSE回调
+     * 设置输出通道回调：连接关闭（完成、超时、出错或取消）后停止转发
      */
-    private void setupSseCallbacks(SseEmitter emitter, String connectionId) {
-        emitter.onCompletion(() -> {
-            log.info("SSE连接完成[连接ID: {}], 剩余活跃连接数: {}",
-                    connectionId, connectionStatus.size());
-            connectionStatus.remove(connectionId);
-        });
-
-        emitter.onTimeout(() -> {
-            log.warn("SSE连接超时[连接ID: {}]", connectionId);
-            connectionStatus.remove(connectionId);
-        });
-
-        emitter.onError((ex) -> {
-            log.error("SSE连接错误[连接ID: {}]", connectionId, ex);
+    private void setupSinkCallbacks(StreamSink sink, String connectionId) {
+        sink.onClose(() -> {
             connectionStatus.remove(connectionId);
+            log.info(LogCategory.REQUEST, "流式连接关闭[连接ID: {}], 剩余活跃连接数: {}",
+                    connectionId, connectionStatus.size());
         });
     }
 
     /**
      * 处理流式错误
      */
-    private void handleStreamError(SseEmitter emitter, Exception e, String connectionId) {
+    private void handleStreamError(StreamSink sink, Exception e, String connectionId) {
         log.error("流式请求处理失败[连接ID: {}]", connectionId, e);
         try {
             String errorMsg = "处理请求失败: " + e.getMessage();
@@ -705,13 +1049,11 @@ public class DoubaoServiceImpl implements IDoubaoService {
             choice.put("finish_reason", "error");
             errorChunk.put("choices", new Object[]{choice});
 
-            emitter.send(SseEmitter.event()
-                    .name("error")
-                    .data(objectMapper.writeValueAsString(errorChunk)));
+            sink.send("error", objectMapper.writeValueAsString(errorChunk));
         } catch (IOException ex) {
             log.error("发送错误事件失败", ex);
         } finally {
-            emitter.completeWithError(e);
+            sink.completeWithError(e);
             connectionStatus.remove(connectionId);
         }
     }
@@ -719,90 +1061,114 @@ public class DoubaoServiceImpl implements IDoubaoService {
     /**
      * 发送SSE数据
      */
-    private void sendSseData(SseEmitter emitter, String connectionId, String data) throws IOException {
+    private void sendSseData(StreamSink sink, String connectionId, String data) throws IOException {
         if (!connectionStatus.containsKey(connectionId)) {
             log.debug("连接已关闭，停止发送数据[连接ID: {}]", connectionId);
             throw new IOException("连接已关闭");
         }
-        emitter.send(SseEmitter.event().data(data));
+        long startNanos = System.nanoTime();
+        sink.send(data);
+        metrics.recordClientWrite(DoubaoMetrics.CHAT, startNanos);
+        RelayTrace trace = RelayTrace.current();
+        if (trace != null) {
+            trace.recordWrite(System.nanoTime() - startNanos);
+        }
     }
 
     /**
-     * 多账号负载均衡+会话绑定
+     * 多账号负载均衡+会话绑定：按账号索引线性选择活跃连接最少的健康账号（从轮转起点开始，连接数相同时分散）
      */
-    private DoubaoProperties.AccountConfig getNextAccount(String sessionId) {
+    DoubaoProperties.AccountConfig getNextAccount(String sessionId) {
         if (accounts.isEmpty()) {
             throw new ServiceException("未配置豆包账号信息");
         }
 
-        // 1. 会话已绑定账号：直接返回绑定的账号（若健康）
-        if (sessionAccountBindCache.containsKey(sessionId)) {
-            Integer boundIndex = sessionAccountBindCache.get(sessionId);
-            DoubaoProperties.AccountConfig boundAccount = accounts.get(boundIndex);
-            String accountKey = getAccountKey(boundAccount);
-            AccountStatus status = accountStatusCache.get(accountKey);
-
-            if (status != null && status.isHealthy()) {
-                incrementActiveConnections(accountKey);
-                return boundAccount;
-            } else {
-                sessionAccountBindCache.remove(sessionId);
-                log.warn("会话{}绑定的账号{}已失效，重新分配账号", sessionId, accountKey);
+        // 1. 会话已绑定账号：直接返回绑定的账号（若健康）；只读取一次，避免与并发解绑交错
+        Integer boundIndex = sessionAccountBindCache.get(sessionId);
+        if (boundIndex != null) {
+            AccountStatus status = accountStatusByIndex.get(boundIndex);
+            if (status.isHealthy()) {
+                status.incrementActiveConnections();
+                return accounts.get(boundIndex);
             }
+            if (sessionAccountBindCache.remove(sessionId, boundIndex)) {
+                status.sessionUnbound();
+            }
+            log.warn("会话{}绑定的账号{}已失效，重新分配账号", sessionId, status.getAccountKey());
         }
 
-        // 2. 筛选健康账号
-        List<Map.Entry<String, AccountStatus>> healthyAccounts = accountStatusCache.entrySet().stream()
-                .filter(entry -> entry.getValue().isHealthy())
-                .sorted(Comparator.comparingInt(entry -> entry.getValue().getActiveConnections()))
-                .collect(Collectors.toList());
-
-        if (healthyAccounts.isEmpty()) {
+        // 2. 选择活跃连接数最少的健康账号（负载均衡）
+        int size = accountStatusByIndex.size();
+        int start = Math.floorMod(selectCursor.getAndIncrement(), size);
+        AccountStatus selectedStatus = null;
+        int selectedConnections = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            AccountStatus status = accountStatusByIndex.get((start + i) % size);
+            if (!status.isHealthy()) {
+                continue;
+            }
+            int connections = status.getActiveConnections();
+            if (connections < selectedConnections) {
+                selectedStatus = status;
+                selectedConnections = connections;
+            }
+        }
+        if (selectedStatus == null) {
             throw new ServiceException("所有豆包账号均已失效，请检查Cookie配置");
         }
 
-        // 3. 选择活跃连接数最少的账号（负载均衡）
-        Map.Entry<String, AccountStatus> selectedEntry = healthyAccounts.get(0);
-        String selectedAccountKey = selectedEntry.getKey();
-        AccountStatus selectedStatus = selectedEntry.getValue();
+        // 3. 绑定会话与账号
         int selectedIndex = selectedStatus.getAccountIndex();
-        DoubaoProperties.AccountConfig selectedAccount = accounts.get(selectedIndex);
+        bindSession(sessionId, selectedIndex);
+        int activeConnections = selectedStatus.incrementActiveConnections();
+        log.info(LogCategory.SESSION, "会话{}绑定账号{}，当前活跃连接数:{}",
+                sessionId, selectedStatus.getAccountKey(), activeConnections);
 
-        // 4. 绑定会话与账号
-        sessionAccountBindCache.put(sessionId, selectedIndex);
-        incrementActiveConnections(selectedAccountKey);
-        log.info("会话{}绑定账号{}，当前活跃连接数:{}",
-                sessionId, selectedAccountKey, selectedStatus.getActiveConnections());
+        return accounts.get(selectedIndex);
+    }
 
-        return selectedAccount;
+    /**
+     * 占用指定账号（不绑定会话、不改派）：账号已失效时直接失败
+     */
+    private DoubaoProperties.AccountConfig acquirePinnedAccount(int accountIndex) {
+        AccountStatus status = accountStatusByIndex.get(accountIndex);
+        if (!status.isHealthy()) {
+            throw new ServiceException("账号" + status.getAccountKey() + "已失效", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        status.incrementActiveConnections();
+        return accounts.get(accountIndex);
     }
 
     /**
-     * 标记账号为失效状态
+     * 标记账号为失效状态：仅在由健康变为失效时记录事件并清理该账号绑定的会话
+     * （每次失效只扫描一次绑定表，账号选择路径不扫描）
      */
     private void markAccountInvalid(String accountKey, Exception e) {
         AccountStatus status = accountStatusCache.get(accountKey);
-        if (status != null) {
-            status.setHealthy(false);
-            status.setLastFailTime(System.currentTimeMillis());
-            log.error("账号{}已失效，原因:{}", accountKey, e.getMessage());
-
-            // 清理该账号绑定的所有会话（避免会话上下文失效）
-            List<String> boundSessions = sessionAccountBindCache.entrySet().stream()
-                    .filter(entry -> {
-                        int boundIndex = entry.getValue();
-                        String boundAccountKey = getAccountKey(accounts.get(boundIndex));
-                        return boundAccountKey.equals(accountKey);
-                    })
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-
-            boundSessions.forEach(sessionId -> {
-                sessionAccountBindCache.remove(sessionId);
-                sessionCache.remove(sessionId); // 清除会话缓存（避免使用无效会话ID）
-                log.info("清除失效账号{}绑定的会话: {}", accountKey, sessionId);
-            });
+        if (status == null || !status.markInvalid(e.getMessage())) {
+            return;
         }
+        healthyAccountCount.decrementAndGet();
+        int accountIndex = status.getAccountIndex();
+        AccountStateEvent.emit(DoubaoMetrics.CHAT, accountIndex, accountKey,
+                AccountStateEvent.HEALTHY, AccountStateEvent.INVALID, e.getMessage());
+        log.error("账号{}已失效，原因:{}", accountKey, e.getMessage());
+
+        // 清理该账号绑定的所有会话（避免会话上下文失效）
+        List<String> boundSessions = sessionAccountBindCache.entrySet().stream()
+                .filter(entry -> entry.getValue() == accountIndex)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        boundSessions.forEach(sessionId -> {
+            if (sessionAccountBindCache.remove(sessionId, accountIndex)) {
+                status.sessionUnbound();
+            }
+            sessionCache.remove(sessionId); // 清除会话缓存（避免使用无效会话ID）
+            log.info("清除失效账号{}绑定的会话: {}", accountKey, sessionId);
+        });
+        SessionEvictionEvent.emit(DoubaoMetrics.CHAT, SessionEvictionEvent.ACCOUNT_INVALID,
+                boundSessions.size(), sessionCache.size());
     }
 
     /**
@@ -829,8 +1195,11 @@ public class DoubaoServiceImpl implements IDoubaoService {
                     // 模拟检测：实际场景可发送简单请求验证
                     signatureService.getMsToken(account.getCookie());
                     // 检测成功，恢复账号健康状态
-                    status.setHealthy(true);
-                    status.setActiveConnections(0);
+                    if (status.markHealthy()) {
+                        healthyAccountCount.incrementAndGet();
+                        AccountStateEvent.emit(DoubaoMetrics.CHAT, accountIndex, accountKey,
+                                AccountStateEvent.INVALID, AccountStateEvent.HEALTHY, "recovered");
+                    }
                     log.info("账号{}已恢复健康", accountKey);
                 } catch (Exception e) {
                     log.warn("账号{}仍未恢复，原因:{}", accountKey, e.getMessage());
@@ -839,28 +1208,123 @@ public class DoubaoServiceImpl implements IDoubaoService {
         }
     }
 
+    /**
+     * 账号连接释放（只执行一次）：正常结束与连接关闭回调都会调用
+     */
+    private Runnable slotReleaser(String accountKey) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                decrementActiveConnections(accountKey);
+            }
+        };
+    }
+
+    /**
+     * 记录账号请求耗时（指标 + 账号状态中的最近耗时窗口）
+     */
+    private void recordAccountLatency(String accountKey, long startNanos) {
+        AccountStatus status = accountStatusCache.get(accountKey);
+        if (status != null) {
+            status.recordLatency(System.nanoTime() - startNanos);
+            metrics.recordAccountLatency(DoubaoMetrics.CHAT, status.getAccountIndex(), startNanos);
+        }
+    }
+
+    private void recordAccountError(String accountKey) {
+        AccountStatus status = accountStatusCache.get(accountKey);
+        if (status != null) {
+            status.recordError();
+            metrics.recordAccountError(DoubaoMetrics.CHAT, status.getAccountIndex());
+        }
+    }
+
+    /**
+     * 绑定会话与账号，同步维护账号的绑定会话数
+     */
+    private void bindSession(String sessionId, int accountIndex) {
+        Integer previous = sessionAccountBindCache.put(sessionId, accountIndex);
+        if (previous != null) {
+            accountStatusByIndex.get(previous).sessionUnbound();
+        }
+        accountStatusByIndex.get(accountIndex).sessionBound();
+    }
+
+    void unbindSession(String sessionId) {
+        Integer previous = sessionAccountBindCache.remove(sessionId);
+        if (previous != null) {
+            accountStatusByIndex.get(previous).sessionUnbound();
+        }
+    }
+
     /**
      * 增加账号活跃连接数
      */
     private void incrementActiveConnections(String accountKey) {
         AccountStatus status = accountStatusCache.get(accountKey);
         if (status != null) {
-            status.setActiveConnections(status.getActiveConnections() + 1);
+            status.incrementActiveConnections();
         }
     }
 
     /**
      * 减少账号活跃连接数
      */
-    private void decrementActiveConnections(String accountKey) {
+    void decrementActiveConnections(String accountKey) {
         AccountStatus status = accountStatusCache.get(accountKey);
         if (status != null) {
-            int newCount = Math.max(0, status.getActiveConnections() - 1);
-            status.setActiveConnections(newCount);
+            int newCount = status.decrementActiveConnections();
             log.debug("账号{}活跃连接数减少至{}", accountKey, newCount);
         }
     }
 
+    /**
+     * 解析并校验选项数量 n
+     */
+    private int resolveChoiceCount(ChatCompletionRequest request) {
+        int n = Optional.ofNullable(request.getN()).orElse(1);
+        int maxN = doubaoProperties.getChatFanOut().getMaxN();
+        if (n < 1 || n > maxN) {
+            throw new ServiceException("选项数量 n 须在 1 ~ " + maxN + " 之间");
+        }
+        return n;
+    }
+
+    /**
+     * 按单请求预算并发执行 n 个选项：并发数不超过配置上限和健康账号数，避免单个调用方占满账号池；返回超时未执行的选项
+     */
+    private BitSet runFanOut(int n, IntConsumer task) {
+        int maxParallel = Math.min(doubaoProperties.getChatFanOut().getMaxParallel(), Math.max(1, healthyAccountCount.get()));
+        return FanOutUtils.run(n, maxParallel, relayExecutor, doubaoProperties.getTimeout(), task);
+    }
+
+    /**
+     * 构建单个选项的请求（副本）：仅第一个选项沿用调用方会话，其余（含 index < 0）使用临时会话分散到其他账号
+     */
+    private ChatCompletionRequest buildFanOutRequest(ChatCompletionRequest request, int index) {
+        ChatCompletionRequest subRequest = new ChatCompletionRequest();
+        subRequest.setModel(request.getModel());
+        subRequest.setMessages(request.getMessages());
+        subRequest.setStream(request.getStream());
+        subRequest.setUser(index == 0 ? request.getUser() : null);
+        subRequest.setN(1);
+        return subRequest;
+    }
+
+    /**
+     * 创建失败选项
+     */
+    private ChatCompletionResponse.Choice createErrorChoice(int index) {
+        ChatCompletionResponse.Choice choice = new ChatCompletionResponse.Choice();
+        ChatCompletionResponse.Choice.Message message = new ChatCompletionResponse.Choice.Message();
+        message.setRole("assistant");
+        message.setContent("");
+        choice.setMessage(message);
+        choice.setFinishReason("error");
+        choice.setIndex(index);
+        return choice;
+    }
+
     /**
      * 验证API Key
      */
@@ -886,10 +1350,18 @@ public class DoubaoServiceImpl implements IDoubaoService {
 
         expiredSessions.forEach(sessionId -> {
             sessionCache.remove(sessionId);
-            sessionAccountBindCache.remove(sessionId); // 同时解除账号绑定
+            unbindSession(sessionId); // 同时解除账号绑定
         });
+        SessionEvictionEvent.emit(DoubaoMetrics.CHAT, SessionEvictionEvent.EXPIRED,
+                expiredSessions.size(), sessionCache.size());
 
         log.info("清理过期会话完成，清理前: {}，清理后: {}，解除绑定账号数: {}",
                 initialSize, sessionCache.size(), expiredSessions.size());
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        sessionScheduler.shutdownNow();
+        accountRecoveryScheduler.shutdownNow();
+    }
+}
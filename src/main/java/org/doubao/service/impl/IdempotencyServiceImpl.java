@@ -0,0 +1,246 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.domain.vo.CacheStats;
+import org.doubao.service.IIdempotencyService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求：进行中的执行按键登记，重试请求组合在同一个结果上（异步等待，不占用转发线程）；
+ * 成功结果按完成顺序保留，超过保留期或内存上限时从最早的开始淘汰。失败不保留，重试会重新执行
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 256;
+
+    private final DoubaoProperties.IdempotencyConfig config;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+
+    // 进行中的执行
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    // 已完成的结果（按完成顺序）
+    private final LinkedHashMap<String, Stored> completed = new LinkedHashMap<>();
+    private long storedBytes;
+    // 统计：条目数在持锁修改后更新，读取时无需加锁
+    private volatile int storedEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public IdempotencyServiceImpl(DoubaoProperties doubaoProperties,
+                                  ObjectMapper objectMapper,
+                                  @Qualifier("streamScheduler") TaskScheduler streamScheduler) {
+        this.config = doubaoProperties.getIdempotency();
+        this.objectMapper = objectMapper;
+        this.maxBytes = config.getMaxTotalMb() * 1024L * 1024L;
+        // 定时清理过期结果
+        streamScheduler.scheduleAtFixedRate(this::cleanExpired, Duration.ofSeconds(30));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String scope, String key, String apiKey, Object request,
+                                           Supplier<CompletableFuture<T>> action) {
+        if (key == null || key.trim().isEmpty() || !Boolean.TRUE.equals(config.getEnabled())) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ServiceException("Idempotency-Key 长度不能超过" + MAX_KEY_LENGTH, HttpStatus.BAD_REQUEST);
+        }
+        String storeKey = sha256Hex(scope + "\u0001" + apiKey + "\u0001" + key.trim());
+        String fingerprint = fingerprint(request);
+
+        Stored stored = getStored(storeKey);
+        if (stored != null) {
+            checkFingerprint(stored.fingerprint(), fingerprint);
+            hits.increment();
+            log.info("幂等请求命中已保存结果[{}]", key);
+            return CompletableFuture.completedFuture((T) stored.result());
+        }
+
+        InFlight created = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(storeKey, created);
+        if (existing != null) {
+            checkFingerprint(existing.fingerprint(), fingerprint);
+            hits.increment();
+            log.info("幂等请求加入进行中的执行[{}]", key);
+            return (CompletableFuture<T>) join(existing.future());
+        }
+
+        // 登记前可能刚好有相同键的执行完成
+        stored = getStored(storeKey);
+        if (stored != null) {
+            inFlight.remove(storeKey, created);
+            created.future().complete(stored.result());
+            checkFingerprint(stored.fingerprint(), fingerprint);
+            hits.increment();
+            return CompletableFuture.completedFuture((T) stored.result());
+        }
+
+        misses.increment();
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(storeKey, created);
+            created.future().completeExceptionally(e);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            if (error == null) {
+                store(storeKey, fingerprint, result);
+                created.future().complete(result);
+            } else {
+                created.future().completeExceptionally(error);
+            }
+            inFlight.remove(storeKey, created);
+        });
+    }
+
+    /**
+     * 重试加入进行中的执行：在其结果上组合，不占用线程等待；超时只结束本次重试，不影响进行中的执行
+     */
+    private CompletableFuture<Object> join(CompletableFuture<Object> future) {
+        return future.copy()
+                .orTimeout(config.getWaitTimeout(), TimeUnit.SECONDS)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return result;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        throw new ServiceException("相同 Idempotency-Key 的请求仍在处理中，请稍后重试", HttpStatus.CONFLICT);
+                    }
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new ServiceException("请求处理失败: " + cause.getMessage());
+                });
+    }
+
+    private void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new ServiceException("Idempotency-Key 已用于不同的请求", HttpStatus.CONFLICT);
+        }
+    }
+
+    private Stored getStored(String storeKey) {
+        synchronized (completed) {
+            Stored stored = completed.get(storeKey);
+            if (stored != null && stored.expireAt() < System.currentTimeMillis()) {
+                removeStored(storeKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void store(String storeKey, String fingerprint, Object result) {
+        long size = estimateSize(result);
+        if (size > maxBytes) {
+            log.warn("结果超过幂等缓存上限，不保留: {} 字节", size);
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + config.getTtl() * 1000L;
+        synchronized (completed) {
+            removeStored(storeKey);
+            completed.put(storeKey, new Stored(fingerprint, result, size, expireAt));
+            storedBytes += size;
+            // 超出内存上限：淘汰最早完成的结果
+            Iterator<Map.Entry<String, Stored>> iterator = completed.entrySet().iterator();
+            while (storedBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Stored> eldest = iterator.next();
+                if (eldest.getKey().equals(storeKey)) {
+                    continue;
+                }
+                iterator.remove();
+                storedBytes -= eldest.getValue().size();
+            }
+            storedEntries = completed.size();
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return CacheStats.of("idempotency", storedEntries, hits.sum(), misses.sum());
+    }
+
+    private void removeStored(String storeKey) {
+        Stored removed = completed.remove(storeKey);
+        if (removed != null) {
+            storedBytes -= removed.size();
+            storedEntries = completed.size();
+        }
+    }
+
+    private void cleanExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (completed) {
+            // 保留期相同，按完成顺序即按过期顺序
+            Iterator<Map.Entry<String, Stored>> iterator = completed.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Stored> eldest = iterator.next();
+                if (eldest.getValue().expireAt() >= now) {
+                    break;
+                }
+                iterator.remove();
+                storedBytes -= eldest.getValue().size();
+            }
+            storedEntries = completed.size();
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return sha256Hex(objectMapper.writeValueAsString(request));
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("请求序列化失败: " + e.getOriginalMessage());
+        }
+    }
+
+    // 按序列化后的 JSON 估算占用
+    private long estimateSize(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result).length() * 2L + 256;
+        } catch (JsonProcessingException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<Object> future) {
+    }
+
+    private record Stored(String fingerprint, Object result, long size, long expireAt) {
+    }
+}
@@ -0,0 +1,161 @@
+package org.doubao.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.dto.ImageGenerationRequest;
+import org.doubao.domain.vo.CacheStats;
+import org.doubao.domain.vo.ImageGenerationResponse;
+import org.doubao.logging.LogCategory;
+import org.doubao.service.IImageCacheService;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 生图结果缓存：按规范化后的 prompt、比例、模型、模板类型做内容寻址，LRU + TTL 淘汰
+ */
+@Slf4j
+@Service
+public class ImageCacheServiceImpl implements IImageCacheService {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final DoubaoProperties.ImageCacheConfig config;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，超过容量时淘汰最久未访问的条目
+    private final Map<String, CacheEntry> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // 条目数在持锁修改后更新，统计接口读取时无需加锁
+    private volatile int entries;
+
+    public ImageCacheServiceImpl(DoubaoProperties doubaoProperties) {
+        this.config = doubaoProperties.getImageCache();
+        int maxSize = Math.max(1, config.getMaxSize());
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public ImageGenerationResponse get(ImageGenerationRequest request) {
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return null;
+        }
+        String key = buildCacheKey(request);
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+            if (entry != null && entry.expireAt < System.currentTimeMillis()) {
+                cache.remove(key);
+                entries = cache.size();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        log.info(LogCategory.REQUEST, "生图缓存命中[key: {}]", key.substring(0, 12));
+        return copyOf(entry.response);
+    }
+
+    @Override
+    public void put(ImageGenerationRequest request, ImageGenerationResponse response) {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || response == null
+                || response.getData() == null || response.getData().isEmpty()) {
+            return;
+        }
+        String key = buildCacheKey(request);
+        long expireAt = System.currentTimeMillis() + config.getTtl() * 1000L;
+        synchronized (cache) {
+            cache.put(key, new CacheEntry(copyOf(response), expireAt));
+            entries = cache.size();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            entries = 0;
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return CacheStats.of("image", entries, hits.sum(), misses.sum());
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * 构建缓存键：prompt 做 NFKC 规范化并折叠空白，模型/模板为空时取默认值
+     */
+    private String buildCacheKey(ImageGenerationRequest request) {
+        String prompt = Normalizer.normalize(request.getPrompt(), Normalizer.Form.NFKC);
+        prompt = WHITESPACE.matcher(prompt.trim()).replaceAll(" ");
+        String ratio = normalize(request.getRatio(), "");
+        String model = normalize(request.getModel(), DoubaoImageServiceImpl.DEFAULT_IMAGE_MODEL);
+        String templateType = normalize(request.getTemplateType(), "placeholder");
+
+        String raw = String.join("\u0001", prompt, ratio, model, templateType);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(raw.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private String normalize(String value, String defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * 复制结果，命中时生成新的响应ID和时间戳，避免调用方修改缓存中的对象
+     */
+    private ImageGenerationResponse copyOf(ImageGenerationResponse source) {
+        ImageGenerationResponse copy = new ImageGenerationResponse();
+        copy.setModel(source.getModel());
+        copy.setData(source.getData().stream()
+                .map(data -> {
+                    ImageGenerationResponse.ImageData imageData = new ImageGenerationResponse.ImageData();
+                    imageData.setUrl(data.getUrl());
+                    imageData.setFormat(data.getFormat());
+                    return imageData;
+                })
+                .collect(Collectors.toList()));
+        return copy;
+    }
+
+    private record CacheEntry(ImageGenerationResponse response, long expireAt) {
+    }
+}
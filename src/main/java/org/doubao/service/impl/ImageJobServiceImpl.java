@@ -0,0 +1,379 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.dto.ImageJobRequest;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.domain.vo.ImageGenerationResponse;
+import org.doubao.domain.vo.ImageJob;
+import org.doubao.domain.vo.ImageJobStats;
+import org.doubao.service.IDoubaoImageService;
+import org.doubao.service.IImageJobService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步生图任务：有界优先级队列 + 固定工作线程，失败自动重新排队，支持轮询和 Webhook 回调
+ */
+@Slf4j
+@Service
+public class ImageJobServiceImpl implements IImageJobService {
+
+    // 优先级高的先执行，同优先级按入队顺序
+    private static final Comparator<ImageJob> JOB_ORDER = Comparator
+            .comparingInt(ImageJob::getPriority).reversed()
+            .thenComparingLong(ImageJob::getSequence);
+
+    private final DoubaoProperties doubaoProperties;
+    private final DoubaoProperties.ImageJobConfig config;
+    private final IDoubaoImageService doubaoImageService;
+    // Webhook 专用客户端：短超时、不跟随重定向，不经过上游请求的压缩 / 追踪 / 录制处理；
+    // 连接时由 WebhookDnsResolver 解析并校验地址，校验过的地址即连接地址，不存在二次解析被改到内网的窗口
+    private final CloseableHttpClient webhookClient;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ImageJob> jobs = new ConcurrentHashMap<>();
+    private final PriorityBlockingQueue<ImageJob> queue = new PriorityBlockingQueue<>(64, JOB_ORDER);
+    // 排队中的任务数（PriorityBlockingQueue 无界，容量按此计数控制）
+    private final AtomicInteger queued = new AtomicInteger();
+    // 排队中任务的入队序号 -> 入队时间：序号随入队时间递增，首个即等待最久的任务（队列按优先级排序，队首不一定最久）
+    private final ConcurrentSkipListMap<Long, Long> queuedSince = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+
+    // 重新排队延迟 / 过期任务清理
+    private final ScheduledExecutorService jobScheduler = Executors.newScheduledThreadPool(1);
+    // Webhook 回调（避免占用工作线程）
+    private final ExecutorService webhookExecutor = Executors.newFixedThreadPool(2);
+
+    // 统计
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger retrying = new AtomicInteger();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+    private final LongAdder startCount = new LongAdder();
+    private final LongAccumulator maxWaitMs = new LongAccumulator(Long::max, 0L);
+
+    public ImageJobServiceImpl(DoubaoProperties doubaoProperties,
+                               IDoubaoImageService doubaoImageService,
+                               ObjectMapper objectMapper) {
+        this.doubaoProperties = doubaoProperties;
+        this.config = doubaoProperties.getImageJob();
+        this.doubaoImageService = doubaoImageService;
+        this.objectMapper = objectMapper;
+        this.webhookClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setDnsResolver(new WebhookDnsResolver())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(5, TimeUnit.SECONDS)
+                                .setSocketTimeout(10, TimeUnit.SECONDS)
+                                .build())
+                        .setMaxConnTotal(4)
+                        .setMaxConnPerRoute(2)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(5, TimeUnit.SECONDS)
+                        .setResponseTimeout(10, TimeUnit.SECONDS)
+                        .build())
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .build();
+
+        for (int i = 0; i < Math.max(1, config.getWorkers()); i++) {
+            Thread worker = new Thread(this::workLoop, "image-job-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        // 每分钟清理过期任务
+        jobScheduler.scheduleAtFixedRate(this::cleanExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public ImageJob submit(ImageJobRequest request, String apiKey) {
+        validateApiKey(apiKey);
+        if (request.getPrompt() == null || request.getPrompt().trim().isEmpty()) {
+            throw new ServiceException("生图描述（prompt）不能为空", HttpStatus.BAD_REQUEST);
+        }
+        if (request.getWebhookUrl() != null && !request.getWebhookUrl().trim().isEmpty()) {
+            validateWebhookUrl(request.getWebhookUrl().trim());
+        }
+
+        // 超出容量直接拒绝（重新排队的任务不受此限制，避免丢失）
+        int capacity = config.getQueueCapacity();
+        if (queued.getAndUpdate(count -> count < capacity ? count + 1 : count) >= capacity) {
+            throw new ServiceException("生图任务队列已满，请稍后重试", HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        ImageJob job = new ImageJob();
+        job.setId("imgjob-" + UUID.randomUUID());
+        job.setPriority(Optional.ofNullable(request.getPriority()).orElse(0));
+        job.setRequest(copyForJob(request));
+        job.setApiKey(apiKey);
+        job.setCreatedAt(System.currentTimeMillis());
+        jobs.put(job.getId(), job);
+        enqueue(job);
+
+        log.info("提交异步生图任务[{}]，优先级: {}，当前队列深度: {}", job.getId(), job.getPriority(), queue.size());
+        return job;
+    }
+
+    @Override
+    public ImageJob getJob(String jobId, String apiKey) {
+        validateApiKey(apiKey);
+        return jobs.get(jobId);
+    }
+
+    @Override
+    public ImageJobStats getStats(String apiKey) {
+        validateApiKey(apiKey);
+        long now = System.currentTimeMillis();
+        ImageJobStats stats = new ImageJobStats();
+        stats.setWorkers(workers.size());
+        stats.setQueueCapacity(config.getQueueCapacity());
+        stats.setQueueDepth(queue.size());
+        stats.setRunning(running.get());
+        stats.setRetrying(retrying.get());
+        stats.setSucceeded(succeeded.sum());
+        stats.setFailed(failed.sum());
+        stats.setRequeued(requeued.sum());
+        long starts = startCount.sum();
+        stats.setAvgQueueWaitMs(starts == 0 ? 0 : totalWaitMs.sum() / starts);
+        stats.setMaxQueueWaitMs(maxWaitMs.get());
+        Map.Entry<Long, Long> oldest = queuedSince.firstEntry();
+        stats.setOldestQueuedWaitMs(oldest != null ? Math.max(0L, now - oldest.getValue()) : 0L);
+        return stats;
+    }
+
+    /**
+     * 任务保存请求副本，不修改调用方的对象；任务始终以非流式执行
+     */
+    private static ImageJobRequest copyForJob(ImageJobRequest request) {
+        ImageJobRequest copy = new ImageJobRequest();
+        copy.setModel(request.getModel());
+        copy.setPrompt(request.getPrompt());
+        copy.setRatio(request.getRatio());
+        copy.setTemplateType(request.getTemplateType());
+        copy.setUser(request.getUser());
+        copy.setLocalConversationId(request.getLocalConversationId());
+        copy.setN(request.getN());
+        copy.setNoCache(request.getNoCache());
+        copy.setPriority(request.getPriority());
+        copy.setWebhookUrl(request.getWebhookUrl() != null ? request.getWebhookUrl().trim() : null);
+        copy.setStream(false);
+        return copy;
+    }
+
+    /**
+     * 放入队列，调用方已占用排队计数
+     */
+    private void enqueue(ImageJob job) {
+        job.setStatus(ImageJob.QUEUED);
+        job.setEnqueuedAt(System.currentTimeMillis());
+        job.setSequence(sequence.incrementAndGet());
+        queuedSince.put(job.getSequence(), job.getEnqueuedAt());
+        queue.offer(job);
+    }
+
+    /**
+     * 工作线程：按优先级取出任务并执行
+     */
+    private void workLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ImageJob job;
+            try {
+                job = queue.take();
+                queued.decrementAndGet();
+                queuedSince.remove(job.getSequence());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            runJob(job);
+        }
+    }
+
+    private void runJob(ImageJob job) {
+        long now = System.currentTimeMillis();
+        long waitMs = now - job.getEnqueuedAt();
+        totalWaitMs.add(waitMs);
+        startCount.increment();
+        maxWaitMs.accumulate(waitMs);
+
+        job.setStatus(ImageJob.RUNNING);
+        job.setStartedAt(now);
+        job.setQueueWaitMs(job.getQueueWaitMs() + waitMs);
+        job.setAttempts(job.getAttempts() + 1);
+        running.incrementAndGet();
+
+        try {
+            ImageGenerationResponse result = doubaoImageService.generateImage(job.getRequest(), job.getApiKey());
+            job.setResult(result);
+            job.setError(null);
+            finish(job, ImageJob.SUCCEEDED);
+            succeeded.increment();
+            log.info("异步生图任务[{}]完成，执行次数: {}，排队等待: {}ms", job.getId(), job.getAttempts(), job.getQueueWaitMs());
+        } catch (Exception e) {
+            job.setError(e.getMessage());
+            // 参数错误重试也不会成功，直接失败
+            boolean invalidRequest = e instanceof ServiceException serviceException
+                    && Integer.valueOf(HttpStatus.BAD_REQUEST).equals(serviceException.getCode());
+            if (!invalidRequest && job.getAttempts() < config.getMaxAttempts()) {
+                // 账号失效等临时错误：延迟后重新排队，下次会分配到其他健康账号
+                long delay = (long) config.getRetryDelay() * job.getAttempts();
+                job.setStatus(ImageJob.QUEUED);
+                retrying.incrementAndGet();
+                requeued.increment();
+                log.warn("异步生图任务[{}]第{}次执行失败，{}秒后重新排队: {}",
+                        job.getId(), job.getAttempts(), delay, e.getMessage());
+                jobScheduler.schedule(() -> {
+                    retrying.decrementAndGet();
+                    queued.incrementAndGet();
+                    enqueue(job);
+                }, delay, TimeUnit.SECONDS);
+            } else {
+                finish(job, ImageJob.FAILED);
+                failed.increment();
+                log.error("异步生图任务[{}]失败，执行次数: {}: {}", job.getId(), job.getAttempts(), e.getMessage());
+            }
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private void finish(ImageJob job, String status) {
+        job.setFinishedAt(System.currentTimeMillis());
+        job.setStatus(status);
+        String webhookUrl = job.getRequest().getWebhookUrl();
+        if (webhookUrl != null && !webhookUrl.trim().isEmpty()) {
+            webhookExecutor.execute(() -> sendWebhook(job, webhookUrl.trim()));
+        }
+    }
+
+    /**
+     * 回调通知任务结果
+     */
+    private void sendWebhook(ImageJob job, String webhookUrl) {
+        try {
+            // 提交后域名改为解析到内网地址时，连接阶段由 WebhookDnsResolver 拒绝
+            HttpPost httpPost = new HttpPost(webhookUrl);
+            httpPost.setHeader("X-Doubao-Job-Id", job.getId());
+            httpPost.setEntity(new StringEntity(objectMapper.writeValueAsString(job), ContentType.APPLICATION_JSON));
+            int code = webhookClient.execute(httpPost, response -> response.getCode());
+            log.info("异步生图任务[{}]回调完成，状态码: {}", job.getId(), code);
+        } catch (Exception e) {
+            log.warn("异步生图任务[{}]回调失败[{}]: {}", job.getId(), webhookUrl, e.getMessage());
+        }
+    }
+
+    /**
+     * 回调地址只允许 http/https，且不能指向本机、内网或链路本地地址
+     */
+    private void validateWebhookUrl(String webhookUrl) {
+        URI uri;
+        try {
+            uri = new URI(webhookUrl);
+        } catch (URISyntaxException e) {
+            throw new ServiceException("回调地址格式错误", HttpStatus.BAD_REQUEST);
+        }
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "";
+        if (!"http".equals(scheme) && !"https".equals(scheme) || uri.getHost() == null) {
+            throw new ServiceException("回调地址仅支持 http/https", HttpStatus.BAD_REQUEST);
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(uri.getHost());
+        } catch (UnknownHostException e) {
+            throw new ServiceException("回调地址无法解析: " + uri.getHost(), HttpStatus.BAD_REQUEST);
+        }
+        for (InetAddress address : addresses) {
+            if (isInternalAddress(address)) {
+                throw new ServiceException("回调地址不能指向内网地址", HttpStatus.BAD_REQUEST);
+            }
+        }
+    }
+
+    /**
+     * Webhook 连接使用的解析器：解析结果中含内网地址时拒绝连接，连接只会使用这里校验过的地址
+     */
+    private static class WebhookDnsResolver implements DnsResolver {
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            for (InetAddress address : addresses) {
+                if (isInternalAddress(address)) {
+                    throw new UnknownHostException("回调地址不能指向内网地址: " + host);
+                }
+            }
+            return addresses;
+        }
+
+        @Override
+        public String resolveCanonicalHostname(String host) throws UnknownHostException {
+            return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+        }
+    }
+
+    private static boolean isInternalAddress(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()
+                || address.isAnyLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        // IPv6 唯一本地地址（fc00::/7）
+        return address instanceof Inet6Address && (address.getAddress()[0] & 0xFE) == 0xFC;
+    }
+
+    /**
+     * 清理已结束且超过保留时间的任务
+     */
+    private void cleanExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - config.getResultTtl() * 1000L;
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.getFinishedAt() > 0 && job.getFinishedAt() < expireBefore);
+        if (before != jobs.size()) {
+            log.info("清理过期生图任务，清理前: {}，清理后: {}", before, jobs.size());
+        }
+    }
+
+    private void validateApiKey(String apiKey) {
+        if (!doubaoProperties.getApiKey().equals(apiKey)) {
+            throw new ServiceException("无效的API密钥");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(Thread::interrupt);
+        jobScheduler.shutdownNow();
+        webhookExecutor.shutdown();
+        try {
+            webhookClient.close();
+        } catch (IOException e) {
+            log.warn("关闭回调客户端失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.doubao.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.vo.MirroredImage;
+import org.doubao.service.IImageMirrorService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 生图本地镜像：后台下载上游图片到内容寻址目录（文件名为内容 SHA-256），
+ * 对外以上游 URL 的摘要作为镜像键，超出容量时按最久未访问淘汰
+ */
+@Slf4j
+@Service
+public class ImageMirrorServiceImpl implements IImageMirrorService {
+
+    static final String IMAGE_PATH = "/api/doubao/v1/images/";
+
+    private final DoubaoProperties.ImageMirrorConfig config;
+    private final CloseableHttpClient httpClient;
+    private final Path storageDir;
+    private final Path refDir;
+    private final Path tmpDir;
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    // 镜像键 -> 镜像记录
+    private final Map<String, MirroredImage> mirrors = new ConcurrentHashMap<>();
+    // 内容摘要 -> 文件大小（访问顺序，用于按容量淘汰）
+    private final LinkedHashMap<String, Long> storedFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final ThreadPoolExecutor downloadExecutor;
+
+    public ImageMirrorServiceImpl(DoubaoProperties doubaoProperties, CloseableHttpClient httpClient) {
+        this.config = doubaoProperties.getImageMirror();
+        this.httpClient = httpClient;
+        this.storageDir = Paths.get(config.getStorageDir()).toAbsolutePath();
+        this.refDir = storageDir.resolve("refs");
+        this.tmpDir = storageDir.resolve("tmp");
+        this.maxBytes = config.getMaxSizeMb() * 1024 * 1024;
+        this.maxFileBytes = config.getMaxFileSizeMb() * 1024 * 1024;
+        int threads = Math.max(1, config.getDownloadThreads());
+        // 下载队列有界，队列满时拒绝任务，图片保持回源，下次生成相同图片时重试
+        this.downloadExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000));
+
+        if (Boolean.TRUE.equals(config.getEnabled())) {
+            loadStorage();
+        }
+    }
+
+    @Override
+    public String mirror(String sourceUrl, String format) {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || sourceUrl == null || sourceUrl.isEmpty()) {
+            return sourceUrl;
+        }
+        String key = sha256Hex(sourceUrl.getBytes(StandardCharsets.UTF_8));
+        MirroredImage pending = new MirroredImage();
+        pending.setSourceUrl(sourceUrl);
+        pending.setFormat(format);
+        if (mirrors.putIfAbsent(key, pending) == null) {
+            try {
+                downloadExecutor.execute(() -> download(key, pending));
+            } catch (RejectedExecutionException e) {
+                log.debug("下载队列已满，图片保持回源[key: {}]", key);
+                mirrors.remove(key, pending);
+            }
+        }
+        return config.getPublicBaseUrl() + IMAGE_PATH + key;
+    }
+
+    @Override
+    public MirroredImage resolve(String key) {
+        MirroredImage image = mirrors.get(key);
+        if (image == null || image.getContentHash() == null) {
+            return image;
+        }
+        synchronized (storedFiles) {
+            // 触发访问顺序更新；已被淘汰则退化为回源
+            if (storedFiles.get(image.getContentHash()) == null) {
+                MirroredImage evicted = new MirroredImage();
+                evicted.setSourceUrl(image.getSourceUrl());
+                evicted.setFormat(image.getFormat());
+                return evicted;
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 下载图片：边下载边计算摘要，完成后原子移动到内容寻址路径，
+     * 并以新的完整记录替换下载中的记录（记录发布后不再修改，请求线程无需同步即可读取）
+     */
+    private void download(String key, MirroredImage image) {
+        Path tmpFile = null;
+        try {
+            Files.createDirectories(tmpDir);
+            tmpFile = Files.createTempFile(tmpDir, key, ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            HttpGet httpGet = new HttpGet(image.getSourceUrl());
+            httpGet.setHeader("Referer", "https://www.doubao.com/");
+            httpGet.setHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/114.0.0.0 Safari/537.36");
+
+            final Path target = tmpFile;
+            long size = httpClient.execute(httpGet, response -> {
+                if (response.getCode() != 200) {
+                    throw new IOException("图片下载返回错误状态: " + response.getCode());
+                }
+                try (InputStream in = new DigestInputStream(response.getEntity().getContent(), digest);
+                     OutputStream out = Files.newOutputStream(target)) {
+                    byte[] buffer = new byte[16 * 1024];
+                    long total = 0;
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        total += read;
+                        if (total > maxFileBytes) {
+                            throw new IOException("图片超过大小上限: " + maxFileBytes);
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                    return total;
+                }
+            });
+
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path file = storageDir.resolve(contentHash + "." + image.getFormat());
+            if (Files.exists(file)) {
+                Files.delete(tmpFile); // 内容相同的图片只存一份
+            } else {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            writeRef(key, file.getFileName().toString(), image.getSourceUrl());
+
+            MirroredImage mirrored = new MirroredImage();
+            mirrored.setSourceUrl(image.getSourceUrl());
+            mirrored.setFormat(image.getFormat());
+            mirrored.setFile(file);
+            mirrored.setSize(size);
+            mirrored.setContentHash(contentHash);
+            mirrors.replace(key, image, mirrored);
+            registerFile(contentHash, size);
+            log.debug("图片镜像完成[key: {}, 大小: {}]", key, size);
+        } catch (Exception e) {
+            log.warn("图片镜像失败，保持回源[key: {}]: {}", key, e.getMessage());
+            // 移除记录，下次生成相同图片时重试
+            mirrors.remove(key, image);
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 登记文件并按容量淘汰最久未访问的文件
+     */
+    private void registerFile(String contentHash, long size) {
+        List<String> evicted;
+        synchronized (storedFiles) {
+            if (storedFiles.put(contentHash, size) == null) {
+                totalBytes.addAndGet(size);
+            }
+            evicted = evictOverCapacity(contentHash);
+        }
+        deleteFiles(evicted);
+    }
+
+    /**
+     * 超出容量时从最久未访问的文件开始移出登记（keep 为刚写入的文件，不淘汰），需持有 storedFiles 锁
+     */
+    private List<String> evictOverCapacity(String keep) {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = storedFiles.entrySet().iterator();
+        while (totalBytes.get() > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes.addAndGet(-eldest.getValue());
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    private void deleteFiles(List<String> evicted) {
+        for (String hash : evicted) {
+            try (Stream<Path> files = Files.list(storageDir)) {
+                for (Path file : (Iterable<Path>) files.filter(f -> f.getFileName().toString().startsWith(hash + "."))::iterator) {
+                    Files.deleteIfExists(file);
+                }
+                log.info("淘汰镜像图片: {}", hash);
+            } catch (IOException e) {
+                log.warn("删除镜像图片失败: {}", hash, e);
+            }
+        }
+    }
+
+    /**
+     * 记录镜像键与文件的对应关系，重启后可恢复
+     */
+    private void writeRef(String key, String fileName, String sourceUrl) throws IOException {
+        Files.createDirectories(refDir);
+        Files.writeString(refDir.resolve(key), fileName + "\n" + sourceUrl, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 启动时加载已有文件和镜像记录
+     */
+    private void loadStorage() {
+        try {
+            Files.createDirectories(refDir);
+            Files.createDirectories(tmpDir);
+
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(storageDir)) {
+                files = stream.filter(Files::isRegularFile)
+                        .filter(this::isMirrorFile)
+                        .sorted(Comparator.comparingLong(this::lastModified))
+                        .toList();
+            }
+            List<String> evicted;
+            synchronized (storedFiles) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    long size = Files.size(file);
+                    storedFiles.put(fileName.substring(0, fileName.indexOf('.')), size);
+                    totalBytes.addAndGet(size);
+                }
+                // 容量配置调小后，启动时即淘汰最早的文件
+                evicted = evictOverCapacity(null);
+            }
+            deleteFiles(evicted);
+
+            try (Stream<Path> refs = Files.list(refDir)) {
+                for (Path ref : (Iterable<Path>) refs::iterator) {
+                    String[] lines = Files.readString(ref, StandardCharsets.UTF_8).split("\n", 2);
+                    if (lines.length < 2) {
+                        continue;
+                    }
+                    String fileName = lines[0];
+                    if (fileName.indexOf('.') <= 0) {
+                        log.warn("忽略无效的镜像记录: {}", ref.getFileName());
+                        continue;
+                    }
+                    Path file = storageDir.resolve(fileName);
+                    MirroredImage image = new MirroredImage();
+                    image.setSourceUrl(lines[1]);
+                    image.setFormat(fileName.substring(fileName.indexOf('.') + 1));
+                    if (Files.exists(file)) {
+                        image.setFile(file);
+                        image.setSize(Files.size(file));
+                        image.setContentHash(fileName.substring(0, fileName.indexOf('.')));
+                    }
+                    mirrors.put(ref.getFileName().toString(), image);
+                }
+            }
+            log.info("加载图片镜像目录[{}]，文件数: {}，淘汰: {}，总大小: {} 字节，镜像记录数: {}",
+                    storageDir, files.size() - evicted.size(), evicted.size(), totalBytes.get(), mirrors.size());
+        } catch (IOException e) {
+            log.error("加载图片镜像目录失败: {}", storageDir, e);
+        }
+    }
+
+    /**
+     * 镜像文件名为 内容哈希.格式，其他文件（手工放入的文件等）不计入也不淘汰
+     */
+    private boolean isMirrorFile(Path file) {
+        if (file.getFileName().toString().indexOf('.') > 0) {
+            return true;
+        }
+        log.warn("忽略图片镜像目录中的非镜像文件: {}", file.getFileName());
+        return false;
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        downloadExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,174 @@
+package org.doubao.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.domain.vo.JfrRecordingStatus;
+import org.doubao.jfr.AccountStateEvent;
+import org.doubao.jfr.SessionEvictionEvent;
+import org.doubao.jfr.StreamRelayEvent;
+import org.doubao.jfr.UpstreamRequestEvent;
+import org.doubao.service.IJfrService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * JFR 按需录制：开启后自定义事件（上游请求、流式转发、账号状态、会话淘汰）全部记录，
+ * 未录制时这些事件不会被提交
+ */
+@Slf4j
+@Service
+public class JfrServiceImpl implements IJfrService {
+
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+    private static final List<Class<? extends Event>> DOUBAO_EVENTS = List.of(
+            UpstreamRequestEvent.class, StreamRelayEvent.class, AccountStateEvent.class, SessionEvictionEvent.class);
+    private static final DateTimeFormatter DUMP_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final DoubaoProperties doubaoProperties;
+    private final DoubaoProperties.JfrConfig config;
+    private final Path dumpDir;
+
+    private Recording recording;
+    private String settings;
+    private Path lastDumpFile;
+
+    public JfrServiceImpl(DoubaoProperties doubaoProperties) {
+        this.doubaoProperties = doubaoProperties;
+        this.config = doubaoProperties.getJfr();
+        this.dumpDir = Paths.get(config.getDumpDir()).toAbsolutePath();
+    }
+
+    @Override
+    public synchronized JfrRecordingStatus start(String settings, String apiKey) {
+        validateApiKey(apiKey);
+        if (isRecording()) {
+            return buildStatus();
+        }
+        String name = settings == null || settings.isEmpty() ? "default" : settings;
+        if (!SETTINGS.contains(name)) {
+            throw new ServiceException("不支持的JFR配置: " + name + "（可选 default、profile）", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            Recording newRecording = new Recording(Configuration.getConfiguration(name));
+            newRecording.setName("doubao");
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(Duration.ofSeconds(config.getMaxAge()));
+            newRecording.setMaxSize(config.getMaxSizeMb() * 1024L * 1024L);
+            // 自定义事件不设阈值，全部记录
+            for (Class<? extends Event> eventClass : DOUBAO_EVENTS) {
+                newRecording.enable(eventClass).withThreshold(Duration.ZERO);
+            }
+            newRecording.start();
+            this.recording = newRecording;
+            this.settings = name;
+            log.info("开始JFR录制，配置: {}，保留时长: {}秒，数据上限: {}MB",
+                    name, config.getMaxAge(), config.getMaxSizeMb());
+            return buildStatus();
+        } catch (IOException | ParseException e) {
+            throw new ServiceException("开启JFR录制失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized Path dump(String apiKey) {
+        validateApiKey(apiKey);
+        if (!isRecording()) {
+            return null;
+        }
+        try {
+            Files.createDirectories(dumpDir);
+            Path file = dumpDir.resolve("doubao-" + LocalDateTime.now().format(DUMP_NAME) + ".jfr");
+            recording.dump(file);
+            lastDumpFile = file;
+            cleanOldDumps();
+            log.info("导出JFR录制: {}，大小: {} 字节", file, Files.size(file));
+            return file;
+        } catch (IOException e) {
+            throw new ServiceException("导出JFR录制失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized JfrRecordingStatus stop(String apiKey) {
+        validateApiKey(apiKey);
+        closeRecording();
+        return buildStatus();
+    }
+
+    @Override
+    public synchronized JfrRecordingStatus getStatus(String apiKey) {
+        validateApiKey(apiKey);
+        return buildStatus();
+    }
+
+    private boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    private JfrRecordingStatus buildStatus() {
+        JfrRecordingStatus status = new JfrRecordingStatus();
+        status.setRecording(isRecording());
+        if (status.isRecording()) {
+            status.setSettings(settings);
+            status.setStartTime(recording.getStartTime().toEpochMilli());
+            status.setDurationMs(System.currentTimeMillis() - status.getStartTime());
+            status.setSizeBytes(recording.getSize());
+        }
+        status.setLastDumpFile(lastDumpFile != null ? lastDumpFile.toString() : null);
+        return status;
+    }
+
+    /**
+     * 只保留最近的 maxDumps 个导出文件
+     */
+    private void cleanOldDumps() throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(dumpDir)) {
+            dumps = files.filter(f -> f.getFileName().toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .toList();
+        }
+        for (int i = Math.max(1, config.getMaxDumps()); i < dumps.size(); i++) {
+            Files.deleteIfExists(dumps.get(i));
+        }
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            settings = null;
+            log.info("停止JFR录制");
+        }
+    }
+
+    private void validateApiKey(String apiKey) {
+        if (!doubaoProperties.getApiKey().equals(apiKey)) {
+            throw new ServiceException("无效的API密钥");
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        closeRecording();
+    }
+}
@@ -0,0 +1,289 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.doubao.service.IStreamResumeService;
+import org.doubao.stream.ResumableSseStream;
+import org.doubao.stream.SseStreamSink;
+import org.doubao.stream.StreamHeartbeatMonitor;
+import org.doubao.stream.StreamSink;
+import org.doubao.utils.CompressionUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSE 续传：登记可续传的流，断开后在保留期内等待重连，过期后中断上游并释放缓冲
+ */
+@Slf4j
+@Service
+public class StreamResumeServiceImpl implements IStreamResumeService {
+
+    private static final int MAX_KEY_LENGTH = 256;
+    // 本次请求登记的幂等流（首次请求在开启流之前登记，开启后关联到流）
+    private static final String RESERVATION_ATTRIBUTE = StreamResumeServiceImpl.class.getName() + ".reservation";
+
+    private final DoubaoProperties doubaoProperties;
+    private final DoubaoProperties.StreamResumeConfig config;
+    private final DoubaoProperties.StreamOutputConfig outputConfig;
+    private final DoubaoProperties.CompressionConfig compressionConfig;
+    private final DoubaoProperties.IdempotencyConfig idempotencyConfig;
+    private final ObjectMapper objectMapper;
+
+    // 流ID -> 可续传的流
+    private final Map<String, ResumableSseStream> streams = new ConcurrentHashMap<>();
+    // 接口 + API Key + Idempotency-Key 的摘要 -> 幂等流
+    private final Map<String, IdempotentStream> idempotentStreams = new ConcurrentHashMap<>();
+    // 全部流的回放缓冲总字节数
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final StreamHeartbeatMonitor heartbeatMonitor;
+
+    public StreamResumeServiceImpl(DoubaoProperties doubaoProperties,
+                                   StreamHeartbeatMonitor heartbeatMonitor,
+                                   ObjectMapper objectMapper,
+                                   @Qualifier("streamScheduler") TaskScheduler streamScheduler) {
+        this.doubaoProperties = doubaoProperties;
+        this.config = doubaoProperties.getStreamResume();
+        this.outputConfig = doubaoProperties.getStreamOutput();
+        this.compressionConfig = doubaoProperties.getCompression();
+        this.idempotencyConfig = doubaoProperties.getIdempotency();
+        this.objectMapper = objectMapper;
+        this.heartbeatMonitor = heartbeatMonitor;
+        if (Boolean.TRUE.equals(idempotencyConfig.getEnabled()) && !Boolean.TRUE.equals(config.getEnabled())) {
+            log.warn("未开启断线续传（doubao.stream-resume.enabled=false），流式请求的 Idempotency-Key 不生效，仅非流式请求支持幂等重试");
+        }
+        // 定时任务：清理过期的流
+        streamScheduler.scheduleAtFixedRate(this::cleanExpiredStreams, Duration.ofSeconds(5));
+    }
+
+    @Override
+    public StreamSink open(HttpServletRequest request, HttpServletResponse response, long timeout) {
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            SseStreamSink sink = startClient(request, response, timeout);
+            heartbeatMonitor.register(sink);
+            return sink;
+        }
+        String streamId = UUID.randomUUID().toString().replace("-", "");
+        ResumableSseStream stream = new ResumableSseStream(streamId, config.getBufferSize(),
+                totalBytes, config.getMaxTotalMb() * 1024L * 1024L);
+        stream.attach(() -> startClient(request, response, timeout), -1);
+        streams.put(streamId, stream);
+        if (request.getAttribute(RESERVATION_ATTRIBUTE) instanceof IdempotentStream reserved) {
+            request.removeAttribute(RESERVATION_ATTRIBUTE);
+            reserved.expireAt = System.currentTimeMillis() + idempotencyConfig.getTtl() * 1000L;
+            reserved.stream.complete(stream);
+        }
+        heartbeatMonitor.register(stream);
+        return stream;
+    }
+
+    @Override
+    public void release(HttpServletRequest request) {
+        if (request.getAttribute(RESERVATION_ATTRIBUTE) instanceof IdempotentStream reserved) {
+            // 首次请求未开启流（如参数校验失败）：释放登记，等待中的重试自行执行
+            request.removeAttribute(RESERVATION_ATTRIBUTE);
+            idempotentStreams.remove(reserved.storeKey, reserved);
+            reserved.stream.complete(null);
+        }
+    }
+
+    @Override
+    public boolean resume(String lastEventId, String apiKey, Object body,
+                          HttpServletRequest request, HttpServletResponse response, long timeout) {
+        validateApiKey(apiKey);
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return false;
+        }
+        if (lastEventId == null) {
+            return resumeIdempotent(apiKey, body, request, response, timeout);
+        }
+        // 带 Last-Event-ID 的请求是断线重连，客户端已收到部分内容：无法续传时明确报错，不重新生成另一份结果
+        int separator = lastEventId.lastIndexOf('-');
+        long lastSeq;
+        try {
+            lastSeq = separator > 0 ? Long.parseLong(lastEventId.substring(separator + 1)) : -1;
+        } catch (NumberFormatException e) {
+            lastSeq = -1;
+        }
+        if (lastSeq < 0) {
+            throw new ServiceException("Last-Event-ID 格式无效: " + lastEventId, HttpStatus.BAD_REQUEST);
+        }
+        ResumableSseStream stream = streams.get(lastEventId.substring(0, separator));
+        if (stream == null) {
+            log.info("续传的流不存在或已过期: {}", lastEventId);
+            throw new ServiceException("续传的流不存在或已过期，请去掉 Last-Event-ID 重新请求", HttpStatus.GONE);
+        }
+
+        if (!stream.attach(() -> startClient(request, response, timeout), lastSeq)) {
+            log.warn("续传失败，所需事件已被淘汰[流: {}, 序号: {}]", stream.getStreamId(), lastSeq);
+            throw new ServiceException("续传所需的事件已被淘汰，请去掉 Last-Event-ID 重新请求", HttpStatus.GONE);
+        }
+        log.info("客户端重连续传[流: {}, 序号: {}]", stream.getStreamId(), lastSeq);
+        return true;
+    }
+
+    /**
+     * 相同 Idempotency-Key 的流式重试：从头回放仍在保留期内的流，不重新调用上游。
+     * 首个请求在调用上游前登记，并发的重试等待其开启流后加入；同一个键用于不同请求体时拒绝
+     */
+    private boolean resumeIdempotent(String apiKey, Object body,
+                                     HttpServletRequest request, HttpServletResponse response, long timeout) {
+        String storeKey = idempotencyKey(request, apiKey);
+        if (storeKey == null) {
+            return false;
+        }
+        String fingerprint = fingerprint(body);
+        while (true) {
+            IdempotentStream created = new IdempotentStream(storeKey, fingerprint);
+            IdempotentStream existing = idempotentStreams.putIfAbsent(storeKey, created);
+            if (existing == null) {
+                request.setAttribute(RESERVATION_ATTRIBUTE, created);
+                return false;
+            }
+            if (existing.expireAt < System.currentTimeMillis()) {
+                idempotentStreams.remove(storeKey, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new ServiceException("Idempotency-Key 已用于不同的请求", HttpStatus.CONFLICT);
+            }
+            ResumableSseStream stream = await(existing.stream);
+            if (stream == null) {
+                // 首个请求未能开启流，重新登记
+                continue;
+            }
+            if (!stream.attach(() -> startClient(request, response, timeout), -1)) {
+                log.warn("幂等重试无法回放，流的起始事件已被淘汰[流: {}]", stream.getStreamId());
+                return false;
+            }
+            log.info("幂等重试加入已有的流[流: {}]", stream.getStreamId());
+            return true;
+        }
+    }
+
+    private ResumableSseStream await(CompletableFuture<ResumableSseStream> future) {
+        try {
+            return future.get(idempotencyConfig.getWaitTimeout(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceException("相同 Idempotency-Key 的请求仍在处理中，请稍后重试", HttpStatus.CONFLICT);
+        } catch (ExecutionException e) {
+            throw new ServiceException("请求处理失败: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("等待请求结果被中断");
+        }
+    }
+
+    // 按接口和 API Key 区分，避免不同接口或不同调用方使用相同的键时互相影响
+    private String idempotencyKey(HttpServletRequest request, String apiKey) {
+        String key = request.getHeader("Idempotency-Key");
+        if (key == null || key.trim().isEmpty() || !Boolean.TRUE.equals(idempotencyConfig.getEnabled())) {
+            return null;
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ServiceException("Idempotency-Key 长度不能超过" + MAX_KEY_LENGTH, HttpStatus.BAD_REQUEST);
+        }
+        return sha256Hex(request.getRequestURI() + "\u0001" + apiKey + "\u0001" + key.trim());
+    }
+
+    private String fingerprint(Object body) {
+        try {
+            return sha256Hex(objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("请求序列化失败: " + e.getOriginalMessage());
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private SseStreamSink startClient(HttpServletRequest request, HttpServletResponse response, long timeout) {
+        try {
+            String encoding = Boolean.TRUE.equals(compressionConfig.getEnabled()) && Boolean.TRUE.equals(compressionConfig.getSse())
+                    ? CompressionUtils.negotiate(request.getHeader("Accept-Encoding"))
+                    : null;
+            return SseStreamSink.start(request, response, timeout, outputConfig.getSendBufferSizeKb() * 1024L,
+                    encoding, compressionConfig.getLevel());
+        } catch (IOException e) {
+            throw new ServiceException("开启SSE响应失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清理过期的流：未结束的流中断上游生成，已结束的流释放回放缓冲
+     */
+    private void cleanExpiredStreams() {
+        long now = System.currentTimeMillis();
+        long graceMillis = config.getGracePeriod() * 1000L;
+        idempotentStreams.values().removeIf(entry -> entry.expireAt < now);
+        // 幂等保留期内的已结束流继续保留，供相同键的重试回放
+        Set<ResumableSseStream> retained = new HashSet<>();
+        for (IdempotentStream entry : idempotentStreams.values()) {
+            ResumableSseStream stream = entry.stream.getNow(null);
+            if (stream != null) {
+                retained.add(stream);
+            }
+        }
+        streams.values().removeIf(stream -> {
+            if (!stream.isExpired(now, graceMillis) || stream.isFinished() && retained.contains(stream)) {
+                return false;
+            }
+            if (!stream.isFinished()) {
+                log.info("客户端未在保留期内重连，中断上游生成[流: {}]", stream.getStreamId());
+            }
+            stream.discard();
+            return true;
+        });
+        idempotentStreams.values().removeIf(entry -> {
+            ResumableSseStream stream = entry.stream.getNow(null);
+            return stream != null && !streams.containsKey(stream.getStreamId());
+        });
+    }
+
+    private void validateApiKey(String apiKey) {
+        if (!doubaoProperties.getApiKey().equals(apiKey)) {
+            throw new ServiceException("无效的API密钥");
+        }
+    }
+
+    /**
+     * 幂等流登记：首个请求开启流之前 stream 未完成，开启后按幂等保留期过期
+     */
+    private static class IdempotentStream {
+
+        private final String storeKey;
+        private final String fingerprint;
+        private final CompletableFuture<ResumableSseStream> stream = new CompletableFuture<>();
+        private volatile long expireAt = Long.MAX_VALUE;
+
+        IdempotentStream(String storeKey, String fingerprint) {
+            this.storeKey = storeKey;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
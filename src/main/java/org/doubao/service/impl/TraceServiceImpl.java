@@ -0,0 +1,68 @@
+package org.doubao.service.impl;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.exception.ServiceException;
+import org.doubao.domain.vo.TraceSpan;
+import org.doubao.service.ITraceService;
+import org.doubao.tracing.InMemorySpanExporter;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class TraceServiceImpl implements ITraceService {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final DoubaoProperties doubaoProperties;
+    private final InMemorySpanExporter spanExporter;
+
+    public TraceServiceImpl(DoubaoProperties doubaoProperties, InMemorySpanExporter spanExporter) {
+        this.doubaoProperties = doubaoProperties;
+        this.spanExporter = spanExporter;
+    }
+
+    @Override
+    public List<TraceSpan> getRecentSpans(String traceId, int limit, String apiKey) {
+        if (!doubaoProperties.getApiKey().equals(apiKey)) {
+            throw new ServiceException("无效的API密钥");
+        }
+        String filter = traceId == null || traceId.isEmpty() ? null : traceId;
+        return spanExporter.getSpans(filter, Math.max(1, Math.min(limit, MAX_LIMIT))).stream()
+                .map(this::toTraceSpan)
+                .toList();
+    }
+
+    private TraceSpan toTraceSpan(SpanData data) {
+        TraceSpan span = new TraceSpan();
+        span.setTraceId(data.getTraceId());
+        span.setSpanId(data.getSpanId());
+        span.setParentSpanId(data.getParentSpanContext().isValid() ? data.getParentSpanId() : null);
+        span.setName(data.getName());
+        span.setKind(data.getKind().name());
+        span.setStartTime(data.getStartEpochNanos() / 1_000_000);
+        span.setDurationMs((data.getEndEpochNanos() - data.getStartEpochNanos()) / 1e6);
+        span.setStatus(data.getStatus().getStatusCode().name());
+        span.setAttributes(toMap(data.getAttributes()));
+        span.setEvents(data.getEvents().stream()
+                .map(eventData -> {
+                    TraceSpan.Event event = new TraceSpan.Event();
+                    event.setName(eventData.getName());
+                    event.setOffsetMs((eventData.getEpochNanos() - data.getStartEpochNanos()) / 1e6);
+                    event.setAttributes(toMap(eventData.getAttributes()));
+                    return event;
+                })
+                .toList());
+        return span;
+    }
+
+    private Map<String, Object> toMap(Attributes attributes) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        attributes.forEach((key, value) -> map.put(key.getKey(), value));
+        return map;
+    }
+}
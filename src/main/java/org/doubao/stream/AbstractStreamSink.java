@@ -0,0 +1,65 @@
+package org.doubao.stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 关闭状态与关闭回调的通用实现
+ */
+@Slf4j
+public abstract class AbstractStreamSink implements StreamSink {
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final List<Runnable> closeCallbacks = new CopyOnWriteArrayList<>();
+    private volatile String closeReason;
+
+    @Override
+    public void onClose(Runnable callback) {
+        closeCallbacks.add(callback);
+        // 注册时已关闭：保证回调至少执行一次（remove 成功的一方负责执行）
+        if (closed.get() && closeCallbacks.remove(callback)) {
+            runCallback(callback);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public String getCloseReason() {
+        return closeReason;
+    }
+
+    protected boolean markClosed() {
+        return markClosed(null);
+    }
+
+    /**
+     * 标记关闭并执行回调，返回是否由本次调用完成关闭；reason 为非正常关闭的原因
+     */
+    protected boolean markClosed(String reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        closeReason = reason;
+        for (Runnable callback : closeCallbacks) {
+            if (closeCallbacks.remove(callback)) {
+                runCallback(callback);
+            }
+        }
+        return true;
+    }
+
+    private void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.warn("执行流关闭回调失败", e);
+        }
+    }
+}
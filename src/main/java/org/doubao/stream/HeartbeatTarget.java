@@ -0,0 +1,12 @@
+package org.doubao.stream;
+
+/**
+ * 需要心跳保活和失联检测的输出通道
+ */
+public interface HeartbeatTarget {
+
+    /**
+     * 发送心跳并检测客户端；返回 false 表示通道已关闭，不再检测
+     */
+    boolean heartbeat(long now, long intervalMillis, long stallMillis);
+}
@@ -0,0 +1,231 @@
+package org.doubao.stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可续传的 SSE 输出通道：每个事件带 "流ID-序号" 形式的 id 并写入有界回放缓冲，
+ * 客户端断开后上游继续生成，重连时按 Last-Event-ID 回放缺失事件并接续实时输出
+ */
+@Slf4j
+public class ResumableSseStream extends AbstractStreamSink implements HeartbeatTarget {
+
+    private final String streamId;
+    private final int maxEvents;
+    // 所有流共享的缓冲字节数及上限
+    private final AtomicLong totalBytes;
+    private final long maxTotalBytes;
+
+    private final ArrayDeque<BufferedEvent> buffer = new ArrayDeque<>();
+    private long nextSeq;
+    private long bufferedBytes;
+    private boolean finished;
+    private Throwable failure;
+
+    // 当前连接的客户端（断开时为 null）
+    private final AtomicReference<SseStreamSink> client = new AtomicReference<>();
+    private volatile long detachedAt;
+    private volatile String detachReason;
+    private volatile long finishedAt;
+    // 流结束时仍在写出剩余数据的客户端，写完前继续做失联检测
+    private volatile SseStreamSink draining;
+
+    public ResumableSseStream(String streamId, int maxEvents, AtomicLong totalBytes, long maxTotalBytes) {
+        this.streamId = streamId;
+        this.maxEvents = Math.max(1, maxEvents);
+        this.totalBytes = totalBytes;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    @Override
+    public void send(String data) throws IOException {
+        append(null, data);
+    }
+
+    @Override
+    public void send(String eventName, String data) throws IOException {
+        append(eventName, data);
+    }
+
+    /**
+     * 写入缓冲并转发给当前客户端；客户端写失败只解除连接，不中断上游生成
+     */
+    private synchronized void append(String eventName, String data) throws IOException {
+        if (finished) {
+            throw new IOException("流已结束: " + streamId);
+        }
+        BufferedEvent event = new BufferedEvent(nextSeq++, eventName, data);
+        buffer.addLast(event);
+        bufferedBytes += event.size();
+        totalBytes.addAndGet(event.size());
+        // 单流事件数上限 + 全局内存上限：从本流最旧的事件开始淘汰
+        while (buffer.size() > 1 && (buffer.size() > maxEvents || totalBytes.get() > maxTotalBytes)) {
+            evictOldest();
+        }
+
+        SseStreamSink current = client.get();
+        if (current != null) {
+            try {
+                current.send(eventId(event), event.name(), event.data());
+            } catch (IOException e) {
+                detach(current);
+            }
+        }
+    }
+
+    private void evictOldest() {
+        BufferedEvent evicted = buffer.pollFirst();
+        if (evicted != null) {
+            bufferedBytes -= evicted.size();
+            totalBytes.addAndGet(-evicted.size());
+        }
+    }
+
+    /**
+     * 连接客户端：回放 lastSeq 之后的事件，流未结束时接续实时输出。
+     * 所需事件已被淘汰（无法无缝续传）时返回 false，此时不会开启客户端连接。
+     * 回放时写出失败（客户端已断开）则结束新连接、不接入实时输出；响应已开启，仍返回 true
+     */
+    public synchronized boolean attach(Supplier<SseStreamSink> clientFactory, long lastSeq) {
+        BufferedEvent first = buffer.peekFirst();
+        long firstSeq = first != null ? first.seq() : nextSeq;
+        if (lastSeq + 1 < firstSeq) {
+            return false;
+        }
+        SseStreamSink newClient = clientFactory.get();
+        try {
+            for (BufferedEvent event : buffer) {
+                if (event.seq() > lastSeq) {
+                    newClient.send(eventId(event), event.name(), event.data());
+                }
+            }
+        } catch (IOException e) {
+            log.debug("回放SSE事件失败[流: {}]: {}", streamId, e.getMessage());
+            newClient.complete();
+            return true;
+        }
+        if (finished) {
+            newClient.complete();
+            return true;
+        }
+
+        newClient.onClose(() -> detach(newClient));
+        SseStreamSink previous = client.getAndSet(newClient);
+        if (previous != null) {
+            previous.complete();
+        }
+        return true;
+    }
+
+    private void detach(SseStreamSink sseClient) {
+        if (client.compareAndSet(sseClient, null)) {
+            detachedAt = System.currentTimeMillis();
+            detachReason = sseClient.getCloseReason();
+            log.info("客户端断开，流保留等待续传[流: {}]", streamId);
+        }
+    }
+
+    @Override
+    public void complete() {
+        SseStreamSink current = finish(null);
+        if (current != null) {
+            draining = current;
+            current.complete();
+        }
+        markClosed();
+    }
+
+    @Override
+    public void completeWithError(Throwable error) {
+        SseStreamSink current = finish(error);
+        if (current != null) {
+            draining = current;
+            current.completeWithError(error);
+        }
+        markClosed();
+    }
+
+    @Override
+    public boolean heartbeat(long now, long intervalMillis, long stallMillis) {
+        if (!isOpen()) {
+            // 流已结束：最后的客户端写完剩余数据前继续做失联检测
+            SseStreamSink last = draining;
+            if (last != null && last.heartbeat(now, intervalMillis, stallMillis)) {
+                return true;
+            }
+            draining = null;
+            return false;
+        }
+        SseStreamSink current = client.get();
+        if (current != null && !current.heartbeat(now, intervalMillis, stallMillis)) {
+            // 客户端失联：立即解除连接，保留期内未重连再中断上游
+            detach(current);
+        }
+        return true;
+    }
+
+    private synchronized SseStreamSink finish(Throwable error) {
+        if (!finished) {
+            finished = true;
+            failure = error;
+            finishedAt = System.currentTimeMillis();
+        }
+        return client.getAndSet(null);
+    }
+
+    /**
+     * 放弃流：中断上游生成并释放缓冲
+     */
+    public void discard() {
+        synchronized (this) {
+            finished = true;
+            while (!buffer.isEmpty()) {
+                evictOldest();
+            }
+        }
+        SseStreamSink current = client.getAndSet(null);
+        if (current != null) {
+            current.complete();
+        }
+        // 客户端断开后未在保留期内续传
+        markClosed(detachReason != null ? detachReason : "not_resumed");
+    }
+
+    /**
+     * 是否已超过保留期：结束后或无客户端连接超过 graceMillis
+     */
+    public boolean isExpired(long now, long graceMillis) {
+        if (finishedAt > 0) {
+            return now - finishedAt > graceMillis;
+        }
+        return client.get() == null && detachedAt > 0 && now - detachedAt > graceMillis;
+    }
+
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+
+    public String getStreamId() {
+        return streamId;
+    }
+
+    public synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    private String eventId(BufferedEvent event) {
+        return streamId + "-" + event.seq();
+    }
+
+    private record BufferedEvent(long seq, String name, String data) {
+        // 按 UTF-16 字符估算占用，外加对象开销
+        long size() {
+            return data.length() * 2L + 64;
+        }
+    }
+}
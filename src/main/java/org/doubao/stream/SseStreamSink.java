@@ -0,0 +1,335 @@
+package org.doubao.stream;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.utils.CompressionUtils;
+import org.doubao.utils.SseUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 非阻塞 SSE 输出通道：基于 AsyncContext + WriteListener，转发线程只把事件放入有界待发送队列，不会被慢客户端阻塞
+ * <p>
+ * 慢客户端策略：客户端跟不上时，队列中相邻的聊天分片合并为一个（减少重复字段）；合并后仍超过缓冲上限则断开该客户端
+ * <p>
+ * 协商到压缩时使用流式压缩，每批写出（单个事件或积压队列合并写出）后同步刷新，客户端可立即解压
+ */
+@Slf4j
+public class SseStreamSink extends AbstractStreamSink implements HeartbeatTarget {
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final long maxBufferBytes;
+
+    // 待发送事件（仅在输出不可写时排队）
+    private final ArrayDeque<PendingEvent> pending = new ArrayDeque<>();
+    private long pendingBytes;
+    private boolean completing;
+    private boolean trailerWritten;
+    private boolean asyncCompleted;
+
+    // 流式压缩（未协商压缩时为 null）
+    private final ByteArrayOutputStream compressed;
+    private final DeflaterOutputStream compressor;
+
+    private volatile long lastWriteAt = System.currentTimeMillis();
+    // 最近一次写出后输出变为不可写的时间，0 表示未阻塞
+    private volatile long stalledSince;
+
+    private SseStreamSink(AsyncContext asyncContext, ServletOutputStream out, long maxBufferBytes,
+                          String contentEncoding, int compressionLevel) throws IOException {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.maxBufferBytes = maxBufferBytes;
+        if (contentEncoding != null) {
+            this.compressed = new ByteArrayOutputStream(1024);
+            this.compressor = CompressionUtils.wrap(compressed, contentEncoding, compressionLevel);
+        } else {
+            this.compressed = null;
+            this.compressor = null;
+        }
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                markClosed();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                log.warn("SSE连接超时");
+                fail("timeout");
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                log.debug("SSE连接错误: {}", event.getThrowable() != null ? event.getThrowable().getMessage() : null);
+                fail("client_error");
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() throws IOException {
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.debug("SSE写入失败: {}", t.getMessage());
+                fail("write_error");
+            }
+        });
+    }
+
+    /**
+     * 开启异步 SSE 响应；contentEncoding 为协商出的压缩格式，null 表示不压缩
+     */
+    public static SseStreamSink start(HttpServletRequest request, HttpServletResponse response,
+                                      long timeout, long maxBufferBytes,
+                                      String contentEncoding, int compressionLevel) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+        if (contentEncoding != null) {
+            response.setHeader("Content-Encoding", contentEncoding);
+            response.addHeader("Vary", "Accept-Encoding");
+        }
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeout);
+        return new SseStreamSink(asyncContext, response.getOutputStream(), maxBufferBytes,
+                contentEncoding, compressionLevel);
+    }
+
+    @Override
+    public void send(String data) throws IOException {
+        send(null, null, data);
+    }
+
+    @Override
+    public void send(String eventName, String data) throws IOException {
+        send(null, eventName, data);
+    }
+
+    /**
+     * 发送事件：输出可写时直接写入，否则进入待发送队列
+     */
+    public synchronized void send(String id, String eventName, String data) throws IOException {
+        if (!isOpen() || completing) {
+            throw new IOException("SSE连接已关闭");
+        }
+        PendingEvent event = new PendingEvent(id, eventName, data);
+        if (pending.isEmpty() && out.isReady()) {
+            write(event.encode());
+            return;
+        }
+        enqueue(event);
+    }
+
+    private void enqueue(PendingEvent event) throws IOException {
+        // 客户端跟不上：与队尾的聊天分片合并
+        PendingEvent last = pending.peekLast();
+        if (last != null && last.name() == null && event.name() == null) {
+            String merged = SseUtils.coalesceChunks(last.data(), event.data());
+            if (merged != null) {
+                pending.pollLast();
+                pendingBytes -= last.size();
+                event = new PendingEvent(event.id(), null, merged);
+            }
+        }
+        pending.addLast(event);
+        pendingBytes += event.size();
+        if (pendingBytes > maxBufferBytes) {
+            log.warn("SSE客户端读取过慢，待发送缓冲超过上限({}字节)，断开连接", maxBufferBytes);
+            fail("buffer_overflow");
+            throw new IOException("SSE客户端读取过慢，已断开");
+        }
+    }
+
+    /**
+     * 写入一批数据；写入后输出不可写时，剩余部分由容器完成后回调 onWritePossible
+     */
+    private void write(byte[] bytes) throws IOException {
+        if (compressor != null) {
+            compressor.write(bytes);
+            compressor.flush();
+            bytes = compressed.toByteArray();
+            compressed.reset();
+        }
+        out.write(bytes);
+        if (out.isReady()) {
+            out.flush();
+        }
+        lastWriteAt = System.currentTimeMillis();
+        // 有写出进展即重新计时，只有持续不可写才视为阻塞
+        if (out.isReady()) {
+            stalledSince = 0;
+        } else {
+            stalledSince = lastWriteAt;
+        }
+    }
+
+    private synchronized void drain() throws IOException {
+        if (!out.isReady()) {
+            return;
+        }
+        if (!pending.isEmpty()) {
+            // 积压的事件合并为一批写出（压缩时只同步刷新一次）
+            ByteArrayOutputStream batch = new ByteArrayOutputStream((int) Math.min(pendingBytes, 1 << 20));
+            for (PendingEvent event : pending) {
+                batch.write(event.encode());
+            }
+            pending.clear();
+            pendingBytes = 0;
+            write(batch.toByteArray());
+            if (!out.isReady()) {
+                return;
+            }
+        }
+        stalledSince = 0;
+        if (completing) {
+            finishOutput();
+        }
+    }
+
+    /**
+     * 所有数据写出后结束响应：压缩时先写出压缩尾部
+     */
+    private void finishOutput() throws IOException {
+        if (compressor != null && !trailerWritten) {
+            trailerWritten = true;
+            compressor.finish();
+            out.write(compressed.toByteArray());
+            compressed.reset();
+            if (!out.isReady()) {
+                return;
+            }
+        }
+        completeAsync();
+    }
+
+    @Override
+    public void complete() {
+        synchronized (this) {
+            completing = true;
+            // 仍有待发送数据时由 drain 在发送完毕后结束
+            if (pending.isEmpty() && out.isReady()) {
+                try {
+                    finishOutput();
+                } catch (IOException e) {
+                    log.debug("结束SSE输出失败: {}", e.getMessage());
+                    completeAsync();
+                }
+            }
+        }
+        markClosed();
+    }
+
+    @Override
+    public void completeWithError(Throwable error) {
+        // 错误事件已在结束前发送，按正常结束处理
+        complete();
+    }
+
+    /**
+     * 客户端失联或过慢：丢弃待发送数据并立即结束
+     */
+    private void fail(String reason) {
+        synchronized (this) {
+            pending.clear();
+            pendingBytes = 0;
+            completeAsync();
+        }
+        markClosed(reason);
+    }
+
+    private void completeAsync() {
+        if (!asyncCompleted) {
+            asyncCompleted = true;
+            if (compressor != null) {
+                try {
+                    compressor.close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                log.debug("结束SSE异步请求失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean heartbeat(long now, long intervalMillis, long stallMillis) {
+        // 已结束但待发送数据尚未写完时继续检测失联，客户端不读取时无需等到异步请求超时才释放
+        if (!isOpen() && !isDraining()) {
+            return false;
+        }
+        long stalled = stalledSince;
+        if (stalled != 0 && now - stalled > stallMillis) {
+            // 输出长时间不可写（半开连接或客户端停止读取）：立即关闭，触发上游中断和账号连接释放
+            log.info("检测到SSE客户端失联，关闭连接");
+            fail("stalled");
+            return false;
+        }
+        if (intervalMillis > 0 && now - lastWriteAt >= intervalMillis) {
+            synchronized (this) {
+                // 心跳可丢弃：有排队数据或不可写时跳过
+                if (isOpen() && !completing && pending.isEmpty() && out.isReady()) {
+                    try {
+                        write(":ping\n\n".getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        fail("write_error");
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 已调用 complete，仍在等待剩余数据写出
+     */
+    private synchronized boolean isDraining() {
+        return completing && !asyncCompleted;
+    }
+
+    private record PendingEvent(String id, String name, String data) {
+
+        byte[] encode() {
+            StringBuilder builder = new StringBuilder(data.length() + 64);
+            if (id != null) {
+                builder.append("id:").append(id).append('\n');
+            }
+            if (name != null) {
+                builder.append("event:").append(name).append('\n');
+            }
+            for (String line : data.split("\n", -1)) {
+                builder.append("data:").append(line).append('\n');
+            }
+            builder.append('\n');
+            return builder.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        // 按 UTF-16 字符估算，外加帧头开销
+        long size() {
+            return data.length() * 2L + 64;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.doubao.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.config.DoubaoProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SSE 心跳与失联检测：所有流共用共享调度器上的一个定时任务，不为每个连接单独创建定时器；
+ * 输出为非阻塞写入，心跳直接在调度线程上写出
+ */
+@Slf4j
+@Component
+public class StreamHeartbeatMonitor {
+
+    private final DoubaoProperties.StreamHeartbeatConfig config;
+    private final Set<HeartbeatTarget> targets = ConcurrentHashMap.newKeySet();
+
+    public StreamHeartbeatMonitor(DoubaoProperties doubaoProperties,
+                                  @Qualifier("streamScheduler") TaskScheduler streamScheduler) {
+        this.config = doubaoProperties.getStreamHeartbeat();
+        streamScheduler.scheduleAtFixedRate(this::check, Duration.ofSeconds(1));
+    }
+
+    public void register(HeartbeatTarget target) {
+        targets.add(target);
+    }
+
+    public int size() {
+        return targets.size();
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        long intervalMillis = config.getInterval() * 1000L;
+        long stallMillis = config.getStallTimeout() * 1000L;
+        targets.removeIf(target -> {
+            try {
+                return !target.heartbeat(now, intervalMillis, stallMillis);
+            } catch (Exception e) {
+                log.warn("SSE心跳检测异常", e);
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package org.doubao.stream;
+
+import java.io.IOException;
+
+/**
+ * 流式输出通道：聊天和生图的转发逻辑只面向该接口，由 SSE、WebSocket 等传输方式各自实现
+ */
+public interface StreamSink {
+
+    /**
+     * 发送数据事件
+     */
+    void send(String data) throws IOException;
+
+    /**
+     * 发送具名事件（如 error）
+     */
+    void send(String eventName, String data) throws IOException;
+
+    /**
+     * 正常结束
+     */
+    void complete();
+
+    /**
+     * 异常结束
+     */
+    void completeWithError(Throwable error);
+
+    /**
+     * 注册关闭回调：正常结束、超时、出错或被取消时执行一次；通道已关闭时立即执行
+     */
+    void onClose(Runnable callback);
+
+    boolean isOpen();
+
+    /**
+     * 非正常关闭的原因（如 timeout、client_error、cancelled），正常结束或未关闭时返回 null
+     */
+    String getCloseReason();
+}
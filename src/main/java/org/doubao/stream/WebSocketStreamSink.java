@@ -0,0 +1,129 @@
+package org.doubao.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.extern.slf4j.Slf4j;
+import org.doubao.domain.model.constant.HttpStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+
+/**
+ * WebSocket 多路复用中单个请求的输出通道：每个事件封装为带请求ID的帧
+ * <p>
+ * 帧格式：{"id": 请求ID, "type": "data" | "error" | "done" | "cancelled", "data": 原始事件JSON}
+ * <p>
+ * 流控：连接上的请求共享发送缓冲，数据帧写入会使缓冲超过上限时只中断当前请求（回执 error 帧），连接和其他请求不受影响
+ */
+@Slf4j
+public class WebSocketStreamSink extends AbstractStreamSink {
+
+    private final WebSocketSession session;
+    private final String requestId;
+    private final ObjectMapper objectMapper;
+    private final long maxBufferBytes;
+
+    /**
+     * @param session        需为线程安全的会话（ConcurrentWebSocketSessionDecorator），多个请求并发写入
+     * @param maxBufferBytes 写入数据帧时连接发送缓冲的上限，需小于装饰器的缓冲上限，为控制帧留出余量
+     */
+    public WebSocketStreamSink(WebSocketSession session, String requestId, ObjectMapper objectMapper,
+                               long maxBufferBytes) {
+        this.session = session;
+        this.requestId = requestId;
+        this.objectMapper = objectMapper;
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    @Override
+    public void send(String data) throws IOException {
+        if ("[DONE]".equals(data)) {
+            sendFrame("done", null);
+        } else {
+            sendFrame("data", data);
+        }
+    }
+
+    @Override
+    public void send(String eventName, String data) throws IOException {
+        sendFrame(eventName, data);
+    }
+
+    @Override
+    public void complete() {
+        markClosed();
+    }
+
+    @Override
+    public void completeWithError(Throwable error) {
+        markClosed();
+    }
+
+    /**
+     * 客户端取消：先关闭通道（触发上游中断），再回执取消帧
+     */
+    public void cancel() {
+        if (markClosed("cancelled")) {
+            try {
+                writeFrame("cancelled", null);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void sendFrame(String type, String data) throws IOException {
+        if (!isOpen()) {
+            throw new IOException("请求已结束或已取消: " + requestId);
+        }
+        TextMessage message = encode(type, data);
+        if ("data".equals(type) && session instanceof ConcurrentWebSocketSessionDecorator decorator
+                && decorator.getBufferSize() + message.getPayloadLength() > maxBufferBytes) {
+            overflow();
+            throw new IOException("客户端读取过慢，已中断请求: " + requestId);
+        }
+        write(message);
+    }
+
+    /**
+     * 客户端读取过慢：只中断本请求（触发上游中断），回执错误帧
+     */
+    private void overflow() {
+        if (markClosed("buffer_overflow")) {
+            log.warn("WebSocket发送缓冲超过上限({}字节)，中断请求[{}]", maxBufferBytes, requestId);
+            ObjectNode error = objectMapper.createObjectNode();
+            error.put("code", HttpStatus.SERVICE_UNAVAILABLE);
+            error.put("message", "客户端读取过慢，发送缓冲已满，已中断该请求");
+            try {
+                write(encode("error", objectMapper.writeValueAsString(error)));
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void writeFrame(String type, String data) throws IOException {
+        write(encode(type, data));
+    }
+
+    private TextMessage encode(String type, String data) throws IOException {
+        ObjectNode frame = objectMapper.createObjectNode();
+        frame.put("id", requestId);
+        frame.put("type", type);
+        if (data != null) {
+            // 事件本身已是 JSON，直接嵌入避免二次编码
+            frame.putRawValue("data", new RawValue(data));
+        }
+        // 按字节构造，计算缓冲占用时无需再次编码
+        return new TextMessage(objectMapper.writeValueAsBytes(frame));
+    }
+
+    private void write(TextMessage message) throws IOException {
+        if (!session.isOpen()) {
+            markClosed("connection_closed");
+            throw new IOException("WebSocket连接已关闭");
+        }
+        session.sendMessage(message);
+    }
+}
@@ -0,0 +1,107 @@
+package org.doubao.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.doubao.jfr.StreamRelayEvent;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 链路追踪（OpenTelemetry）：签名、构建请求体、上游请求、流式转发各阶段的 Span
+ */
+@Component
+public class DoubaoTracing {
+
+    private final Tracer tracer;
+
+    public DoubaoTracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("org.doubao");
+    }
+
+    /**
+     * 在子 Span 中执行，异常时记录到 Span 并原样抛出
+     */
+    public <T, E extends Exception> T inSpan(String name, TracedCall<T, E> call) throws E {
+        Span span = tracer.spanBuilder(name).startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return call.call();
+        } catch (Exception e) {
+            recordError(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * 开始上游请求 Span（账号标识和会话ID只记录摘要）
+     */
+    public Span startUpstreamSpan(String service, String accountKey, String sessionId, String model) {
+        return tracer.spanBuilder("doubao." + service + ".upstream")
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("doubao.account", hashAccount(accountKey))
+                .setAttribute("doubao.session", hashSession(sessionId))
+                .setAttribute("doubao.model", model != null ? model : "default")
+                .startSpan();
+    }
+
+    /**
+     * 开始流式转发 Span 并设为当前上下文，需在同一线程关闭
+     */
+    public RelayTrace startRelay(String service, String model, int n) {
+        Span span = tracer.spanBuilder("doubao." + service + ".stream")
+                .setAttribute("doubao.model", model != null ? model : "default")
+                .setAttribute("doubao.n", n)
+                .startSpan();
+        return new RelayTrace(span, StreamRelayEvent.start(service, model, n));
+    }
+
+    /**
+     * 收到上游响应头
+     */
+    public static void responseReceived(Span span, int statusCode) {
+        span.setAttribute("http.response.status_code", statusCode);
+        span.addEvent("response.headers");
+    }
+
+    public static void recordError(Span span, Throwable e) {
+        span.recordException(e);
+        span.setStatus(StatusCode.ERROR, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+
+    public static String hashAccount(String accountKey) {
+        return shortHash(accountKey);
+    }
+
+    /**
+     * 会话ID 可能是调用方传入的 user 字段，与账号标识一样只记录摘要
+     */
+    public static String hashSession(String sessionId) {
+        return shortHash(sessionId);
+    }
+
+    private static String shortHash(String value) {
+        if (value == null) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface TracedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+}
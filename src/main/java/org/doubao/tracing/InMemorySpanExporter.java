@@ -0,0 +1,67 @@
+package org.doubao.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 内存导出：保留最近的 Span 供 /traces 接口查询，无需外部采集服务
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+    private final ArrayDeque<SpanData> spans;
+
+    public InMemorySpanExporter(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.spans = new ArrayDeque<>(Math.min(this.capacity, 1024));
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+        if (capacity == 0) {
+            return CompletableResultCode.ofSuccess();
+        }
+        for (SpanData span : batch) {
+            if (spans.size() >= capacity) {
+                spans.pollFirst();
+            }
+            spans.addLast(span);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * 最近的 Span（按导出顺序，最新的在后）；traceId 不为空时只返回该链路
+     */
+    public synchronized List<SpanData> getSpans(String traceId, int limit) {
+        List<SpanData> result = new ArrayList<>();
+        Iterator<SpanData> iterator = spans.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            SpanData span = iterator.next();
+            if (traceId == null || traceId.equals(span.getTraceId())) {
+                result.add(span);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        spans.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+}
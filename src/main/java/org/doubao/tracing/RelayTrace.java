@@ -0,0 +1,87 @@
+package org.doubao.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+import org.doubao.jfr.StreamRelayEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流式转发追踪：首个分片、结束事件，以及写出客户端的次数和累计耗时（写入 Span 属性，避免逐次产生 Span）。
+ * 结束时同时提交 JFR 转发事件。随上下文传递到并行选项的线程，通过 {@link #current()} 获取
+ */
+public class RelayTrace implements AutoCloseable {
+
+    private static final ContextKey<RelayTrace> KEY = ContextKey.named("doubao-relay-trace");
+
+    private final Span span;
+    private final StreamRelayEvent event;
+    private final Scope scope;
+    private final AtomicBoolean firstChunk = new AtomicBoolean();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private volatile String outcome;
+    private volatile String cancelReason;
+
+    RelayTrace(Span span, StreamRelayEvent event) {
+        this.span = span;
+        this.event = event;
+        this.scope = Context.current().with(span).with(KEY, this).makeCurrent();
+    }
+
+    /**
+     * 当前上下文中的转发追踪，不在流式转发中时返回 null
+     */
+    public static RelayTrace current() {
+        return Context.current().get(KEY);
+    }
+
+    /**
+     * 首个内容分片（只记录一次）
+     */
+    public void firstChunk(String eventName, int index) {
+        if (firstChunk.compareAndSet(false, true)) {
+            span.addEvent(eventName, Attributes.builder().put("doubao.index", index).build());
+        }
+    }
+
+    public void recordToken() {
+        tokens.increment();
+    }
+
+    public void recordWrite(long nanos) {
+        writes.increment();
+        writeNanos.add(nanos);
+    }
+
+    public void completed() {
+        span.addEvent("completed");
+    }
+
+    public void fail(Throwable e) {
+        DoubaoTracing.recordError(span, e);
+    }
+
+    /**
+     * 转发结果；被取消时 cancelReason 为客户端断开原因
+     */
+    public void outcome(String outcome, String cancelReason) {
+        this.outcome = outcome;
+        this.cancelReason = cancelReason;
+    }
+
+    @Override
+    public void close() {
+        span.setAttribute("doubao.client.writes", writes.sum());
+        span.setAttribute("doubao.client.write_ms", TimeUnit.NANOSECONDS.toMillis(writeNanos.sum()));
+        span.end();
+        event.finish(tokens.sum(), writes.sum(), writeNanos.sum(), outcome, cancelReason);
+        scope.close();
+    }
+}
@@ -0,0 +1,76 @@
+package org.doubao.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionUtils {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * 按 Accept-Encoding 协商压缩格式，优先 gzip；客户端不支持压缩时返回 null
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            if (isDisabled(tokens)) {
+                continue;
+            }
+            if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                return GZIP;
+            }
+            if (DEFLATE.equals(coding)) {
+                deflate = true;
+            }
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    // q=0 表示客户端明确拒绝该编码
+    private static boolean isDisabled(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String param = tokens[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 创建指定级别的压缩输出流；flush 时以 SYNC_FLUSH 输出已压缩的数据，客户端可立即解压
+     */
+    public static DeflaterOutputStream wrap(OutputStream out, String encoding, int level) throws IOException {
+        int compressionLevel = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, 8192, true) {
+                {
+                    def.setLevel(compressionLevel);
+                }
+            };
+        }
+        return new DeflaterOutputStream(out, new Deflater(compressionLevel), 8192, true) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package org.doubao.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+@Slf4j
+public class FanOutUtils {
+
+    // 当前线程正在执行的子任务所属的并行执行，供子任务登记中止动作
+    private static final ThreadLocal<Aborts> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 按并发上限执行 n 个子任务：固定数量的执行者依次领取序号，整体受超时约束。
+     * 调用线程也作为执行者之一，调用方本身运行在同一线程池或线程池已满时不会互相等待。
+     * 到达截止时间后不再领取新序号，并中止进行中的子任务（见 {@link #onAbort}）后等待其退出，
+     * 因此返回时不会再有子任务在执行；返回未被领取（从未执行）的序号，由调用方按失败处理
+     */
+    public static BitSet run(int n, int maxParallel, Executor executor, long timeoutSeconds, IntConsumer task) {
+        int parallelism = Math.min(n, Math.max(1, maxParallel));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean expired = new AtomicBoolean();
+        Aborts aborts = new Aborts();
+        // 每个序号恰好计数一次：已领取的在子任务结束时计数，未领取的在截止时由调用线程统一计数
+        CountDownLatch done = new CountDownLatch(n);
+        Runnable worker = () -> {
+            int index;
+            while (!expired.get() && System.nanoTime() - deadline < 0 && (index = next.getAndIncrement()) < n) {
+                Aborts previous = CURRENT.get();
+                CURRENT.set(aborts);
+                try {
+                    task.accept(index);
+                } catch (RuntimeException e) {
+                    log.error("并行请求执行异常", e);
+                } finally {
+                    CURRENT.set(previous);
+                    done.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < parallelism; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                log.warn("线程池已满，剩余子任务由调用线程执行");
+                break;
+            }
+        }
+        worker.run();
+
+        BitSet unclaimed = new BitSet();
+        boolean interrupted = false;
+        try {
+            if (done.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return unclaimed;
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        // 截止：收回剩余序号（之后执行者领取到的序号均不小于 n），中止进行中的子任务
+        expired.set(true);
+        for (int i = Math.min(n, next.getAndSet(n)); i < n; i++) {
+            unclaimed.set(i);
+            done.countDown();
+        }
+        log.warn("并行请求超时，未执行的子任务: {}，中止进行中的子任务: {}", unclaimed.cardinality(), done.getCount());
+        aborts.abort();
+        // 中止后子任务会很快退出；等待其结束，避免调用方收尾后仍有子任务写入结果
+        if (!interrupted) {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return unclaimed;
+    }
+
+    /**
+     * 在并行子任务内登记中止动作（如取消上游请求），整体超时时执行；已超时则立即执行。
+     * 动作可能被执行多次，须可重复调用。不在并行子任务内时忽略
+     */
+    public static void onAbort(Runnable action) {
+        Aborts aborts = CURRENT.get();
+        if (aborts != null) {
+            aborts.register(action);
+        }
+    }
+
+    /**
+     * 当前线程所在的并行执行是否已因超时中止（子任务据此区分超时取消与上游故障）
+     */
+    public static boolean isAborted() {
+        Aborts aborts = CURRENT.get();
+        return aborts != null && aborts.aborted;
+    }
+
+    private static final class Aborts {
+        private final Queue<Runnable> actions = new ConcurrentLinkedQueue<>();
+        private volatile boolean aborted;
+
+        void register(Runnable action) {
+            actions.add(action);
+            if (aborted) {
+                runQuietly(action);
+            }
+        }
+
+        void abort() {
+            aborted = true;
+            Runnable action;
+            while ((action = actions.poll()) != null) {
+                runQuietly(action);
+            }
+        }
+
+        private static void runQuietly(Runnable action) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.warn("中止并行子任务失败", e);
+            }
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package org.doubao.utils;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import java.util.HashMap;
 import java.util.Map;
 
 public class SseUtils {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * 创建SSE分片数据
      */
     public static Map<String, Object> createChunk(String requestId, String model,
                                                   String content, String finishReason) {
+        return createChunk(requestId, model, 0, content, finishReason);
+    }
+
+    /**
+     * 创建SSE分片数据（指定选项序号，n>1 时使用）
+     */
+    public static Map<String, Object> createChunk(String requestId, String model, int index,
+                                                  String content, String finishReason) {
         Map<String, Object> chunk = new HashMap<>();
         chunk.put("id", requestId);
         chunk.put("object", "chat.completion.chunk");
@@ -17,7 +31,7 @@ public class SseUtils {
         chunk.put("model", model);
 
         Map<String, Object> choice = new HashMap<>();
-        choice.put("index", 0);
+        choice.put("index", index);
 
         Map<String, Object> delta = new HashMap<>();
         delta.put("content", content);
@@ -31,6 +45,75 @@ public class SseUtils {
         return chunk;
     }
 
+    /**
+     * 创建耗时分解分片（[DONE] 前推送，choices 为空，格式同 Server-Timing 头）
+     */
+    public static Map<String, Object> createTimingChunk(String requestId, String model, String serverTiming) {
+        Map<String, Object> chunk = new HashMap<>();
+        chunk.put("id", requestId);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", System.currentTimeMillis() / 1000);
+        chunk.put("model", model);
+        chunk.put("choices", new Object[0]);
+        chunk.put("server_timing", serverTiming);
+        return chunk;
+    }
+
+    /**
+     * 创建生图SSE分片数据（单张图片）
+     */
+    public static Map<String, Object> createImageChunk(String requestId, String model,
+                                                       int index, Object imageData) {
+        Map<String, Object> chunk = new HashMap<>();
+        chunk.put("id", requestId);
+        chunk.put("object", "image.generation.chunk");
+        chunk.put("created", System.currentTimeMillis() / 1000);
+        chunk.put("model", model);
+        chunk.put("status", "image");
+        chunk.put("index", index);
+        chunk.put("data", new Object[]{imageData});
+        return chunk;
+    }
+
+    /**
+     * 合并两个相邻的聊天分片（慢客户端积压时使用）：同一响应、同一选项、均未结束时拼接 delta.content，
+     * 返回合并后的分片 JSON；不可合并时返回 null
+     */
+    public static String coalesceChunks(String first, String second) {
+        if (!first.startsWith("{") || !second.startsWith("{")) {
+            return null;
+        }
+        try {
+            JsonNode a = MAPPER.readTree(first);
+            JsonNode b = MAPPER.readTree(second);
+            if (!"chat.completion.chunk".equals(a.path("object").asText())
+                    || !a.path("id").equals(b.path("id"))) {
+                return null;
+            }
+            JsonNode choicesA = a.path("choices");
+            JsonNode choicesB = b.path("choices");
+            if (choicesA.size() != 1 || choicesB.size() != 1) {
+                return null;
+            }
+            JsonNode choiceA = choicesA.get(0);
+            JsonNode choiceB = choicesB.get(0);
+            if (choiceA.path("index").asInt() != choiceB.path("index").asInt()
+                    || !choiceA.path("finish_reason").isMissingNode()
+                    || !choiceB.path("finish_reason").isMissingNode()) {
+                return null;
+            }
+            JsonNode contentA = choiceA.path("delta").path("content");
+            JsonNode contentB = choiceB.path("delta").path("content");
+            if (!contentA.isTextual() || !contentB.isTextual()) {
+                return null;
+            }
+            ((ObjectNode) choiceB.path("delta")).put("content", contentA.asText() + contentB.asText());
+            return MAPPER.writeValueAsString(b);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * 创建SSE结束标记
      */
@@ -0,0 +1,48 @@
+package org.doubao.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogRedactorTest {
+
+    @Test
+    void masksCookieFields() {
+        assertThat(LogRedactor.redact("sessionid=abc123; sid_tt=xyz789; ttwid=1%7Cabc"))
+                .isEqualTo("sessionid=***; sid_tt=***; ttwid=***");
+    }
+
+    @Test
+    void masksSignatureQueryParameters() {
+        assertThat(LogRedactor.redact("https://www.doubao.com/samantha/chat/completion?aid=497858&msToken=Qh3kX9&a_bogus=DFSz"))
+                .isEqualTo("https://www.doubao.com/samantha/chat/completion?aid=497858&msToken=***&a_bogus=***");
+    }
+
+    @Test
+    void masksJsonApiKey() {
+        assertThat(LogRedactor.redact("{\"api_key\":\"abcdef\",\"model\":\"doubao\"}"))
+                .isEqualTo("{\"api_key\":\"***\",\"model\":\"doubao\"}");
+    }
+
+    @Test
+    void masksBearerTokenInAuthorizationHeader() {
+        assertThat(LogRedactor.redact("Authorization: Bearer abcdef123"))
+                .isEqualTo("Authorization: Bearer ***");
+        assertThat(LogRedactor.redact("{\"authorization\":\"Bearer abcdef123\"}"))
+                .isEqualTo("{\"authorization\":\"Bearer ***\"}");
+    }
+
+    @Test
+    void masksSecretKeysAnywhere() {
+        assertThat(LogRedactor.redact("无效的API密钥: sk-sHf2Sf0ZFMMcmsC5"))
+                .isEqualTo("无效的API密钥: ***");
+    }
+
+    @Test
+    void keepsAlreadyMaskedAndPlainMessages() {
+        assertThat(LogRedactor.redact("sessionid=***")).isEqualTo("sessionid=***");
+        assertThat(LogRedactor.redact("收到聊天请求[模型: doubao-pro-chat]")).isEqualTo("收到聊天请求[模型: doubao-pro-chat]");
+        assertThat(LogRedactor.redact("")).isEmpty();
+        assertThat(LogRedactor.redact(null)).isNull();
+    }
+}
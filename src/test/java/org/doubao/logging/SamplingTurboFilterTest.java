@@ -0,0 +1,70 @@
+package org.doubao.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingTurboFilterTest {
+
+    private SamplingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new SamplingTurboFilter();
+        filter.setContext(new LoggerContext());
+        filter.addSample("REQUEST=0");
+        filter.addSample("SESSION = 1.0");
+        filter.start();
+    }
+
+    @Test
+    void dropsInfoAndBelowAtZeroRate() {
+        assertThat(decide(LogCategory.REQUEST, Level.INFO)).isEqualTo(FilterReply.DENY);
+        assertThat(decide(LogCategory.REQUEST, Level.DEBUG)).isEqualTo(FilterReply.DENY);
+    }
+
+    @Test
+    void neverDropsWarnOrError() {
+        assertThat(decide(LogCategory.REQUEST, Level.WARN)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(LogCategory.REQUEST, Level.ERROR)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void ignoresUnmarkedUnknownAndFullRateCategories() {
+        assertThat(decide(null, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(MarkerFactory.getMarker("OTHER"), Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(LogCategory.SESSION, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void invalidSpecsAreIgnored() {
+        filter.addSample("SESSION");
+        filter.addSample("SESSION=abc");
+
+        assertThat(decide(LogCategory.SESSION, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void keepsRoughlyTheConfiguredFraction() {
+        filter.addSample("REQUEST=0.25");
+        int kept = 0;
+        int total = 20000;
+        for (int i = 0; i < total; i++) {
+            if (decide(LogCategory.REQUEST, Level.INFO) == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+
+        assertThat(kept / (double) total).isBetween(0.2, 0.3);
+    }
+
+    private FilterReply decide(Marker marker, Level level) {
+        return filter.decide(marker, null, level, "msg", null, null);
+    }
+}
@@ -0,0 +1,66 @@
+package org.doubao.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyWindowTest {
+
+    @Test
+    void emptyWindowReturnsZeros() {
+        LatencyWindow window = new LatencyWindow(16);
+
+        assertThat(window.size()).isZero();
+        assertThat(window.percentilesMillis(0.5, 0.99)).containsExactly(0.0, 0.0);
+    }
+
+    @Test
+    void nearestRankPercentiles() {
+        LatencyWindow window = new LatencyWindow(128);
+        // 乱序写入 1~100ms
+        for (int i = 0; i < 100; i++) {
+            window.record(millis((i * 37) % 100 + 1));
+        }
+
+        assertThat(window.size()).isEqualTo(100);
+        assertThat(window.percentilesMillis(0.5, 0.9, 0.99, 1.0)).containsExactly(50.0, 90.0, 99.0, 100.0);
+        assertThat(window.percentilesMillis(0.0)).containsExactly(1.0);
+    }
+
+    @Test
+    void keepsOnlyMostRecentSamples() {
+        LatencyWindow window = new LatencyWindow(4);
+        for (int i = 1; i <= 8; i++) {
+            window.record(millis(i));
+        }
+
+        // 只保留 5~8ms
+        assertThat(window.size()).isEqualTo(4);
+        assertThat(window.percentilesMillis(0.25, 0.5, 1.0)).containsExactly(5.0, 6.0, 8.0);
+    }
+
+    @Test
+    void sizeRoundsUpToPowerOfTwo() {
+        LatencyWindow window = new LatencyWindow(5);
+        for (int i = 1; i <= 20; i++) {
+            window.record(millis(i));
+        }
+
+        assertThat(window.size()).isEqualTo(8);
+        assertThat(window.percentilesMillis(0.0)).containsExactly(13.0);
+    }
+
+    @Test
+    void subMillisecondSamplesKeepFraction() {
+        LatencyWindow window = new LatencyWindow(4);
+        window.record(TimeUnit.MICROSECONDS.toNanos(250));
+
+        assertThat(window.percentilesMillis(0.5)).containsExactly(0.25);
+    }
+
+    private static long millis(long value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+}
@@ -0,0 +1,96 @@
+package org.doubao.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.doubao.config.DoubaoProperties;
+import org.doubao.domain.vo.ChatBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 重启恢复时解析已有的输出文件
+ */
+class ChatBatchServiceImplTest {
+
+    @TempDir
+    Path storageDir;
+
+    private ChatBatchServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        DoubaoProperties properties = new DoubaoProperties();
+        properties.setAccounts(List.of(new DoubaoProperties.AccountConfig()));
+        properties.getBatch().setStorageDir(storageDir.toString());
+        service = new ChatBatchServiceImpl(properties, null, new ObjectMapper(), Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void countsDoneLinesAndSkipsMalformedRecords() throws IOException {
+        String valid = """
+                {"line":0,"response":{"id":"a"}}
+                {"line":1,"error":{"message":"上游失败"}}
+                not json
+                {"id":"no-line"}
+                {"line":-1,"response":{}}
+                {"line":"2","response":{}}
+                {"line":0,"response":{"id":"dup"}}
+                {"line":2,"error":null,"response":{}}
+                """;
+        Path output = write(valid + "{\"line\":3,\"resp");
+
+        ChatBatch batch = new ChatBatch();
+        BitSet done = service.loadDoneLines(batch, output);
+
+        assertThat(done.stream().toArray()).containsExactly(0, 1, 2);
+        assertThat(batch.getRequestCounts().getCompleted()).isEqualTo(2);
+        assertThat(batch.getRequestCounts().getFailed()).isEqualTo(1);
+        // 写了一半的末行被截掉，之后的追加从完整行开始
+        assertThat(Files.readString(output, StandardCharsets.UTF_8)).isEqualTo(valid);
+    }
+
+    @Test
+    void appendsMissingNewlineAfterCompleteLastRecord() throws IOException {
+        Path output = write("{\"line\":0,\"response\":{}}\n{\"line\":1,\"response\":{}}");
+
+        ChatBatch batch = new ChatBatch();
+        BitSet done = service.loadDoneLines(batch, output);
+
+        assertThat(done.cardinality()).isEqualTo(2);
+        assertThat(Files.readString(output, StandardCharsets.UTF_8))
+                .isEqualTo("{\"line\":0,\"response\":{}}\n{\"line\":1,\"response\":{}}\n");
+    }
+
+    @Test
+    void emptyOutputHasNoDoneLines() throws IOException {
+        Path output = write("");
+
+        ChatBatch batch = new ChatBatch();
+        BitSet done = service.loadDoneLines(batch, output);
+
+        assertThat(done.isEmpty()).isTrue();
+        assertThat(batch.getRequestCounts().getCompleted()).isZero();
+        assertThat(batch.getRequestCounts().getFailed()).isZero();
+    }
+
+    private Path write(String content) throws IOException {
+        Path output = storageDir.resolve("output.jsonl");
+        Files.writeString(output, content, StandardCharsets.UTF_8);
+        return output;
+    }
+}
@@ -0,0 +1,156 @@
+package org.doubao.stream;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResumableSseStreamTest {
+
+    // 单个事件 "x" 的缓冲占用（按 UTF-16 估算 + 64）
+    private static final long EVENT_SIZE = 66;
+
+    @Test
+    void attachReplaysMissedEventsThenRelaysLive() throws IOException {
+        ResumableSseStream stream = newStream(16, Long.MAX_VALUE);
+        stream.send("a");
+        stream.send("b");
+        stream.send("c");
+
+        TestClient client = new TestClient();
+        assertThat(stream.attach(client, 0)).isTrue();
+        stream.send("d");
+
+        assertThat(client.body()).isEqualTo("id:s1-1\ndata:b\n\nid:s1-2\ndata:c\n\nid:s1-3\ndata:d\n\n");
+        assertThat(client.sink.isOpen()).isTrue();
+    }
+
+    @Test
+    void attachFailsWithoutOpeningClientWhenEventsWereEvicted() throws IOException {
+        ResumableSseStream stream = newStream(2, Long.MAX_VALUE);
+        for (int i = 0; i < 4; i++) {
+            stream.send("x");
+        }
+
+        // 只保留序号 2、3：从序号 1 开始续传会缺事件
+        TestClient tooOld = new TestClient();
+        assertThat(stream.attach(tooOld, 0)).isFalse();
+        assertThat(tooOld.created).isFalse();
+
+        TestClient resumable = new TestClient();
+        assertThat(stream.attach(resumable, 1)).isTrue();
+        assertThat(resumable.body()).isEqualTo("id:s1-2\ndata:x\n\nid:s1-3\ndata:x\n\n");
+    }
+
+    @Test
+    void sharedMemoryCapEvictsOldestAndDiscardReleasesBuffer() throws IOException {
+        AtomicLong totalBytes = new AtomicLong();
+        ResumableSseStream stream = new ResumableSseStream("s1", 16, totalBytes, EVENT_SIZE * 3);
+        for (int i = 0; i < 5; i++) {
+            stream.send("x");
+        }
+
+        assertThat(stream.getBufferedBytes()).isEqualTo(EVENT_SIZE * 3);
+        assertThat(totalBytes.get()).isEqualTo(EVENT_SIZE * 3);
+        assertThat(stream.attach(new TestClient(), 0)).isFalse();
+
+        stream.discard();
+        assertThat(stream.getBufferedBytes()).isZero();
+        assertThat(totalBytes.get()).isZero();
+        assertThat(stream.getCloseReason()).isEqualTo("not_resumed");
+    }
+
+    @Test
+    void newClientReplacesPreviousOne() throws IOException {
+        ResumableSseStream stream = newStream(16, Long.MAX_VALUE);
+        stream.send("a");
+        TestClient first = new TestClient();
+        TestClient second = new TestClient();
+
+        assertThat(stream.attach(first, 0)).isTrue();
+        assertThat(stream.attach(second, 0)).isTrue();
+        stream.send("b");
+
+        assertThat(first.sink.isOpen()).isFalse();
+        assertThat(first.body()).isEmpty();
+        assertThat(second.body()).isEqualTo("id:s1-1\ndata:b\n\n");
+    }
+
+    @Test
+    void attachAfterFinishReplaysAndCompletesClient() throws IOException {
+        ResumableSseStream stream = newStream(16, Long.MAX_VALUE);
+        stream.send("a");
+        stream.send("[DONE]");
+        stream.complete();
+
+        TestClient client = new TestClient();
+        assertThat(stream.attach(client, -1)).isTrue();
+
+        assertThat(client.body()).isEqualTo("id:s1-0\ndata:a\n\nid:s1-1\ndata:[DONE]\n\n");
+        assertThat(client.sink.isOpen()).isFalse();
+        assertThat(stream.isFinished()).isTrue();
+        assertThat(stream.isExpired(System.currentTimeMillis() + 1001, 1000)).isTrue();
+    }
+
+    private static ResumableSseStream newStream(int maxEvents, long maxTotalBytes) {
+        return new ResumableSseStream("s1", maxEvents, new AtomicLong(), maxTotalBytes);
+    }
+
+    /**
+     * 基于 Mock 请求的 SSE 客户端，输出始终可写
+     */
+    private static class TestClient implements Supplier<SseStreamSink> {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private SseStreamSink sink;
+        private boolean created;
+
+        @Override
+        public SseStreamSink get() {
+            created = true;
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setAsyncSupported(true);
+            ServletOutputStream out = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+            };
+            MockHttpServletResponse response = new MockHttpServletResponse() {
+                @Override
+                public ServletOutputStream getOutputStream() {
+                    return out;
+                }
+            };
+            try {
+                sink = SseStreamSink.start(request, response, 60_000, 1 << 20, null, 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return sink;
+        }
+
+        String body() {
+            return body.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.doubao.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FanOutUtilsTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runsEveryIndexOnceWithinParallelLimit() {
+        int n = 8;
+        AtomicIntegerArray runs = new AtomicIntegerArray(n);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        BitSet unclaimed = FanOutUtils.run(n, 3, executor, 10, index -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            sleep(20);
+            runs.incrementAndGet(index);
+            active.decrementAndGet();
+        });
+
+        assertThat(unclaimed.isEmpty()).isTrue();
+        for (int i = 0; i < n; i++) {
+            assertThat(runs.get(i)).as("index %d", i).isEqualTo(1);
+        }
+        assertThat(maxActive.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void rejectedExecutorFallsBackToCallerThread() {
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException("full");
+        };
+        Thread caller = Thread.currentThread();
+        AtomicInteger onCaller = new AtomicInteger();
+
+        BitSet unclaimed = FanOutUtils.run(4, 4, rejecting, 10, index -> {
+            if (Thread.currentThread() == caller) {
+                onCaller.incrementAndGet();
+            }
+        });
+
+        assertThat(unclaimed.isEmpty()).isTrue();
+        assertThat(onCaller.get()).isEqualTo(4);
+    }
+
+    @Test
+    void taskExceptionDoesNotStopOtherIndices() {
+        AtomicInteger completed = new AtomicInteger();
+
+        BitSet unclaimed = FanOutUtils.run(4, 2, executor, 10, index -> {
+            if (index == 1) {
+                throw new IllegalStateException("boom");
+            }
+            completed.incrementAndGet();
+        });
+
+        assertThat(unclaimed.isEmpty()).isTrue();
+        assertThat(completed.get()).isEqualTo(3);
+    }
+
+    @Test
+    void timeoutReturnsUnclaimedIndicesAndAbortsInFlightTasks() {
+        Thread caller = Thread.currentThread();
+        AtomicBoolean abortedInTask = new AtomicBoolean();
+
+        long start = System.nanoTime();
+        BitSet unclaimed = FanOutUtils.run(4, 2, executor, 1, index -> {
+            if (Thread.currentThread() == caller) {
+                // 调用线程上的子任务越过截止时间后结束，之后不再领取序号
+                sleep(1500);
+                return;
+            }
+            // 线程池上的子任务一直阻塞，直到超时中止
+            CountDownLatch cancelled = new CountDownLatch(1);
+            FanOutUtils.onAbort(cancelled::countDown);
+            try {
+                assertThat(cancelled.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            abortedInTask.set(FanOutUtils.isAborted());
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 两个执行者各领取一个序号，剩余两个未执行
+        assertThat(unclaimed.cardinality()).isEqualTo(2);
+        assertThat(unclaimed.get(2)).isTrue();
+        assertThat(unclaimed.get(3)).isTrue();
+        // 返回时进行中的子任务已经退出
+        assertThat(abortedInTask.get()).isTrue();
+        assertThat(elapsedMillis).isLessThan(5000);
+    }
+
+    @Test
+    void abortHelpersAreNoOpsOutsideFanOut() {
+        AtomicBoolean ran = new AtomicBoolean();
+        FanOutUtils.onAbort(() -> ran.set(true));
+
+        assertThat(FanOutUtils.isAborted()).isFalse();
+        assertThat(ran.get()).isFalse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}